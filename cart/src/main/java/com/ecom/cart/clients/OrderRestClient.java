@@ -1,5 +1,6 @@
 package com.ecom.cart.clients;
 
+import com.ecom.cart.dto.OrderAmountDto;
 import com.ecom.cart.model.Order;
 import io.github.resilience4j.circuitbreaker.annotation.CircuitBreaker;
 import org.springframework.cloud.openfeign.FeignClient;
@@ -15,8 +16,8 @@ public interface OrderRestClient {
     @CircuitBreaker(name="order", fallbackMethod = "getDefaultFindByUserIdAndOrderStatus")
     Order findByUserIdAndOrderStatus(@RequestHeader("Authorization") String authorization, @RequestBody Map<String, String> mapOrder);
 
-    @PostMapping("/_internal/order-save")
-    ResponseEntity<Void> orderSave(@RequestHeader("Authorization") String authorization, @RequestBody Order order);
+    @PostMapping("/_internal/order-amount")
+    ResponseEntity<Void> orderAmount(@RequestHeader("Authorization") String authorization, @RequestBody OrderAmountDto orderAmountDto);
 
     @GetMapping("/_internal/orderFindById/{id}")
     @CircuitBreaker(name="order", fallbackMethod = "getDefaultOrderFindById")
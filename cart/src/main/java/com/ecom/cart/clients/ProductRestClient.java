@@ -5,8 +5,12 @@ import io.github.resilience4j.circuitbreaker.annotation.CircuitBreaker;
 import org.springframework.cloud.openfeign.FeignClient;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestHeader;
 
+import java.util.List;
+
 @FeignClient(name = "products-service", url = "${products.service.url}")
 public interface ProductRestClient {
 
@@ -14,10 +18,18 @@ public interface ProductRestClient {
     @CircuitBreaker(name="product", fallbackMethod = "getDefaultProductFindById")
     Product findById(@RequestHeader("Authorization") String authorization, @PathVariable Long id);
 
+    @PostMapping("/_internal/productFindListById")
+    @CircuitBreaker(name="product", fallbackMethod = "getDefaultProductList")
+    List<Product> findListById(@RequestHeader("Authorization") String authorization, @RequestBody List<Long> ids);
+
     default Product getDefaultProductFindById(String authorization,Long id, Exception e) {
         Product product = new Product();
         product.setId(null);
         product.setName("non trouvé");
         return product;
     }
+
+    default List<Product> getDefaultProductList(String authorization, List<Long> ids, Exception e) {
+        return List.of();
+    }
 }
@@ -0,0 +1,34 @@
+package com.ecom.cart.config;
+
+import com.ecom.cart.repository.CartRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+@Slf4j
+@Component
+@Profile("!test")
+@RequiredArgsConstructor
+public class CartLineMigration {
+
+    private final CartRepository cartRepository;
+
+    //ddl-auto n'ajoute pas la clé unique si des doublons existent : on les fusionne puis on la pose
+    @EventListener(ApplicationReadyEvent.class)
+    public void addCartLineKey() {
+        try {
+            if (cartRepository.countLineKey() > 0) {
+                return;
+            }
+            int merged = cartRepository.mergeDuplicateLines();
+            int deleted = cartRepository.deleteDuplicateLines();
+            cartRepository.addLineKey();
+            log.info("Clé unique des lignes de panier ajoutée ({} ligne(s) fusionnée(s), {} supprimée(s))", merged, deleted);
+        } catch (Exception e) {
+            log.warn("Clé unique des lignes de panier non ajoutée : {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.ecom.cart.config;
+
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.core.registry.EntryAddedEvent;
+import io.github.resilience4j.core.registry.EntryRemovedEvent;
+import io.github.resilience4j.core.registry.EntryReplacedEvent;
+import io.github.resilience4j.core.registry.RegistryEventConsumer;
+import io.micrometer.core.aop.TimedAspect;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class MetricsConfig {
+
+    //active @Timed sur les méthodes des services
+    @Bean
+    public TimedAspect timedAspect(MeterRegistry meterRegistry) {
+        return new TimedAspect(meterRegistry);
+    }
+
+    //chaque erreur ou appel refusé par un circuit ouvert passe par la méthode de fallback
+    @Bean
+    public RegistryEventConsumer<CircuitBreaker> circuitBreakerFallbackMetrics(MeterRegistry meterRegistry) {
+        return new RegistryEventConsumer<>() {
+            @Override
+            public void onEntryAddedEvent(EntryAddedEvent<CircuitBreaker> entryAddedEvent) {
+                CircuitBreaker circuitBreaker = entryAddedEvent.getAddedEntry();
+                circuitBreaker.getEventPublisher()
+                        .onError(event -> meterRegistry.counter("resilience4j.circuitbreaker.fallback.calls",
+                                "name", circuitBreaker.getName(), "kind", "error").increment())
+                        .onCallNotPermitted(event -> meterRegistry.counter("resilience4j.circuitbreaker.fallback.calls",
+                                "name", circuitBreaker.getName(), "kind", "not_permitted").increment());
+            }
+
+            @Override
+            public void onEntryRemovedEvent(EntryRemovedEvent<CircuitBreaker> entryRemoveEvent) {
+            }
+
+            @Override
+            public void onEntryReplacedEvent(EntryReplacedEvent<CircuitBreaker> entryReplacedEvent) {
+            }
+        };
+    }
+}
@@ -0,0 +1,58 @@
+package com.ecom.cart.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+@Configuration
+public class QrCodeJobConfig {
+
+    //pool de workers dédié à la génération des billets
+    @Bean(name = "qrCodeJobExecutor")
+    public ThreadPoolTaskExecutor qrCodeJobExecutor(@Value("${qrcode.jobs.pool-size:4}") int poolSize,
+                                                    @Value("${qrcode.jobs.queue-capacity:100}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("qrcode-job-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        executor.initialize();
+        return executor;
+    }
+
+    //pool borné pour la préparation des billets d'une commande (chiffrement)
+    @Bean(name = "qrCodeRenderExecutor")
+    public ThreadPoolTaskExecutor qrCodeRenderExecutor(@Value("${qrcode.render.pool-size:0}") int poolSize,
+                                                       @Value("${qrcode.render.queue-capacity:200}") int queueCapacity) {
+        int size = poolSize > 0 ? poolSize : Runtime.getRuntime().availableProcessors();
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(size);
+        executor.setMaxPoolSize(size);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("qrcode-render-");
+        //file pleine : le thread appelant fait le rendu lui-même
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.initialize();
+        return executor;
+    }
+
+    //pool borné pour la vérification des billets par lot
+    @Bean(name = "qrCodeVerifyExecutor")
+    public ThreadPoolTaskExecutor qrCodeVerifyExecutor(@Value("${qrcode.verify.pool-size:0}") int poolSize,
+                                                       @Value("${qrcode.verify.queue-capacity:500}") int queueCapacity) {
+        int size = poolSize > 0 ? poolSize : Runtime.getRuntime().availableProcessors();
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(size);
+        executor.setMaxPoolSize(size);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("qrcode-verify-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.initialize();
+        return executor;
+    }
+}
@@ -0,0 +1,61 @@
+package com.ecom.cart.config;
+
+import com.ecom.cart.repository.CartRepository;
+import com.google.zxing.BinaryBitmap;
+import com.google.zxing.MultiFormatReader;
+import com.google.zxing.client.j2se.BufferedImageLuminanceSource;
+import com.google.zxing.common.HybridBinarizer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.util.List;
+
+@Slf4j
+@Component
+@Profile("!test")
+@RequiredArgsConstructor
+public class QrPayloadMigration {
+
+    private final CartRepository cartRepository;
+
+    //on relit les PNG encore stockés dans cart_items.qr_code pour n'en garder que le contenu
+    @EventListener(ApplicationReadyEvent.class)
+    public void migrateLegacyQrCodes() {
+        try {
+            //pas de colonne qr_code sur une base récente : rien à migrer
+            if (cartRepository.countLegacyQrCodeColumn() == 0) {
+                return;
+            }
+            List<Long> ids = cartRepository.findIdsWithLegacyQrCode();
+            int migrated = 0;
+            for (Long id : ids) {
+                try {
+                    BufferedImage image = ImageIO.read(new ByteArrayInputStream(cartRepository.findLegacyQrCode(id)));
+                    String payload = new MultiFormatReader()
+                            .decode(new BinaryBitmap(new HybridBinarizer(new BufferedImageLuminanceSource(image))))
+                            .getText();
+                    cartRepository.moveLegacyQrCode(id, payload);
+                    migrated++;
+                } catch (Exception e) {
+                    //la ligne garde son PNG d'origine, elle sera reprise au prochain démarrage
+                    log.error("QR code de l'article {} non migré", id, e);
+                }
+            }
+            if (migrated > 0) {
+                log.info("{} QR code(s) convertis en contenu compact", migrated);
+            }
+            if (migrated < ids.size()) {
+                log.error("{} QR code(s) non migré(s) sur {}", ids.size() - migrated, ids.size());
+            }
+        } catch (Exception e) {
+            log.error("Migration des QR codes interrompue", e);
+        }
+    }
+}
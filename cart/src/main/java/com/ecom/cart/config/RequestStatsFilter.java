@@ -0,0 +1,85 @@
+package com.ecom.cart.config;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Map;
+
+@Slf4j
+public class RequestStatsFilter extends OncePerRequestFilter {
+
+    private final RequestStatsEndpoint requestStatsEndpoint;
+    private final MeterRegistry meterRegistry;
+    private final int maxStatements;
+    private final int maxEntityLoads;
+    private final int maxFeignCalls;
+    private final int repeatedStatementThreshold;
+
+    public RequestStatsFilter(RequestStatsEndpoint requestStatsEndpoint, MeterRegistry meterRegistry, int maxStatements, int maxEntityLoads, int maxFeignCalls, int repeatedStatementThreshold) {
+        this.requestStatsEndpoint = requestStatsEndpoint;
+        this.meterRegistry = meterRegistry;
+        this.maxStatements = maxStatements;
+        this.maxEntityLoads = maxEntityLoads;
+        this.maxFeignCalls = maxFeignCalls;
+        this.repeatedStatementThreshold = repeatedStatementThreshold;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
+        RequestStatistics statistics = RequestStatistics.start();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            RequestStatistics.stop();
+            this.record(request, statistics);
+        }
+    }
+
+    private void record(HttpServletRequest request, RequestStatistics statistics) {
+        //modèle de l'URL (/order/{id}) et non l'URL réelle, pour borner le nombre de séries
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String uri = pattern != null ? pattern.toString() : "UNKNOWN";
+        Tags tags = Tags.of("method", request.getMethod(), "uri", uri);
+
+        DistributionSummary.builder("request.sql.statements").tags(tags).register(meterRegistry).record(statistics.getStatements());
+        DistributionSummary.builder("request.entity.loads").tags(tags).register(meterRegistry).record(statistics.getEntityLoads());
+        DistributionSummary.builder("request.feign.calls").tags(tags).register(meterRegistry).record(statistics.getFeignCalls());
+
+        Map.Entry<String, Integer> repeated = statistics.mostRepeatedStatement();
+        String suspectedStatementId = null;
+        if (repeated != null && repeated.getValue() >= repeatedStatementThreshold) {
+            //le SQL complet reste dans les logs, l'endpoint ne publie que son empreinte
+            suspectedStatementId = statementId(repeated.getKey());
+            meterRegistry.counter("request.n_plus_one.suspected", tags).increment();
+            log.warn("N+1 probable sur {} {} : requête [{}] exécutée {} fois : {}", request.getMethod(), uri, suspectedStatementId, repeated.getValue(), repeated.getKey());
+        }
+        if (statistics.getStatements() > maxStatements || statistics.getEntityLoads() > maxEntityLoads || statistics.getFeignCalls() > maxFeignCalls) {
+            log.warn("Requête coûteuse {} {} : {} requête(s) SQL, {} entité(s) chargée(s), {} appel(s) Feign",
+                    request.getMethod(), uri, statistics.getStatements(), statistics.getEntityLoads(), statistics.getFeignCalls());
+        }
+
+        requestStatsEndpoint.record(request.getMethod() + " " + uri, statistics, suspectedStatementId);
+    }
+
+    static String statementId(String sql) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(sql.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(hash, 0, 6);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
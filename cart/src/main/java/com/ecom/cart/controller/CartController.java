@@ -1,25 +1,41 @@
 package com.ecom.cart.controller;
 
 import com.ecom.cart.dto.*;
+import com.ecom.cart.response.UserNotFoundException;
 import com.ecom.cart.services.CartService;
+import com.ecom.cart.services.QrCodeJobService;
+import com.ecom.cart.services.QrCodeRenderer;
 import com.ecom.cart.services.QrCodeService;
+import com.ecom.cart.services.TicketSigningService;
+import com.ecom.cart.services.TicketVerificationService;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.time.Duration;
 import java.util.List;
+import java.util.Map;
 
 @RestController
 public class CartController {
 
     private final CartService cartService;
     private final QrCodeService qrCodeService;
+    private final QrCodeJobService qrCodeJobService;
+    private final TicketVerificationService ticketVerificationService;
+    private final TicketSigningService ticketSigningService;
 
-    public CartController(CartService cartService, QrCodeService qrCodeService) {
+    public CartController(CartService cartService, QrCodeService qrCodeService, QrCodeJobService qrCodeJobService, TicketVerificationService ticketVerificationService,
+                          TicketSigningService ticketSigningService) {
         this.cartService = cartService;
         this.qrCodeService = qrCodeService;
+        this.qrCodeJobService = qrCodeJobService;
+        this.ticketVerificationService = ticketVerificationService;
+        this.ticketSigningService = ticketSigningService;
     }
 
     @PostMapping("/addCaddy/{userId}")
@@ -47,11 +63,30 @@ public class CartController {
     }
 
     @GetMapping("/qrCode/{id}")
-    public ResponseEntity<?> getQrCodeById(@PathVariable Long id) {
-        CartItemsDto cartItemsDtoDto = cartService.getQrCodeById(id);
+    public ResponseEntity<?> getQrCodeById(@PathVariable Long id, @RequestParam(required = false) Integer size,
+                                           JwtAuthenticationToken authentication) {
+        CartItemsDto cartItemsDtoDto = cartService.getQrCodeById(id, size, requesterId(authentication));
         return ResponseEntity.status(HttpStatus.OK).body(cartItemsDtoDto);
     }
 
+    @GetMapping("/qrCode-image/{id}")
+    public ResponseEntity<byte[]> getQrCodeImage(@PathVariable Long id,
+                                                 @RequestParam(required = false) Integer size,
+                                                 @RequestParam(defaultValue = "png") String format,
+                                                 JwtAuthenticationToken authentication) {
+        byte[] image = cartService.getQrCodeImage(id, size, format, requesterId(authentication));
+        return ResponseEntity.ok()
+                .contentType(QrCodeRenderer.mediaType(format))
+                .cacheControl(CacheControl.maxAge(Duration.ofHours(1)).cachePrivate())
+                .body(image);
+    }
+
+    @GetMapping("/qrCode-status/{orderId}")
+    public ResponseEntity<?> getQrCodeStatus(@PathVariable Long orderId, JwtAuthenticationToken authentication) {
+        QrCodeJobDto qrCodeJobDto = qrCodeJobService.getStatus(orderId, requesterId(authentication));
+        return ResponseEntity.status(HttpStatus.OK).body(qrCodeJobDto);
+    }
+
     @GetMapping("/cart-detail/{orderId}")
     public ResponseEntity<?> getCartByOrderId(@PathVariable Long orderId) {
         OrderDto orderDto = cartService.getCartByOrderId(orderId);
@@ -69,4 +104,50 @@ public class CartController {
     public ResponseEntity<DecryptDto> decryptKeyInQrCode(@RequestBody DecryptDto decryptDto) throws Exception {
         return ResponseEntity.ok(this.qrCodeService.decryptKey(decryptDto.getUserId(), decryptDto.getOrderId(), decryptDto.getInputCode()).getBody());
     }
+
+    @PostMapping("/verifyTicket")
+    @PreAuthorize("hasAnyAuthority('SCOPE_AGENT', 'SCOPE_ADMIN')")
+    public ResponseEntity<TicketVerificationDto> verifyTicket(@RequestParam("img") MultipartFile image) {
+        return ResponseEntity.ok(this.ticketVerificationService.verifyTicket(image));
+    }
+
+    @PostMapping("/verifyTickets")
+    @PreAuthorize("hasAnyAuthority('SCOPE_AGENT', 'SCOPE_ADMIN')")
+    public ResponseEntity<List<TicketVerificationDto>> verifyTickets(@RequestParam("imgs") List<MultipartFile> images) {
+        return ResponseEntity.ok(this.ticketVerificationService.verifyTickets(images));
+    }
+
+    @PostMapping("/verifySignedTicket")
+    @PreAuthorize("hasAnyAuthority('SCOPE_AGENT', 'SCOPE_ADMIN')")
+    public ResponseEntity<TicketVerificationDto> verifySignedTicket(@RequestBody Map<String, String> ticket) {
+        return ResponseEntity.ok(this.ticketVerificationService.verifySignedTicket(ticket.get("ticket")));
+    }
+
+    //clés publiques des billets signés, pour la vérification hors ligne
+    @GetMapping("/ticket-keys")
+    public ResponseEntity<List<TicketPublicKeyDto>> getTicketKeys() {
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.maxAge(Duration.ofMinutes(10)).cachePublic())
+                .body(this.ticketSigningService.publicKeys());
+    }
+
+    @PostMapping("/admin/ticket-keys/rotate")
+    @PreAuthorize("hasAnyAuthority('SCOPE_ADMIN')")
+    public ResponseEntity<TicketPublicKeyDto> rotateTicketKey() {
+        return ResponseEntity.ok(this.ticketSigningService.rotate());
+    }
+
+    //id de l'utilisateur du jeton (claim "id"), null pour un admin qui accède à tous les billets
+    private static Long requesterId(JwtAuthenticationToken authentication) {
+        boolean admin = authentication.getAuthorities().stream()
+                .anyMatch(authority -> "SCOPE_ADMIN".equals(authority.getAuthority()));
+        if (admin) {
+            return null;
+        }
+        Object id = authentication.getToken().getClaims().get("id");
+        if (!(id instanceof Number number)) {
+            throw new UserNotFoundException("Billet introuvable");
+        }
+        return number.longValue();
+    }
 }
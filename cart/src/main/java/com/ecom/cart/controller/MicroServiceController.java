@@ -1,12 +1,19 @@
 package com.ecom.cart.controller;
 
-import com.ecom.cart.entity.CartItems;
+import com.ecom.cart.dto.SoldItemDto;
+import com.ecom.cart.dto.QrCodeJobDto;
+import com.ecom.cart.services.ActiveOrderCache;
 import com.ecom.cart.services.CartService;
-import com.ecom.cart.services.QrCodeService;
+import com.ecom.cart.services.QrCodeJobService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
 
 import java.util.List;
 import java.util.Map;
@@ -14,22 +21,46 @@ import java.util.Map;
 @RestController
 public class MicroServiceController {
 
-    private final QrCodeService qrCodeService;
+    private final QrCodeJobService qrCodeJobService;
     private final CartService cartService;
+    private final ActiveOrderCache activeOrderCache;
 
-    public MicroServiceController(QrCodeService qrCodeService, CartService cartService) {
-        this.qrCodeService = qrCodeService;
+    public MicroServiceController(QrCodeJobService qrCodeJobService, CartService cartService, ActiveOrderCache activeOrderCache) {
+        this.qrCodeJobService = qrCodeJobService;
         this.cartService = cartService;
+        this.activeOrderCache = activeOrderCache;
     }
 
     @PostMapping("/_internal/cartItems-qrCode")
-    public void generateQrCode(@RequestBody Map<String, Long> qrCode){
-        this.qrCodeService.generateQrCode(qrCode.get("userId"), qrCode.get("orderId"));
+    public ResponseEntity<QrCodeJobDto> generateQrCode(@RequestBody Map<String, Long> qrCode){
+        //la commande vient d'être validée : elle n'est plus la commande EnCours
+        this.activeOrderCache.invalidate(qrCode.get("userId"));
+        QrCodeJobDto job = this.qrCodeJobService.enqueue(qrCode.get("userId"), qrCode.get("orderId"));
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(job);
     }
 
-    @GetMapping("/_internal/allCartByQrCodeIsNotNull")
-    public List<CartItems> findByQrCodeIsNotNull(){
-        return this.cartService.findByQrCodeIsNotNull();
+    @PostMapping("/_internal/activeOrder-evict")
+    public ResponseEntity<Void> evictActiveOrder(@RequestBody Map<String, Long> activeOrder){
+        this.activeOrderCache.invalidate(activeOrder.get("userId"));
+        return ResponseEntity.ok().build();
+    }
+
+    @GetMapping("/_internal/qrCodeJob/{orderId}")
+    public QrCodeJobDto getQrCodeJob(@PathVariable Long orderId){
+        return this.qrCodeJobService.getStatus(orderId);
+    }
+
+    @GetMapping("/_internal/soldItems")
+    public List<SoldItemDto> findSoldItems(@RequestParam(defaultValue = "0") int page, @RequestParam(defaultValue = "500") int size){
+        if (page < 0 || size < 1) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Pagination invalide");
+        }
+        return this.cartService.findSoldItems(page, Math.min(size, 1000));
+    }
+
+    @GetMapping("/_internal/orderItems/{orderId}")
+    public List<SoldItemDto> findOrderItems(@PathVariable Long orderId){
+        return this.cartService.findSoldItemsByOrderId(orderId);
     }
 }
 
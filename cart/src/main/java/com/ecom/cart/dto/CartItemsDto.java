@@ -10,7 +10,8 @@ public class CartItemsDto {
     private Long productId;
     private Long orderId;
     private String productName;
-    private byte[] returnedImg;
+    private String imageUrl;
     private Long userId;
+    private boolean ticketIssued;
     private byte[] qrCode;
 }
@@ -11,4 +11,5 @@ public class QrCodeDto {
     private String commande;
     private String client;
     private String decrypt;
+    private String ticket;
 }
@@ -0,0 +1,16 @@
+package com.ecom.cart.dto;
+
+import com.ecom.cart.enums.QrCodeJobStatus;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class QrCodeJobDto {
+
+    private Long orderId;
+    private QrCodeJobStatus status;
+    private int attempts;
+}
@@ -0,0 +1,21 @@
+package com.ecom.cart.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SignedTicketDto {
+    private String kid;
+    private Long itemId;
+    private Long orderId;
+    private Long userId;
+    private String name;
+    private String type;
+    private Long quantity;
+    private Long issuedAt;
+}
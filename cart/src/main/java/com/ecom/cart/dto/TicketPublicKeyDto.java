@@ -0,0 +1,15 @@
+package com.ecom.cart.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class TicketPublicKeyDto {
+    private String kid;
+    private String algorithm;
+    private String publicKey;
+    private boolean active;
+}
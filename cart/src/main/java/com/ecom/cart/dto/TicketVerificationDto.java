@@ -0,0 +1,17 @@
+package com.ecom.cart.dto;
+
+import lombok.Data;
+
+@Data
+public class TicketVerificationDto {
+    private String fileName;
+    private boolean valid;
+    private boolean alreadyScanned;
+    private String message;
+    private String name;
+    private String type;
+    private String quantity;
+    private String commande;
+    private String client;
+    private String outputCode;
+}
@@ -10,6 +10,7 @@ import jakarta.persistence.*;
 import lombok.Data;
 
 @Entity
+@Table(name = "cart_items", uniqueConstraints = @UniqueConstraint(name = "uk_cart_items_line", columnNames = {"order_id", "product_id", "user_id"}))
 @Data
 public class CartItems {
 
@@ -28,9 +29,9 @@ public class CartItems {
     @JsonIgnore
     private Order order;
     private Long orderId;
-    @Lob
-    @Column(columnDefinition = "longblob")
-    private byte[] qrCode;
+    //contenu du billet (JSON signé), l'image est rendue à la demande
+    @Column(name = "qr_payload", length = 2048)
+    private String qrPayload;
 
     @JsonIgnore
     public CartItemsDto getCartDto() {
@@ -42,8 +43,8 @@ public class CartItems {
         cartItemsDto.setProductId(productId);
         cartItemsDto.setProductName(product.getName());
         cartItemsDto.setUserId(userId);
-        cartItemsDto.setReturnedImg(product.getImg());
-        cartItemsDto.setQrCode(qrCode);
+        cartItemsDto.setImageUrl(product.getImageUrl());
+        cartItemsDto.setTicketIssued(qrPayload != null);
         return cartItemsDto;
     }
 }
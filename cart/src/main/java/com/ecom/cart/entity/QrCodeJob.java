@@ -0,0 +1,32 @@
+package com.ecom.cart.entity;
+
+import com.ecom.cart.enums.QrCodeJobStatus;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+@Entity
+@Table(name = "qr_code_job", indexes = @Index(name = "idx_qr_code_job_status", columnList = "status, next_attempt_at"))
+@Data @Builder @NoArgsConstructor
+@AllArgsConstructor
+public class QrCodeJob {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    private Long userId;
+    @Column(unique = true)
+    private Long orderId;
+    @Enumerated(EnumType.STRING)
+    private QrCodeJobStatus status;
+    private int attempts;
+    private String lastError;
+    private Instant nextAttemptAt;
+    private Instant startedAt;
+    private Instant createdAt;
+    private Instant finishedAt;
+}
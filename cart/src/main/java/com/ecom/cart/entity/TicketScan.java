@@ -0,0 +1,22 @@
+package com.ecom.cart.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+@Entity
+@Table(name = "ticket_scan")
+@Data @NoArgsConstructor
+@AllArgsConstructor
+public class TicketScan {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    @Column(unique = true, length = 64)
+    private String ticketKey;
+    private Instant scannedAt;
+}
@@ -0,0 +1,28 @@
+package com.ecom.cart.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+@Entity
+@Table(name = "ticket_signing_key")
+@Data @Builder @NoArgsConstructor
+@AllArgsConstructor
+public class TicketSigningKey {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    @Column(unique = true, length = 16)
+    private String kid;
+    @Column(length = 256)
+    private String publicKey;
+    @Column(length = 256)
+    private String privateKey;
+    private boolean active;
+    private Instant createdAt;
+}
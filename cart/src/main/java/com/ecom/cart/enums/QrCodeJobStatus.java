@@ -0,0 +1,8 @@
+package com.ecom.cart.enums;
+
+public enum QrCodeJobStatus {
+    EnAttente,
+    EnCours,
+    Termine,
+    Echec,
+}
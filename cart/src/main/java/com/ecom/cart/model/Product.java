@@ -13,6 +13,6 @@ public class Product {
     private String name;
     private Long price;
     private String description;
-    private byte[] img;
+    private String imageUrl;
 
 }
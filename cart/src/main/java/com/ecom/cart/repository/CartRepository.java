@@ -1,16 +1,85 @@
 package com.ecom.cart.repository;
 
+import com.ecom.cart.dto.SoldItemDto;
 import com.ecom.cart.entity.CartItems;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.Optional;
 
 
-public interface CartRepository extends JpaRepository<CartItems, Long> {
+public interface CartRepository extends JpaRepository<CartItems, Long>, CartRepositoryCustom {
     List<CartItems> findByOrderId(Long orderId);
 
     Optional<CartItems> findByProductIdAndOrderIdAndUserId(Long productId, Long orderId, Long userId);
 
-    List<CartItems> findByQrCodeIsNotNull();
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE CartItems c SET c.quantity = c.quantity + :delta WHERE c.id = :id")
+    int incrementQuantity(@Param("id") Long id, @Param("delta") Long delta);
+
+    //une seule instruction, sans doublon grâce à la clé unique (order_id, product_id, user_id)
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO cart_items (order_id, product_id, user_id, price, quantity) " +
+            "VALUES (:orderId, :productId, :userId, :price, :quantity) " +
+            "ON DUPLICATE KEY UPDATE quantity = quantity + :quantity", nativeQuery = true)
+    int upsertQuantity(@Param("orderId") Long orderId, @Param("productId") Long productId, @Param("userId") Long userId,
+                       @Param("price") Long price, @Param("quantity") Long quantity);
+
+    //lignes de panier pour les statistiques : orders ne retient que celles des commandes validées,
+    //comme à la validation (billet émis ou non)
+    @Query("SELECT new com.ecom.cart.dto.SoldItemDto(c.id, c.productId, c.orderId, c.quantity, c.price) " +
+            "FROM CartItems c ORDER BY c.id")
+    List<SoldItemDto> findSoldItems(Pageable pageable);
+
+    @Query("SELECT new com.ecom.cart.dto.SoldItemDto(c.id, c.productId, c.orderId, c.quantity, c.price) " +
+            "FROM CartItems c WHERE c.orderId = :orderId")
+    List<SoldItemDto> findSoldItemsByOrderId(@Param("orderId") Long orderId);
+
+    //reprise des billets stockés en PNG (ancienne colonne qr_code), absente sur une base récente
+    @Query(value = "SELECT COUNT(*) FROM information_schema.columns WHERE table_schema = DATABASE() " +
+            "AND table_name = 'cart_items' AND column_name = 'qr_code'", nativeQuery = true)
+    long countLegacyQrCodeColumn();
+
+    @Query(value = "SELECT id FROM cart_items WHERE qr_code IS NOT NULL AND qr_payload IS NULL", nativeQuery = true)
+    List<Long> findIdsWithLegacyQrCode();
+
+    @Query(value = "SELECT qr_code FROM cart_items WHERE id = :id", nativeQuery = true)
+    byte[] findLegacyQrCode(@Param("id") Long id);
+
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE cart_items SET qr_payload = :payload, qr_code = NULL WHERE id = :id", nativeQuery = true)
+    void moveLegacyQrCode(@Param("id") Long id, @Param("payload") String payload);
+
+    //reprise des lignes en double créées avant la clé unique (billets non émis uniquement)
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE cart_items c JOIN (SELECT MIN(id) AS keep_id, SUM(quantity) AS total FROM cart_items " +
+            "GROUP BY order_id, product_id, user_id HAVING COUNT(*) > 1 AND COUNT(qr_payload) = 0) d " +
+            "ON c.id = d.keep_id SET c.quantity = d.total", nativeQuery = true)
+    int mergeDuplicateLines();
+
+    @Modifying
+    @Transactional
+    @Query(value = "DELETE c FROM cart_items c JOIN cart_items k ON k.order_id = c.order_id " +
+            "AND k.product_id = c.product_id AND k.user_id = c.user_id AND k.id < c.id " +
+            "WHERE c.qr_payload IS NULL AND k.qr_payload IS NULL", nativeQuery = true)
+    int deleteDuplicateLines();
+
+    @Query(value = "SELECT COUNT(*) FROM information_schema.statistics WHERE table_schema = DATABASE() " +
+            "AND table_name = 'cart_items' AND index_name = 'uk_cart_items_line'", nativeQuery = true)
+    long countLineKey();
+
+    @Modifying
+    @Transactional
+    @Query(value = "ALTER TABLE cart_items ADD CONSTRAINT uk_cart_items_line UNIQUE (order_id, product_id, user_id)", nativeQuery = true)
+    void addLineKey();
 }
@@ -0,0 +1,11 @@
+package com.ecom.cart.repository;
+
+import com.ecom.cart.entity.CartItems;
+
+import java.util.Collection;
+
+public interface CartRepositoryCustom {
+
+    //crée ou cumule plusieurs lignes de panier en une seule instruction (clé unique de ligne)
+    int upsertLines(Collection<CartItems> lines);
+}
@@ -0,0 +1,44 @@
+package com.ecom.cart.repository;
+
+import com.ecom.cart.entity.CartItems;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+
+public class CartRepositoryCustomImpl implements CartRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    @Transactional
+    public int upsertLines(Collection<CartItems> lines) {
+        if (lines.isEmpty()) {
+            return 0;
+        }
+        List<CartItems> items = List.copyOf(lines);
+        StringBuilder sql = new StringBuilder(
+                "INSERT INTO cart_items (order_id, product_id, user_id, price, quantity) VALUES ");
+        for (int i = 0; i < items.size(); i++) {
+            sql.append(i == 0 ? "" : ", ")
+                    .append("(:order").append(i).append(", :product").append(i).append(", :user").append(i)
+                    .append(", :price").append(i).append(", :quantity").append(i).append(")");
+        }
+        //ligne créée entre-temps par une requête concurrente : on cumule la quantité
+        sql.append(" AS new_line ON DUPLICATE KEY UPDATE quantity = cart_items.quantity + new_line.quantity");
+        Query query = entityManager.createNativeQuery(sql.toString());
+        for (int i = 0; i < items.size(); i++) {
+            CartItems item = items.get(i);
+            query.setParameter("order" + i, item.getOrderId());
+            query.setParameter("product" + i, item.getProductId());
+            query.setParameter("user" + i, item.getUserId());
+            query.setParameter("price" + i, item.getPrice());
+            query.setParameter("quantity" + i, item.getQuantity());
+        }
+        return query.executeUpdate();
+    }
+}
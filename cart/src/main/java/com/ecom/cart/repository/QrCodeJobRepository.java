@@ -0,0 +1,63 @@
+package com.ecom.cart.repository;
+
+import com.ecom.cart.entity.QrCodeJob;
+import com.ecom.cart.enums.QrCodeJobStatus;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+public interface QrCodeJobRepository extends JpaRepository<QrCodeJob, Long> {
+
+    Optional<QrCodeJob> findByOrderId(Long orderId);
+
+    @Query("SELECT j.id FROM QrCodeJob j WHERE j.status = :status AND j.nextAttemptAt <= :now ORDER BY j.id")
+    List<Long> findReadyJobIds(@Param("status") QrCodeJobStatus status, @Param("now") Instant now, Pageable pageable);
+
+    //réservation atomique : une seule instance peut prendre le job
+    @Modifying
+    @Transactional
+    @Query("UPDATE QrCodeJob j SET j.status = :running, j.startedAt = :now, j.attempts = j.attempts + 1 " +
+            "WHERE j.id = :id AND j.status = :pending")
+    int claim(@Param("id") Long id, @Param("pending") QrCodeJobStatus pending,
+              @Param("running") QrCodeJobStatus running, @Param("now") Instant now);
+
+    //jobs bloqués (instance arrêtée pendant le traitement)
+    @Modifying
+    @Transactional
+    @Query("UPDATE QrCodeJob j SET j.status = :pending, j.nextAttemptAt = :now " +
+            "WHERE j.status = :running AND j.startedAt < :before")
+    int requeueStale(@Param("running") QrCodeJobStatus running, @Param("pending") QrCodeJobStatus pending,
+                     @Param("before") Instant before, @Param("now") Instant now);
+
+    //fin de traitement : seulement si le job est toujours celui réservé par ce worker (même startedAt)
+    @Modifying
+    @Transactional
+    @Query("UPDATE QrCodeJob j SET j.status = :status, j.lastError = :lastError, j.nextAttemptAt = :nextAttemptAt, " +
+            "j.finishedAt = :finishedAt WHERE j.id = :id AND j.status = :running AND j.startedAt = :startedAt")
+    int finish(@Param("id") Long id, @Param("running") QrCodeJobStatus running, @Param("startedAt") Instant startedAt,
+               @Param("status") QrCodeJobStatus status, @Param("lastError") String lastError,
+               @Param("nextAttemptAt") Instant nextAttemptAt, @Param("finishedAt") Instant finishedAt);
+
+    //réservation annulée (pool saturé) : la tentative n'est pas comptée
+    @Modifying
+    @Transactional
+    @Query("UPDATE QrCodeJob j SET j.status = :pending, j.attempts = j.attempts - 1 " +
+            "WHERE j.id = :id AND j.status = :running AND j.startedAt = :startedAt")
+    int release(@Param("id") Long id, @Param("running") QrCodeJobStatus running,
+                @Param("pending") QrCodeJobStatus pending, @Param("startedAt") Instant startedAt);
+
+    //relance d'un job abandonné, une seule fois même en cas d'appels concurrents
+    @Modifying
+    @Transactional
+    @Query("UPDATE QrCodeJob j SET j.status = :pending, j.attempts = 0, j.nextAttemptAt = :now " +
+            "WHERE j.id = :id AND j.status = :failed")
+    int retryFailed(@Param("id") Long id, @Param("failed") QrCodeJobStatus failed,
+                    @Param("pending") QrCodeJobStatus pending, @Param("now") Instant now);
+}
@@ -0,0 +1,14 @@
+package com.ecom.cart.repository;
+
+import com.ecom.cart.entity.TicketScan;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+
+import java.util.List;
+
+public interface TicketScanRepository extends JpaRepository<TicketScan, Long> {
+
+    @Query("SELECT s.ticketKey FROM TicketScan s ORDER BY s.id")
+    List<String> findTicketKeys(Pageable pageable);
+}
@@ -0,0 +1,14 @@
+package com.ecom.cart.repository;
+
+import com.ecom.cart.entity.TicketSigningKey;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.List;
+import java.util.Optional;
+
+public interface TicketSigningKeyRepository extends JpaRepository<TicketSigningKey, Long> {
+
+    Optional<TicketSigningKey> findFirstByActiveTrueOrderByIdDesc();
+
+    List<TicketSigningKey> findAllByOrderByIdAsc();
+}
@@ -0,0 +1,70 @@
+package com.ecom.cart.security;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+/**
+ * Chiffrement AES-GCM des clés privées de signature stockées en base.
+ * La clé maître vient de la configuration (variable d'environnement), jamais de la base.
+ */
+@Component
+public class TicketKeyEncryptor {
+
+    static final String PREFIX = "enc:";
+    private static final int IV_LENGTH = 12;
+    private static final int TAG_LENGTH_BITS = 128;
+
+    private final SecretKeySpec masterKey;
+    private final SecureRandom secureRandom = new SecureRandom();
+
+    public TicketKeyEncryptor(@Value("${tickets.signing.master-key}") String masterKey) {
+        if (masterKey == null || masterKey.isBlank()) {
+            throw new IllegalStateException("Clé maître de signature des billets absente (TICKET_SIGNING_MASTER_KEY)");
+        }
+        byte[] key = Base64.getDecoder().decode(masterKey);
+        if (key.length != 32) {
+            throw new IllegalStateException("La clé maître de signature des billets doit faire 256 bits");
+        }
+        this.masterKey = new SecretKeySpec(key, "AES");
+    }
+
+    public String encrypt(byte[] privateKey) {
+        try {
+            byte[] iv = new byte[IV_LENGTH];
+            this.secureRandom.nextBytes(iv);
+            Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+            cipher.init(Cipher.ENCRYPT_MODE, this.masterKey, new GCMParameterSpec(TAG_LENGTH_BITS, iv));
+            byte[] ciphertext = cipher.doFinal(privateKey);
+            return PREFIX + Base64.getEncoder().encodeToString(ByteBuffer.allocate(iv.length + ciphertext.length).put(iv).put(ciphertext).array());
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Chiffrement de la clé de signature impossible", e);
+        }
+    }
+
+    //les clés enregistrées avant le chiffrement sont encore en base64 simple
+    public byte[] decrypt(String stored) {
+        if (!this.isEncrypted(stored)) {
+            return Base64.getDecoder().decode(stored);
+        }
+        try {
+            byte[] ivAndCiphertext = Base64.getDecoder().decode(stored.substring(PREFIX.length()));
+            Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+            cipher.init(Cipher.DECRYPT_MODE, this.masterKey, new GCMParameterSpec(TAG_LENGTH_BITS, ivAndCiphertext, 0, IV_LENGTH));
+            return cipher.doFinal(ivAndCiphertext, IV_LENGTH, ivAndCiphertext.length - IV_LENGTH);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Clé de signature illisible avec la clé maître configurée", e);
+        }
+    }
+
+    public boolean isEncrypted(String stored) {
+        return stored != null && stored.startsWith(PREFIX);
+    }
+}
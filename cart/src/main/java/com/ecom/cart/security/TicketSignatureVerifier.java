@@ -0,0 +1,66 @@
+package com.ecom.cart.security;
+
+import com.ecom.cart.dto.SignedTicketDto;
+import com.ecom.cart.response.UserNotFoundException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.Base64;
+import java.util.Map;
+
+/**
+ * Vérification hors ligne des billets signés "kid.contenu.signature" (Ed25519).
+ * Ne dépend que des clés publiques publiées sur /ticket-keys : utilisable tel quel sur un terminal de contrôle.
+ */
+public class TicketSignatureVerifier {
+
+    public static final String ALGORITHM = "Ed25519";
+    public static final String UNKNOWN_KEY = "Clé de signature inconnue";
+
+    private final Map<String, PublicKey> publicKeys;
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    public TicketSignatureVerifier(Map<String, PublicKey> publicKeys) {
+        this.publicKeys = Map.copyOf(publicKeys);
+    }
+
+    public SignedTicketDto verify(String ticket) {
+        String[] parts = ticket == null ? new String[0] : ticket.split("\\.");
+        if (parts.length != 3) {
+            throw new UserNotFoundException("Format de billet invalide");
+        }
+        PublicKey publicKey = this.publicKeys.get(parts[0]);
+        if (publicKey == null) {
+            throw new UserNotFoundException(UNKNOWN_KEY);
+        }
+        try {
+            Signature signature = Signature.getInstance(ALGORITHM);
+            signature.initVerify(publicKey);
+            signature.update((parts[0] + "." + parts[1]).getBytes(StandardCharsets.US_ASCII));
+            if (!signature.verify(Base64.getUrlDecoder().decode(parts[2]))) {
+                throw new UserNotFoundException("Billet non authentique");
+            }
+            SignedTicketDto claims = this.objectMapper.readValue(Base64.getUrlDecoder().decode(parts[1]), SignedTicketDto.class);
+            //le kid signé doit correspondre à celui de l'en-tête
+            if (!parts[0].equals(claims.getKid())) {
+                throw new UserNotFoundException("Billet non authentique");
+            }
+            return claims;
+        } catch (UserNotFoundException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new UserNotFoundException("Billet non authentique");
+        }
+    }
+
+    public static PublicKey decodePublicKey(String base64) throws GeneralSecurityException {
+        return KeyFactory.getInstance(ALGORITHM).generatePublic(new X509EncodedKeySpec(Base64.getDecoder().decode(base64)));
+    }
+}
@@ -0,0 +1,43 @@
+package com.ecom.cart.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Commande EnCours de chaque utilisateur, invalidée par orders à la validation d'une commande.
+ */
+@Component
+public class ActiveOrderCache {
+
+    private final Cache<Long, Long> cache;
+
+    public ActiveOrderCache(@Value("${cart.active-order-cache.maximum-size:50000}") long maximumSize,
+                            @Value("${cart.active-order-cache.ttl-seconds:300}") long ttlSeconds,
+                            MeterRegistry meterRegistry) {
+        //le TTL couvre une notification perdue (instance injoignable, plusieurs instances)
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, this.cache, "activeOrders");
+    }
+
+    public Long get(Long userId) {
+        return this.cache.getIfPresent(userId);
+    }
+
+    public void put(Long userId, Long orderId) {
+        this.cache.put(userId, orderId);
+    }
+
+    public void invalidate(Long userId) {
+        this.cache.invalidate(userId);
+    }
+}
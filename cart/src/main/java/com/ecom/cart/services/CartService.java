@@ -5,23 +5,33 @@ import com.ecom.cart.clients.OrderRestClient;
 import com.ecom.cart.clients.ProductRestClient;
 import com.ecom.cart.dto.AddProductInCartDto;
 import com.ecom.cart.dto.CartItemsDto;
+import com.ecom.cart.dto.OrderAmountDto;
 import com.ecom.cart.dto.OrderDto;
+import com.ecom.cart.dto.SoldItemDto;
 import com.ecom.cart.entity.CartItems;
 import com.ecom.cart.enums.OrderStatus;
 import com.ecom.cart.model.Order;
 import com.ecom.cart.model.Product;
 import com.ecom.cart.repository.CartRepository;
 import com.ecom.cart.response.UserNotFoundException;
+import feign.FeignException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
+@Slf4j
 @Service
 public class CartService {
 
@@ -29,57 +39,119 @@ public class CartService {
     private final OrderRestClient orderRestClient;
     private final TokenTechnicService tokenTechnicService;
     private final ProductRestClient productRestClient;
+    private final QrCodeRenderer qrCodeRenderer;
+    private final ActiveOrderCache activeOrderCache;
 
-    public CartService(CartRepository cartRepository, OrderRestClient orderRestClient, TokenTechnicService tokenTechnicService, ProductRestClient productRestClient) {
+    public CartService(CartRepository cartRepository, OrderRestClient orderRestClient, TokenTechnicService tokenTechnicService, ProductRestClient productRestClient, QrCodeRenderer qrCodeRenderer, ActiveOrderCache activeOrderCache) {
         this.cartRepository = cartRepository;
         this.orderRestClient = orderRestClient;
         this.tokenTechnicService = tokenTechnicService;
         this.productRestClient = productRestClient;
+        this.qrCodeRenderer = qrCodeRenderer;
+        this.activeOrderCache = activeOrderCache;
     }
 
-    public ResponseEntity<?> addCaddies(Long userId, List<AddProductInCartDto> addProductInCartDto) {
-        Order activeOrder = orderRestClient.findByUserIdAndOrderStatus("Bearer " + this.tokenTechnicService.getTechnicalToken(), Map.of("userId", String.valueOf(userId), "orderStatus", String.valueOf(OrderStatus.EnCours)));
+    //id de la commande EnCours, sans appel à orders quand il est en cache
+    private Long findActiveOrderId(String token, Long userId) {
+        Long orderId = activeOrderCache.get(userId);
+        if (orderId != null) {
+            return orderId;
+        }
+        Order activeOrder = orderRestClient.findByUserIdAndOrderStatus(token, Map.of("userId", String.valueOf(userId), "orderStatus", String.valueOf(OrderStatus.EnCours)));
         if (activeOrder.getId() == null) {
             throw new UserNotFoundException("Service indisponible order");
         }
+        activeOrderCache.put(userId, activeOrder.getId());
+        return activeOrder.getId();
+    }
 
-        for (AddProductInCartDto dto : addProductInCartDto) {
-            //on vérifie si le produit est déjà dans le panier
-            Optional<CartItems> optionalCartItems = cartRepository.findByProductIdAndOrderIdAndUserId
-                    (dto.getProductId(), activeOrder.getId(), dto.getUserId());
+    //commande validée entre-temps (cache d'une autre instance) : orders refuse la variation, on relit la commande EnCours une fois
+    private ResponseEntity<?> withActiveOrder(String token, Long userId, Function<Long, ResponseEntity<?>> action) {
+        try {
+            return action.apply(findActiveOrderId(token, userId));
+        } catch (FeignException.NotFound e) {
+            activeOrderCache.invalidate(userId);
+            return action.apply(findActiveOrderId(token, userId));
+        }
+    }
 
-            if (optionalCartItems.isPresent()) {
-                CartItems cartItems = optionalCartItems.get();
-                cartItems.setQuantity(cartItems.getQuantity() + dto.getQuantity());
-                cartRepository.save(cartItems);
+    //les lignes sont écrites après la variation : en cas d'échec on annule la variation
+    private ResponseEntity<?> applyThenWrite(Long orderId, long delta, Runnable writeLines) {
+        ResponseEntity<?> response = this.sendUpdateOrders(orderId, delta);
+        try {
+            writeLines.run();
+        } catch (RuntimeException e) {
+            try {
+                this.sendUpdateOrders(orderId, -delta);
+            } catch (RuntimeException undo) {
+                log.error("Montant de la commande {} non rétabli ({})", orderId, -delta, undo);
+            }
+            throw e;
+        }
+        return response;
+    }
 
-                activeOrder.setTotalAmount(activeOrder.getTotalAmount() + cartItems.getPrice() * dto.getQuantity());
-                activeOrder.setAmount(activeOrder.getAmount() + cartItems.getPrice() * dto.getQuantity());
+    public ResponseEntity<?> addCaddies(Long userId, List<AddProductInCartDto> addProductInCartDto) {
+        String token = "Bearer " + this.tokenTechnicService.getTechnicalToken();
+        return withActiveOrder(token, userId, activeOrderId -> this.addCaddies(token, activeOrderId, addProductInCartDto));
+    }
 
-            } else {
+    private ResponseEntity<?> addCaddies(String token, Long activeOrderId, List<AddProductInCartDto> addProductInCartDto) {
+        //quantités regroupées par ligne (produit, utilisateur)
+        Map<CartLineKey, Long> quantities = new LinkedHashMap<>();
+        for (AddProductInCartDto dto : addProductInCartDto) {
+            quantities.merge(new CartLineKey(dto.getProductId(), dto.getUserId()), Objects.requireNonNullElse(dto.getQuantity(), 0L), Long::sum);
+        }
 
-            Product product = productRestClient.findById("Bearer " + this.tokenTechnicService.getTechnicalToken(), dto.getProductId());
-            if (product.getId() == null) {
-                throw new UserNotFoundException("Produit introuvable");
-            }
+        //lignes déjà présentes dans le panier, en une seule requête
+        Map<CartLineKey, CartItems> existing = cartRepository.findByOrderId(activeOrderId).stream()
+                .collect(Collectors.toMap(item -> new CartLineKey(item.getProductId(), item.getUserId()), Function.identity(), (a, b) -> a));
 
+        //produits manquants récupérés en un seul appel
+        List<Long> missingProductIds = quantities.keySet().stream()
+                .filter(key -> !existing.containsKey(key))
+                .map(CartLineKey::productId)
+                .distinct()
+                .toList();
+        Map<Long, Product> products = missingProductIds.isEmpty() ? Map.of()
+                : productRestClient.findListById(token, missingProductIds).stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity(), (a, b) -> a));
+
+        //lignes existantes comprises : l'upsert cumule la quantité en base au prix déjà enregistré
+        List<CartItems> lines = new ArrayList<>();
+        long delta = 0;
+        for (Map.Entry<CartLineKey, Long> entry : quantities.entrySet()) {
+            CartItems stored = existing.get(entry.getKey());
+            Long price;
+            if (stored != null) {
+                price = stored.getPrice();
+            } else {
+                Product product = products.get(entry.getKey().productId());
+                if (product == null || product.getId() == null) {
+                    throw new UserNotFoundException("Produit introuvable");
+                }
+                price = product.getPrice();
+            }
             CartItems cartItems = new CartItems();
-            cartItems.setOrderId(activeOrder.getId());
-            cartItems.setProductId(dto.getProductId());
-            cartItems.setPrice(product.getPrice());
-            cartItems.setQuantity(dto.getQuantity());
-            cartItems.setUserId(dto.getUserId());
-
-            cartRepository.save(cartItems);
-            activeOrder.setTotalAmount(activeOrder.getTotalAmount() + cartItems.getPrice() * dto.getQuantity());
-            activeOrder.setAmount(activeOrder.getAmount() + cartItems.getPrice() * dto.getQuantity());}
+            cartItems.setOrderId(activeOrderId);
+            cartItems.setProductId(entry.getKey().productId());
+            cartItems.setPrice(price);
+            cartItems.setQuantity(entry.getValue());
+            cartItems.setUserId(entry.getKey().userId());
+            lines.add(cartItems);
+            delta += price * entry.getValue();
         }
 
-        return this.sendUpdateOrders(activeOrder);
+        //les quantités ne sont modifiées qu'après la variation : une commande refusée ne laisse rien à écrire
+        return this.applyThenWrite(activeOrderId, delta, () -> cartRepository.upsertLines(lines));
     }
 
-    public ResponseEntity<?> sendUpdateOrders(Order order){
-        ResponseEntity<Void> resp = this.orderRestClient.orderSave("Bearer " + this.tokenTechnicService.getTechnicalToken(), order);
+    private record CartLineKey(Long productId, Long userId) {
+    }
+
+    //seule la variation est envoyée, orders l'applique de façon atomique
+    public ResponseEntity<?> sendUpdateOrders(Long orderId, long delta){
+        ResponseEntity<Void> resp = this.orderRestClient.orderAmount("Bearer " + this.tokenTechnicService.getTechnicalToken(), new OrderAmountDto(orderId, delta));
         if (resp.getStatusCode().is2xxSuccessful()) {
             return new ResponseEntity<>(Map.of("message", "Produit ajouté dans le panier "), HttpStatus.OK);
         } else {
@@ -92,7 +164,12 @@ public class CartService {
         if (activeOrder.getId() == null) {
             throw new UserNotFoundException("Service indisponible");
         }
-        List<CartItemsDto> dtos = cartRepository.findByOrderId(activeOrder.getId()).stream()
+        //les montants sont nécessaires ici : on profite de l'appel pour alimenter le cache
+        activeOrderCache.put(userId, activeOrder.getId());
+        List<CartItems> items = cartRepository.findByOrderId(activeOrder.getId());
+        Map<Long, Product> products = this.findProductsByItems(items);
+
+        List<CartItemsDto> dtos = items.stream()
                 .map(item -> {
                     CartItemsDto dto = new CartItemsDto();
                     dto.setId(item.getId());
@@ -101,14 +178,14 @@ public class CartService {
                     dto.setProductId(item.getProductId());
                     dto.setOrderId(item.getOrderId());
                     dto.setUserId(item.getUserId());
-                    dto.setQrCode(item.getQrCode());
+                    dto.setTicketIssued(item.getQrPayload() != null);
 
-                    Product prod = productRestClient.findById("Bearer " + this.tokenTechnicService.getTechnicalToken(), dto.getProductId());
-                    if (prod.getId() == null) {
+                    Product prod = products.get(dto.getProductId());
+                    if (prod == null) {
                         throw new UserNotFoundException("Service indisponible");
                     }
                     dto.setProductName(prod.getName());
-                    dto.setReturnedImg(prod.getImg());
+                    dto.setImageUrl(prod.getImageUrl());
 
                     return dto;
                 })
@@ -127,92 +204,86 @@ public class CartService {
     }
 
     public ResponseEntity<?> addProductToCart(AddProductInCartDto addProductInCartDto) {
-        Order activeOrder = orderRestClient.findByUserIdAndOrderStatus("Bearer " + this.tokenTechnicService.getTechnicalToken(), Map.of("userId", String.valueOf(addProductInCartDto.getUserId()), "orderStatus", String.valueOf(OrderStatus.EnCours)));
-        if (activeOrder.getId() == null) {
-            throw new UserNotFoundException("Service indisponible order");
-        }
+        String token = "Bearer " + this.tokenTechnicService.getTechnicalToken();
+        return withActiveOrder(token, addProductInCartDto.getUserId(), activeOrderId -> this.addProductToCart(activeOrderId, addProductInCartDto));
+    }
 
+    private ResponseEntity<?> addProductToCart(Long activeOrderId, AddProductInCartDto addProductInCartDto) {
         Optional<CartItems> optionalCartItems = cartRepository.findByProductIdAndOrderIdAndUserId
-                (addProductInCartDto.getProductId(), activeOrder.getId(), addProductInCartDto.getUserId());
-
-        if (optionalCartItems.isPresent() && Objects.equals(addProductInCartDto.getOption(), "add")) {
-
-            CartItems cartItems = cartRepository.findById(optionalCartItems.get().getId()).orElseThrow();
-            cartItems.setQuantity(cartItems.getQuantity() + addProductInCartDto.getQuantity());
-            cartRepository.save(cartItems);
-
-            activeOrder.setTotalAmount(activeOrder.getTotalAmount() + cartItems.getPrice() * addProductInCartDto.getQuantity());
-            activeOrder.setAmount(activeOrder.getAmount() + cartItems.getPrice() * addProductInCartDto.getQuantity());
-
-            return this.sendUpdateOrders(activeOrder);
-
+                (addProductInCartDto.getProductId(), activeOrderId, addProductInCartDto.getUserId());
+
+        boolean add = Objects.equals(addProductInCartDto.getOption(), "add");
+        if (optionalCartItems.isPresent() && (add || Objects.equals(addProductInCartDto.getOption(), "remove"))) {
+            CartItems cartItems = optionalCartItems.get();
+            long delta = add ? addProductInCartDto.getQuantity() : -addProductInCartDto.getQuantity();
+
+            //ligne existante : son prix enregistré donne la variation, incrément atomique entre deux onglets
+            return this.applyThenWrite(activeOrderId, cartItems.getPrice() * delta, () -> {
+                cartRepository.incrementQuantity(cartItems.getId(), delta);
+                cartItems.setQuantity(cartItems.getQuantity() + delta);
+            });
         }
-        if (optionalCartItems.isPresent() && Objects.equals(addProductInCartDto.getOption(), "remove")) {
-            CartItems cartItems = cartRepository.findById(optionalCartItems.get().getId()).orElseThrow();
-            cartItems.setQuantity(cartItems.getQuantity() - addProductInCartDto.getQuantity());
-            cartRepository.save(cartItems);
-
-            activeOrder.setTotalAmount(activeOrder.getTotalAmount() - cartItems.getPrice() * addProductInCartDto.getQuantity());
-            activeOrder.setAmount(activeOrder.getAmount() - cartItems.getPrice() * addProductInCartDto.getQuantity());
-
-            return this.sendUpdateOrders(activeOrder);
-
-        } else {
 
-            Product optionalProduct = productRestClient.findById("Bearer " + this.tokenTechnicService.getTechnicalToken(), addProductInCartDto.getProductId());
-            if (optionalProduct.getId() == null) {
-                throw new UserNotFoundException("Produit introuvable");
-            }
-
-            CartItems cartItems = new CartItems();
-            cartItems.setProductId(optionalProduct.getId());
-            cartItems.setOrderId(activeOrder.getId());
-            cartItems.setUserId(addProductInCartDto.getUserId());
-            cartItems.setPrice(optionalProduct.getPrice());
-            cartItems.setQuantity(addProductInCartDto.getQuantity());
-
-            cartRepository.save(cartItems);
-
-            activeOrder.setTotalAmount(activeOrder.getTotalAmount() + cartItems.getPrice() * addProductInCartDto.getQuantity());
-            activeOrder.setAmount(activeOrder.getAmount() + cartItems.getPrice() * addProductInCartDto.getQuantity());
-
-            return this.sendUpdateOrders(activeOrder);
+        Product optionalProduct = productRestClient.findById("Bearer " + this.tokenTechnicService.getTechnicalToken(), addProductInCartDto.getProductId());
+        if (optionalProduct.getId() == null) {
+            throw new UserNotFoundException("Produit introuvable");
         }
+
+        //nouvelle ligne au prix du produit ; l'upsert cumule si une requête concurrente vient de la créer
+        return this.applyThenWrite(activeOrderId, optionalProduct.getPrice() * addProductInCartDto.getQuantity(),
+                () -> cartRepository.upsertQuantity(activeOrderId, optionalProduct.getId(), addProductInCartDto.getUserId(),
+                        optionalProduct.getPrice(), addProductInCartDto.getQuantity()));
     }
 
     @Transactional
     public boolean deleteCartById(Long cartId) {
         Optional<CartItems> cartItems = cartRepository.findById(cartId);
         if (cartItems.isPresent()) {
-            Long orderId = cartItems.get().getOrderId();
-
-            Order activeOrder = orderRestClient.findById("Bearer " + this.tokenTechnicService.getTechnicalToken(), orderId);
             Long valueCartItems = cartItems.get().getQuantity() * cartItems.get().getPrice();
 
-            activeOrder.setTotalAmount(activeOrder.getTotalAmount() - valueCartItems);
-            activeOrder.setAmount(activeOrder.getAmount() - valueCartItems);
-
-            this.sendUpdateOrders(activeOrder);
+            //un seul appel : la ligne connaît déjà sa commande
+            this.sendUpdateOrders(cartItems.get().getOrderId(), -valueCartItems);
             cartRepository.deleteById(cartId);
             return true;
         }
         return false;
     }
 
-    public CartItemsDto getQrCodeById(Long id) {
-        CartItems cartItems = cartRepository.findById(id).get();
+    //PNG rendu à la demande depuis le contenu du billet
+    //requesterId null : admin ; sinon le billet doit appartenir au demandeur
+    public CartItemsDto getQrCodeById(Long id, Integer size, Long requesterId) {
+        CartItems cartItems = this.findOwnedTicket(id, requesterId);
         CartItemsDto cartItemsDto = new CartItemsDto();
-        cartItemsDto.setQrCode(cartItems.getQrCode());
+        cartItemsDto.setId(cartItems.getId());
+        cartItemsDto.setTicketIssued(cartItems.getQrPayload() != null);
+        cartItemsDto.setQrCode(this.qrCodeRenderer.render(cartItems.getQrPayload(), size, "png"));
         return cartItemsDto;
     }
 
+    public byte[] getQrCodeImage(Long id, Integer size, String format, Long requesterId) {
+        CartItems cartItems = this.findOwnedTicket(id, requesterId);
+        return this.qrCodeRenderer.render(cartItems.getQrPayload(), size, format);
+    }
+
+    //billet d'un autre utilisateur : même réponse qu'un billet inexistant
+    private CartItems findOwnedTicket(Long id, Long requesterId) {
+        CartItems cartItems = cartRepository.findById(id).orElseThrow(() -> new UserNotFoundException("Billet introuvable"));
+        if (requesterId != null && !requesterId.equals(cartItems.getUserId())) {
+            throw new UserNotFoundException("Billet introuvable");
+        }
+        return cartItems;
+    }
+
     public OrderDto getCartByOrderId(Long orderId) {
         Order order = orderRestClient.findById("Bearer " + this.tokenTechnicService.getTechnicalToken(), orderId);
         if (order.getId() == null) {
             throw new UserNotFoundException("Service indisponible");
         }
 
-        List<CartItemsDto> dtos = cartRepository.findByOrderId(orderId).stream()
+        List<CartItems> items = cartRepository.findByOrderId(orderId);
+        Map<Long, Product> products = this.findProductsByItems(items);
+
+        List<CartItemsDto> dtos = items.stream()
                 .map(item -> {
                     CartItemsDto dto = new CartItemsDto();
                     dto.setId(item.getId());
@@ -221,14 +292,14 @@ public class CartService {
                     dto.setProductId(item.getProductId());
                     dto.setOrderId(item.getOrderId());
                     dto.setUserId(item.getUserId());
-                    dto.setQrCode(item.getQrCode());
+                    dto.setTicketIssued(item.getQrPayload() != null);
 
-                    Product prod = productRestClient.findById("Bearer " + this.tokenTechnicService.getTechnicalToken(), dto.getProductId());
-                    if (prod.getId() == null) {
+                    Product prod = products.get(dto.getProductId());
+                    if (prod == null) {
                         throw new UserNotFoundException("Service indisponible");
                     }
                     dto.setProductName(prod.getName());
-                    dto.setReturnedImg(prod.getImg());
+                    dto.setImageUrl(prod.getImageUrl());
 
                     return dto;
                 })
@@ -242,8 +313,22 @@ public class CartService {
         return orderDto;
     }
 
-    public List<CartItems> findByQrCodeIsNotNull() {
-        return cartRepository.findByQrCodeIsNotNull();
+    //on récupère tous les produits du panier en une seule requête
+    private Map<Long, Product> findProductsByItems(List<CartItems> items) {
+        List<Long> productIds = items.stream().map(CartItems::getProductId).distinct().toList();
+        if (productIds.isEmpty()) {
+            return Map.of();
+        }
+        return productRestClient.findListById("Bearer " + this.tokenTechnicService.getTechnicalToken(), productIds).stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity(), (a, b) -> a));
+    }
+
+    public List<SoldItemDto> findSoldItems(int page, int size) {
+        return cartRepository.findSoldItems(PageRequest.of(page, size));
+    }
+
+    public List<SoldItemDto> findSoldItemsByOrderId(Long orderId) {
+        return cartRepository.findSoldItemsByOrderId(orderId);
     }
 
 }
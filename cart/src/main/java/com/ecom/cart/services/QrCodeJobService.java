@@ -0,0 +1,149 @@
+package com.ecom.cart.services;
+
+import com.ecom.cart.dto.QrCodeJobDto;
+import com.ecom.cart.entity.QrCodeJob;
+import com.ecom.cart.enums.QrCodeJobStatus;
+import com.ecom.cart.repository.QrCodeJobRepository;
+import com.ecom.cart.response.UserNotFoundException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+@Slf4j
+@Service
+public class QrCodeJobService {
+
+    private final QrCodeJobRepository qrCodeJobRepository;
+    private final QrCodeService qrCodeService;
+    private final ThreadPoolTaskExecutor qrCodeJobExecutor;
+    private final TicketKeyCache ticketKeyCache;
+
+    @Value("${qrcode.jobs.max-attempts:5}")
+    private int maxAttempts = 5;
+    @Value("${qrcode.jobs.batch-size:20}")
+    private int batchSize = 20;
+    @Value("${qrcode.jobs.backoff-seconds:5}")
+    private long backoffSeconds = 5;
+    @Value("${qrcode.jobs.stale-after-seconds:300}")
+    private long staleAfterSeconds = 300;
+
+    public QrCodeJobService(QrCodeJobRepository qrCodeJobRepository, QrCodeService qrCodeService,
+                            @Qualifier("qrCodeJobExecutor") ThreadPoolTaskExecutor qrCodeJobExecutor, TicketKeyCache ticketKeyCache) {
+        this.qrCodeJobRepository = qrCodeJobRepository;
+        this.qrCodeService = qrCodeService;
+        this.qrCodeJobExecutor = qrCodeJobExecutor;
+        this.ticketKeyCache = ticketKeyCache;
+    }
+
+    //on enregistre la demande de billets, la génération se fait en arrière-plan
+    public QrCodeJobDto enqueue(Long userId, Long orderId) {
+        //la commande vient de recevoir une nouvelle clé secrète
+        this.ticketKeyCache.invalidate(userId, orderId);
+        QrCodeJob job = this.qrCodeJobRepository.findByOrderId(orderId).orElse(null);
+        if (job == null) {
+            Instant now = Instant.now();
+            try {
+                job = this.qrCodeJobRepository.save(QrCodeJob.builder()
+                        .userId(userId)
+                        .orderId(orderId)
+                        .status(QrCodeJobStatus.EnAttente)
+                        .attempts(0)
+                        .nextAttemptAt(now)
+                        .createdAt(now)
+                        .build());
+            } catch (DataIntegrityViolationException e) {
+                //demande déjà enregistrée par un appel concurrent
+                job = this.qrCodeJobRepository.findByOrderId(orderId).orElseThrow(() -> e);
+            }
+        } else if (job.getStatus() == QrCodeJobStatus.Echec) {
+            //on relance un job abandonné, sans écraser un changement d'état concurrent
+            Instant now = Instant.now();
+            if (this.qrCodeJobRepository.retryFailed(job.getId(), QrCodeJobStatus.Echec, QrCodeJobStatus.EnAttente, now) == 1) {
+                job.setStatus(QrCodeJobStatus.EnAttente);
+                job.setAttempts(0);
+                job.setNextAttemptAt(now);
+            } else {
+                job = this.qrCodeJobRepository.findByOrderId(orderId).orElse(job);
+            }
+        }
+        return toDto(job);
+    }
+
+    public QrCodeJobDto getStatus(Long orderId) {
+        return this.getStatus(orderId, null);
+    }
+
+    //requesterId null : appel technique ou admin ; sinon seul le propriétaire de la commande voit le job
+    public QrCodeJobDto getStatus(Long orderId, Long requesterId) {
+        return this.qrCodeJobRepository.findByOrderId(orderId)
+                .filter(job -> requesterId == null || requesterId.equals(job.getUserId()))
+                .map(this::toDto)
+                .orElseThrow(() -> new UserNotFoundException("Aucune génération de billets pour cette commande"));
+    }
+
+    @Scheduled(fixedDelayString = "${qrcode.jobs.poll-delay:1000}")
+    public void dispatch() {
+        Instant now = Instant.now();
+        //on remet en file les jobs dont le worker a disparu
+        this.qrCodeJobRepository.requeueStale(QrCodeJobStatus.EnCours, QrCodeJobStatus.EnAttente,
+                now.minusSeconds(this.staleAfterSeconds), now);
+
+        List<Long> ids = this.qrCodeJobRepository.findReadyJobIds(QrCodeJobStatus.EnAttente, now, PageRequest.of(0, this.batchSize));
+        for (Long id : ids) {
+            if (this.qrCodeJobRepository.claim(id, QrCodeJobStatus.EnAttente, QrCodeJobStatus.EnCours, now) == 0) {
+                continue;
+            }
+            try {
+                this.qrCodeJobExecutor.execute(() -> process(id));
+            } catch (TaskRejectedException e) {
+                //pool saturé : on rend le job pour le prochain passage
+                this.qrCodeJobRepository.release(id, QrCodeJobStatus.EnCours, QrCodeJobStatus.EnAttente, now);
+                break;
+            }
+        }
+    }
+
+    public void process(Long jobId) {
+        QrCodeJob job = this.qrCodeJobRepository.findById(jobId).orElse(null);
+        if (job == null) {
+            return;
+        }
+        try {
+            this.qrCodeService.generateQrCode(job.getUserId(), job.getOrderId());
+            job.setStatus(QrCodeJobStatus.Termine);
+            job.setLastError(null);
+            job.setFinishedAt(Instant.now());
+        } catch (RuntimeException e) {
+            log.warn("Génération des billets échouée pour la commande {} (tentative {}) : {}", job.getOrderId(), job.getAttempts(), e.getMessage());
+            String error = e.getMessage() == null ? e.getClass().getSimpleName() : e.getMessage();
+            job.setLastError(error.length() > 255 ? error.substring(0, 255) : error);
+            if (job.getAttempts() >= this.maxAttempts) {
+                job.setStatus(QrCodeJobStatus.Echec);
+                job.setFinishedAt(Instant.now());
+            } else {
+                //nouvel essai avec un délai exponentiel
+                job.setStatus(QrCodeJobStatus.EnAttente);
+                job.setNextAttemptAt(Instant.now().plus(Duration.ofSeconds(this.backoffSeconds << Math.min(job.getAttempts() - 1, 10))));
+            }
+        }
+        //job remis en file puis repris par un autre worker entre-temps : on ne touche pas à son état
+        if (this.qrCodeJobRepository.finish(job.getId(), QrCodeJobStatus.EnCours, job.getStartedAt(), job.getStatus(),
+                job.getLastError(), job.getNextAttemptAt(), job.getFinishedAt()) == 0) {
+            log.warn("Job de billets {} repris par un autre worker, résultat ignoré", job.getId());
+        }
+    }
+
+    private QrCodeJobDto toDto(QrCodeJob job) {
+        return new QrCodeJobDto(job.getOrderId(), job.getStatus(), job.getAttempts());
+    }
+}
@@ -0,0 +1,114 @@
+package com.ecom.cart.services;
+
+import com.ecom.cart.response.UserNotFoundException;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.WriterException;
+import com.google.zxing.client.j2se.MatrixToImageWriter;
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.qrcode.QRCodeWriter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Rendu à la demande des QR codes à partir du contenu stocké, avec un cache LRU borné en octets.
+ */
+@Component
+public class QrCodeRenderer {
+
+    public static final int DEFAULT_SIZE = 400;
+    private static final int MIN_SIZE = 100;
+    private static final int MAX_SIZE = 1000;
+
+    private final Cache<ImageKey, byte[]> cache;
+
+    public QrCodeRenderer(@Value("${qrcode.image-cache.max-bytes:33554432}") long maxBytes,
+                          MeterRegistry meterRegistry) {
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxBytes)
+                .weigher((ImageKey key, byte[] image) -> image.length)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, this.cache, "qrCodeImages");
+    }
+
+    public byte[] render(String payload, Integer size, String format) {
+        if (payload == null) {
+            throw new UserNotFoundException("Billet en cours de génération");
+        }
+        ImageKey key = new ImageKey(payload, normalizeSize(size), Format.of(format));
+        return this.cache.get(key, this::draw);
+    }
+
+    public static MediaType mediaType(String format) {
+        return Format.of(format) == Format.SVG ? MediaType.valueOf("image/svg+xml") : MediaType.IMAGE_PNG;
+    }
+
+    private static int normalizeSize(Integer size) {
+        if (size == null) {
+            return DEFAULT_SIZE;
+        }
+        return Math.max(MIN_SIZE, Math.min(MAX_SIZE, size));
+    }
+
+    private byte[] draw(ImageKey key) {
+        try {
+            if (key.format() == Format.SVG) {
+                //matrice minimale (1 unité par module), mise à l'échelle par le navigateur
+                return toSvg(new QRCodeWriter().encode(key.payload(), BarcodeFormat.QR_CODE, 0, 0), key.size());
+            }
+            BitMatrix bitMatrix = new QRCodeWriter().encode(key.payload(), BarcodeFormat.QR_CODE, key.size(), key.size());
+            try (ByteArrayOutputStream baos = new ByteArrayOutputStream()) {
+                MatrixToImageWriter.writeToStream(bitMatrix, "PNG", baos);
+                return baos.toByteArray();
+            }
+        } catch (WriterException | IOException e) {
+            throw new RuntimeException("Erreur lors de la génération du QR code", e);
+        }
+    }
+
+    //un segment horizontal par suite de modules noirs
+    private static byte[] toSvg(BitMatrix bitMatrix, int size) {
+        int width = bitMatrix.getWidth();
+        int height = bitMatrix.getHeight();
+        StringBuilder path = new StringBuilder();
+        for (int y = 0; y < height; y++) {
+            int x = 0;
+            while (x < width) {
+                if (!bitMatrix.get(x, y)) {
+                    x++;
+                    continue;
+                }
+                int start = x;
+                while (x < width && bitMatrix.get(x, y)) {
+                    x++;
+                }
+                path.append('M').append(start).append(' ').append(y).append('h').append(x - start).append("v1h-").append(x - start).append('z');
+            }
+        }
+        String svg = "<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"" + size + "\" height=\"" + size
+                + "\" viewBox=\"0 0 " + width + " " + height + "\" shape-rendering=\"crispEdges\">"
+                + "<rect width=\"100%\" height=\"100%\" fill=\"#fff\"/>"
+                + "<path fill=\"#000\" d=\"" + path + "\"/></svg>";
+        return svg.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private enum Format {
+        PNG, SVG;
+
+        static Format of(String format) {
+            return "svg".equalsIgnoreCase(format) ? SVG : PNG;
+        }
+    }
+
+    private record ImageKey(String payload, int size, Format format) {
+    }
+}
@@ -5,6 +5,7 @@ import com.ecom.cart.clients.ProductRestClient;
 import com.ecom.cart.clients.UserRestClient;
 import com.ecom.cart.dto.DecryptDto;
 import com.ecom.cart.dto.QrCodeDto;
+import com.ecom.cart.dto.SignedTicketDto;
 import com.ecom.cart.entity.CartItems;
 import com.ecom.cart.model.Order;
 import com.ecom.cart.model.Product;
@@ -14,11 +15,9 @@ import com.ecom.cart.response.UserNotFoundException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.zxing.*;
 import com.google.zxing.client.j2se.BufferedImageLuminanceSource;
-import com.google.zxing.client.j2se.MatrixToImageWriter;
-import com.google.zxing.common.BitMatrix;
 import com.google.zxing.common.HybridBinarizer;
-import com.google.zxing.qrcode.QRCodeWriter;
-import jakarta.transaction.Transactional;
+import io.micrometer.core.annotation.Timed;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
@@ -28,7 +27,6 @@ import javax.crypto.spec.IvParameterSpec;
 import javax.crypto.spec.SecretKeySpec;
 import javax.imageio.ImageIO;
 import java.awt.image.BufferedImage;
-import java.io.ByteArrayOutputStream;
 import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
@@ -38,74 +36,122 @@ import java.util.Arrays;
 import java.util.Base64;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
+//pas de transaction au niveau de la classe : appels Feign, décodage et rendu se font sans connexion base
 @Service
-@Transactional
 public class QrCodeService {
 
-    private static final String TEXT_PREFIX = "Billet valide pour le client : ";
+    static final String TEXT_PREFIX = "Billet valide pour le client : ";
     private final OrderRestClient orderRestClient;
     private final UserRestClient userRestClient;
     private final CartRepository cartRepository;
     private final TokenTechnicService tokenTechnicService;
     private final ProductRestClient productRestClient;
+    private final Executor qrCodeRenderExecutor;
+    private final TicketKeyCache ticketKeyCache;
+    private final TicketSigningService ticketSigningService;
     private final ObjectMapper objectMapper = new ObjectMapper();
 
-    public QrCodeService(OrderRestClient orderRestClient, UserRestClient userRestClient, CartRepository cartRepository, TokenTechnicService tokenTechnicService, ProductRestClient productRestClient) {
+    public QrCodeService(OrderRestClient orderRestClient, UserRestClient userRestClient, CartRepository cartRepository, TokenTechnicService tokenTechnicService, ProductRestClient productRestClient,
+                         @Qualifier("qrCodeRenderExecutor") Executor qrCodeRenderExecutor, TicketKeyCache ticketKeyCache,
+                         TicketSigningService ticketSigningService) {
         this.orderRestClient = orderRestClient;
         this.userRestClient = userRestClient;
         this.cartRepository = cartRepository;
         this.tokenTechnicService = tokenTechnicService;
         this.productRestClient = productRestClient;
+        this.qrCodeRenderExecutor = qrCodeRenderExecutor;
+        this.ticketKeyCache = ticketKeyCache;
+        this.ticketSigningService = ticketSigningService;
     }
 
+    @Timed(value = "cart.qrcode.generate", histogram = true)
     public void generateQrCode(Long userId, Long orderId) {
-        User user = this.userRestClient.findUserById("Bearer " + this.tokenTechnicService.getTechnicalToken(), userId);
+        String token = "Bearer " + this.tokenTechnicService.getTechnicalToken();
+        User user = this.userRestClient.findUserById(token, userId);
         if (user.getId() == null) {
             throw new UserNotFoundException("Service indisponible");
         }
 
         List<CartItems> cartItems = cartRepository.findByOrderId(orderId);
+        if (cartItems.isEmpty()) {
+            return;
+        }
 
-        cartItems.forEach(item -> {
-            Product product = this.productRestClient.findById("Bearer " + this.tokenTechnicService.getTechnicalToken(), item.getProductId());
-            if (product.getId() == null) {
-                throw new UserNotFoundException("Service indisponible");
-            }
+        //clé dérivée une seule fois pour toute la commande
+        Order order = this.orderRestClient.findById(token, orderId);
+        SecretKeySpec secretKey;
+        try {
+            secretKey = this.deriveKey(user, order);
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException("Erreur lors de la génération du QR code", e);
+        }
+        //la clé de la commande vient d'être émise : elle remplace toute entrée précédente
+        this.ticketKeyCache.put(userId, orderId, secretKey);
+
+        //produits récupérés en un seul appel
+        List<Long> productIds = cartItems.stream().map(CartItems::getProductId).distinct().toList();
+        Map<Long, Product> products = this.productRestClient.findListById(token, productIds).stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity(), (a, b) -> a));
+        if (!products.keySet().containsAll(productIds)) {
+            throw new UserNotFoundException("Service indisponible");
+        }
 
-            try {
-                // Préparer les données du QR code
-                Map<String, String> qrCodeDataMap = Map.of(
-                        "commande", item.getOrderId().toString(),
-                        "client", user.getId().toString(),
-                        "Nom", user.getName(),
-                        "Type de billet", product.getName(),
-                        "Nombre de place", item.getQuantity().toString(),
-                        "Key", this.encryptKey(userId, orderId, user.getName()) // appel réel
-                );
-
-                String jsonString = objectMapper.writeValueAsString(qrCodeDataMap);
-
-                // Générer le QR code
-                QRCodeWriter qrCodeWriter = new QRCodeWriter();
-                BitMatrix bitMatrix = qrCodeWriter.encode(jsonString, BarcodeFormat.QR_CODE, 400, 400);
-
-                try (ByteArrayOutputStream baos = new ByteArrayOutputStream()) {
-                    MatrixToImageWriter.writeToStream(bitMatrix, "PNG", baos);
-                    item.setQrCode(baos.toByteArray());
-                }
-
-                // Sauvegarde
-                cartRepository.save(item);
-
-            } catch (Exception e) {
-                throw new RuntimeException("Erreur lors de la génération du QR code", e);
+        //chiffrement en parallèle, un item par tâche
+        List<CompletableFuture<Void>> tasks = cartItems.stream()
+                .map(item -> CompletableFuture.runAsync(
+                        () -> this.buildPayload(item, user, products.get(item.getProductId()), secretKey), this.qrCodeRenderExecutor))
+                .toList();
+        try {
+            CompletableFuture.allOf(tasks.toArray(new CompletableFuture[0])).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
             }
-        });
+            throw e;
+        }
+
+        // Sauvegarde : seule écriture, dans la transaction courte de saveAll
+        cartRepository.saveAll(cartItems);
+    }
+
+    private void buildPayload(CartItems item, User user, Product product, SecretKeySpec secretKey) {
+        try {
+            // Préparer les données du QR code
+            Map<String, String> qrCodeDataMap = Map.of(
+                    "commande", item.getOrderId().toString(),
+                    "client", user.getId().toString(),
+                    "Nom", user.getName(),
+                    "Type de billet", product.getName(),
+                    "Nombre de place", item.getQuantity().toString(),
+                    "Key", this.encrypt(secretKey, user.getName()),
+                    "Billet", this.ticketSigningService.sign(SignedTicketDto.builder()
+                            .itemId(item.getId())
+                            .orderId(item.getOrderId())
+                            .userId(user.getId())
+                            .name(user.getName())
+                            .type(product.getName())
+                            .quantity(item.getQuantity())
+                            .build())
+            );
+
+            //seul le contenu est stocké, l'image est rendue à la demande
+            item.setQrPayload(objectMapper.writeValueAsString(qrCodeDataMap));
+        } catch (Exception e) {
+            throw new RuntimeException("Erreur lors de la génération du QR code", e);
+        }
     }
 
     public String encryptKey(Long userId, Long orderId, String text) throws Exception {
-        SecretKeySpec secretKey = this.getKeyFormUserAndOrder(userId,orderId);
+        return this.encrypt(this.getKeyFormUserAndOrder(userId, orderId), text);
+    }
+
+    private String encrypt(SecretKeySpec secretKey, String text) throws Exception {
         Cipher cipher = Cipher.getInstance("AES/CBC/PKCS5Padding");
 
         // IV aléatoire 16 octets
@@ -129,6 +175,16 @@ public class QrCodeService {
 
     //Récupérer, déchiffrer et concaténer les 2 clés
     public SecretKeySpec getKeyFormUserAndOrder(Long userId, Long orderId) throws NoSuchAlgorithmException {
+        SecretKeySpec cached = this.ticketKeyCache.get(userId, orderId);
+        if (cached != null) {
+            return cached;
+        }
+        SecretKeySpec secretKey = this.loadKey(userId, orderId);
+        this.ticketKeyCache.put(userId, orderId, secretKey);
+        return secretKey;
+    }
+
+    private SecretKeySpec loadKey(Long userId, Long orderId) throws NoSuchAlgorithmException {
         //on récupère les clés
         User user = userRestClient.findUserById("Bearer " + this.tokenTechnicService.getTechnicalToken(), userId);
         if (user == null || user.getId() == null) {
@@ -136,6 +192,10 @@ public class QrCodeService {
         }
 
         Order order = orderRestClient.findById("Bearer " + this.tokenTechnicService.getTechnicalToken(), orderId);
+        return this.deriveKey(user, order);
+    }
+
+    private SecretKeySpec deriveKey(User user, Order order) throws NoSuchAlgorithmException {
         if (order == null || order.getId() == null) {
             throw new UserNotFoundException("N° de commande introuvable ou service indisponible");
         }
@@ -197,6 +257,7 @@ public class QrCodeService {
             qrCodeDto.setQuantity(dataMap.getOrDefault("Nombre de place", ""));
             qrCodeDto.setCommande(dataMap.getOrDefault("commande", ""));
             qrCodeDto.setClient(dataMap.getOrDefault("client", ""));
+            qrCodeDto.setTicket(dataMap.get("Billet"));
 
             return ResponseEntity.ok(qrCodeDto);
 
@@ -222,18 +283,35 @@ public class QrCodeService {
         byte[] iv = Arrays.copyOfRange(ivAndCiphertext, 0, 16);
         byte[] ciphertext = Arrays.copyOfRange(ivAndCiphertext, 16, ivAndCiphertext.length);
         // Déchiffrement AES
-        try{
-            Cipher cipher = Cipher.getInstance("AES/CBC/PKCS5Padding");
-            cipher.init(Cipher.DECRYPT_MODE, secretKey, new IvParameterSpec(iv));
-            byte[] decryptedBytes = cipher.doFinal(ciphertext);
-            String result = new String(decryptedBytes, StandardCharsets.UTF_8);
-            DecryptDto decryptDto = new DecryptDto();
-            decryptDto.setOutputCode(result);
-
-            return ResponseEntity.ok(decryptDto);
-        }catch (Exception e) {
-            throw new UserNotFoundException("Code de sécurité invalide");
+        String result;
+        try {
+            result = this.decrypt(secretKey, iv, ciphertext);
+        } catch (Exception e) {
+            //la clé en cache peut être périmée : on la dérive à nouveau, au plus une fois par fenêtre
+            if (!this.ticketKeyCache.tryRefresh(userId, orderId)) {
+                throw new UserNotFoundException("Code de sécurité invalide");
+            }
+            SecretKeySpec freshKey = this.getKeyFormUserAndOrder(userId, orderId);
+            if (Arrays.equals(freshKey.getEncoded(), secretKey.getEncoded())) {
+                throw new UserNotFoundException("Code de sécurité invalide");
+            }
+            try {
+                result = this.decrypt(freshKey, iv, ciphertext);
+            } catch (Exception retry) {
+                throw new UserNotFoundException("Code de sécurité invalide");
+            }
         }
+        DecryptDto decryptDto = new DecryptDto();
+        decryptDto.setOutputCode(result);
+
+        return ResponseEntity.ok(decryptDto);
+    }
+
+    private String decrypt(SecretKeySpec secretKey, byte[] iv, byte[] ciphertext) throws Exception {
+        Cipher cipher = Cipher.getInstance("AES/CBC/PKCS5Padding");
+        cipher.init(Cipher.DECRYPT_MODE, secretKey, new IvParameterSpec(iv));
+        byte[] decryptedBytes = cipher.doFinal(ciphertext);
+        return new String(decryptedBytes, StandardCharsets.UTF_8);
     }
 
 }
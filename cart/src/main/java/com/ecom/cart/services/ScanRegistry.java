@@ -0,0 +1,207 @@
+package com.ecom.cart.services;
+
+import com.ecom.cart.entity.TicketScan;
+import com.ecom.cart.repository.TicketScanRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Registre des billets déjà scannés : le premier scan gagne, les suivants sont signalés comme doublons.
+ * La clé unique de ticket_scan arbitre entre les instances ; l'ensemble en mémoire évite l'aller-retour
+ * pour les billets déjà connus. Base indisponible : le scan est accepté, ajouté (avec fsync) à un journal
+ * local puis écrit en base plus tard par lots ; le journal est rejoué au redémarrage et vidé une fois tout écrit.
+ */
+@Slf4j
+@Component
+public class ScanRegistry {
+
+    private static final int RECOVERY_PAGE_SIZE = 5000;
+
+    private final TicketScanRepository ticketScanRepository;
+    private final Set<String> scanned = ConcurrentHashMap.newKeySet();
+    private final Queue<TicketScan> pending = new ConcurrentLinkedQueue<>();
+    private final Path journal;
+    private final Object journalLock = new Object();
+    private final Counter firstScans;
+    private final Counter duplicateScans;
+    private final Counter admittedDuplicates;
+
+    @Value("${scan.registry.flush-batch:500}")
+    private int flushBatch = 500;
+
+    public ScanRegistry(TicketScanRepository ticketScanRepository, MeterRegistry meterRegistry,
+                        @Value("${scan.registry.journal:data/scan-journal.log}") Path journal) {
+        this.ticketScanRepository = ticketScanRepository;
+        this.journal = journal;
+        this.firstScans = Counter.builder("tickets.scans").tag("result", "first").register(meterRegistry);
+        this.duplicateScans = Counter.builder("tickets.scans").tag("result", "duplicate").register(meterRegistry);
+        //doublon accepté par deux instances pendant une indisponibilité de la base
+        this.admittedDuplicates = Counter.builder("tickets.scans.admitted-duplicates").register(meterRegistry);
+        meterRegistry.gauge("tickets.scans.pending", this.pending, Queue::size);
+    }
+
+    //true si c'est le premier scan du billet, toutes entrées confondues
+    public boolean register(String ticketKey) {
+        if (!this.scanned.add(ticketKey)) {
+            this.duplicateScans.increment();
+            return false;
+        }
+        TicketScan scan = new TicketScan(null, ticketKey, Instant.now());
+        try {
+            this.ticketScanRepository.saveAndFlush(scan);
+        } catch (DataIntegrityViolationException e) {
+            //déjà scanné à une entrée servie par une autre instance
+            this.duplicateScans.increment();
+            return false;
+        } catch (RuntimeException e) {
+            log.warn("Base indisponible, scan accepté localement et journalisé plus tard : {}", e.getMessage());
+            scan.setId(null);
+            this.appendToJournal(scan);
+        }
+        this.firstScans.increment();
+        return true;
+    }
+
+    public boolean isScanned(String ticketKey) {
+        return this.scanned.contains(ticketKey);
+    }
+
+    //reprise après redémarrage : scans en base, puis scans du journal local pas encore écrits en base
+    @EventListener(ApplicationReadyEvent.class)
+    public void recover() {
+        int page = 0;
+        List<String> keys;
+        do {
+            keys = this.ticketScanRepository.findTicketKeys(PageRequest.of(page++, RECOVERY_PAGE_SIZE));
+            this.scanned.addAll(keys);
+        } while (keys.size() == RECOVERY_PAGE_SIZE);
+        int replayed = this.replayJournal();
+        if (!this.scanned.isEmpty()) {
+            log.info("{} billet(s) déjà scanné(s) rechargé(s), dont {} depuis le journal local", this.scanned.size(), replayed);
+        }
+    }
+
+    //une ligne "date<TAB>billet" par scan accepté sans base, écrite sur disque avant de répondre
+    private void appendToJournal(TicketScan scan) {
+        synchronized (this.journalLock) {
+            try {
+                Path parent = this.journal.toAbsolutePath().getParent();
+                if (parent != null) {
+                    Files.createDirectories(parent);
+                }
+                Files.writeString(this.journal, scan.getScannedAt() + "\t" + scan.getTicketKey() + "\n", StandardCharsets.UTF_8,
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND, StandardOpenOption.DSYNC);
+            } catch (IOException e) {
+                log.error("Journal local des scans inaccessible, scan {} conservé en mémoire uniquement : {}", scan.getTicketKey(), e.getMessage());
+            }
+            this.pending.add(scan);
+        }
+    }
+
+    private int replayJournal() {
+        synchronized (this.journalLock) {
+            if (!Files.exists(this.journal)) {
+                return 0;
+            }
+            int replayed = 0;
+            try {
+                for (String line : Files.readAllLines(this.journal, StandardCharsets.UTF_8)) {
+                    String[] parts = line.split("\t", 2);
+                    //ligne tronquée par un arrêt brutal pendant l'écriture
+                    if (parts.length != 2 || parts[1].isEmpty()) {
+                        continue;
+                    }
+                    if (this.scanned.add(parts[1])) {
+                        this.pending.add(new TicketScan(null, parts[1], Instant.parse(parts[0])));
+                        replayed++;
+                    }
+                }
+            } catch (IOException | RuntimeException e) {
+                log.error("Relecture du journal local des scans impossible : {}", e.getMessage());
+            }
+            return replayed;
+        }
+    }
+
+    //tout est en base : le journal peut être vidé
+    private void compactJournal() {
+        synchronized (this.journalLock) {
+            if (!this.pending.isEmpty()) {
+                return;
+            }
+            try {
+                Files.deleteIfExists(this.journal);
+            } catch (IOException e) {
+                log.warn("Suppression du journal local des scans impossible : {}", e.getMessage());
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${scan.registry.flush-delay:500}")
+    public void flush() {
+        List<TicketScan> batch = new ArrayList<>();
+        TicketScan scan;
+        while (batch.size() < this.flushBatch && (scan = this.pending.poll()) != null) {
+            batch.add(scan);
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            this.ticketScanRepository.saveAll(batch);
+        } catch (DataIntegrityViolationException e) {
+            //scan déjà journalisé par une autre instance : on isole les doublons
+            batch.forEach(this::saveOne);
+        } catch (RuntimeException e) {
+            //base indisponible : on garde les scans pour le prochain passage, ils restent dans le journal local
+            log.warn("Journalisation de {} scan(s) reportée : {}", batch.size(), e.getMessage());
+            batch.forEach(failed -> failed.setId(null));
+            this.pending.addAll(batch);
+            return;
+        }
+        this.compactJournal();
+    }
+
+    private void saveOne(TicketScan scan) {
+        scan.setId(null);
+        try {
+            this.ticketScanRepository.save(scan);
+        } catch (DataIntegrityViolationException e) {
+            this.admittedDuplicates.increment();
+            log.warn("Billet {} accepté par plusieurs instances pendant l'indisponibilité de la base (scan du {})", scan.getTicketKey(), scan.getScannedAt());
+        }
+    }
+
+    @PreDestroy
+    public void flushAll() {
+        while (!this.pending.isEmpty()) {
+            int before = this.pending.size();
+            this.flush();
+            if (this.pending.size() >= before) {
+                break;
+            }
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.ecom.cart.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.spec.SecretKeySpec;
+import java.time.Duration;
+
+/**
+ * Clés AES dérivées par (utilisateur, commande), pour éviter deux appels Feign à chaque scan.
+ */
+@Component
+public class TicketKeyCache {
+
+    private final Cache<TicketKey, SecretKeySpec> cache;
+    //dernières re-dérivations après un échec de déchiffrement
+    private final Cache<TicketKey, Boolean> refreshes;
+
+    public TicketKeyCache(@Value("${qrcode.key-cache.maximum-size:10000}") long maximumSize,
+                          @Value("${qrcode.key-cache.ttl-seconds:3600}") long ttlSeconds,
+                          @Value("${qrcode.key-cache.refresh-window-seconds:60}") long refreshWindowSeconds,
+                          MeterRegistry meterRegistry) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+        this.refreshes = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(Duration.ofSeconds(refreshWindowSeconds))
+                .build();
+        //hits, miss et évictions exposés sous cache.* (cache=ticketKeys)
+        CaffeineCacheMetrics.monitor(meterRegistry, this.cache, "ticketKeys");
+    }
+
+    public SecretKeySpec get(Long userId, Long orderId) {
+        return this.cache.getIfPresent(new TicketKey(userId, orderId));
+    }
+
+    public void put(Long userId, Long orderId, SecretKeySpec key) {
+        this.cache.put(new TicketKey(userId, orderId), key);
+    }
+
+    public void invalidate(Long userId, Long orderId) {
+        this.cache.invalidate(new TicketKey(userId, orderId));
+    }
+
+    //une seule re-dérivation par (utilisateur, commande) dans la fenêtre : les codes invalides répétés n'appellent pas users et orders
+    public boolean tryRefresh(Long userId, Long orderId) {
+        TicketKey key = new TicketKey(userId, orderId);
+        if (this.refreshes.asMap().putIfAbsent(key, Boolean.TRUE) != null) {
+            return false;
+        }
+        this.cache.invalidate(key);
+        return true;
+    }
+
+    public double hitRate() {
+        return this.cache.stats().hitRate();
+    }
+
+    private record TicketKey(Long userId, Long orderId) {
+    }
+}
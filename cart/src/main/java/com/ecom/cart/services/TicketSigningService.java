@@ -0,0 +1,179 @@
+package com.ecom.cart.services;
+
+import com.ecom.cart.dto.SignedTicketDto;
+import com.ecom.cart.dto.TicketPublicKeyDto;
+import com.ecom.cart.entity.TicketSigningKey;
+import com.ecom.cart.repository.TicketSigningKeyRepository;
+import com.ecom.cart.response.UserNotFoundException;
+import com.ecom.cart.security.TicketKeyEncryptor;
+import com.ecom.cart.security.TicketSignatureVerifier;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@Service
+public class TicketSigningService {
+
+    private final TicketSigningKeyRepository ticketSigningKeyRepository;
+    private final TicketKeyEncryptor ticketKeyEncryptor;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private volatile KeyState keyState;
+
+    public TicketSigningService(TicketSigningKeyRepository ticketSigningKeyRepository, TicketKeyEncryptor ticketKeyEncryptor) {
+        this.ticketSigningKeyRepository = ticketSigningKeyRepository;
+        this.ticketKeyEncryptor = ticketKeyEncryptor;
+    }
+
+    //billet "kid.contenu.signature", vérifiable avec la seule clé publique
+    public String sign(SignedTicketDto claims) {
+        KeyState state = this.state();
+        claims.setKid(state.activeKid());
+        if (claims.getIssuedAt() == null) {
+            claims.setIssuedAt(Instant.now().getEpochSecond());
+        }
+        try {
+            String header = state.activeKid() + "." + Base64.getUrlEncoder().withoutPadding().encodeToString(this.objectMapper.writeValueAsBytes(claims));
+            Signature signature = Signature.getInstance(TicketSignatureVerifier.ALGORITHM);
+            signature.initSign(state.privateKey());
+            signature.update(header.getBytes(StandardCharsets.US_ASCII));
+            return header + "." + Base64.getUrlEncoder().withoutPadding().encodeToString(signature.sign());
+        } catch (Exception e) {
+            throw new RuntimeException("Erreur lors de la signature du billet", e);
+        }
+    }
+
+    public SignedTicketDto verify(String ticket) {
+        KeyState state = this.state();
+        try {
+            return state.verifier().verify(ticket);
+        } catch (UserNotFoundException e) {
+            if (!TicketSignatureVerifier.UNKNOWN_KEY.equals(e.getMessage()) || !this.activeKeyChanged(state)) {
+                throw e;
+            }
+            //clé créée par une autre instance : on recharge une fois
+            this.keyState = null;
+            return this.state().verifier().verify(ticket);
+        }
+    }
+
+    public List<TicketPublicKeyDto> publicKeys() {
+        this.state();
+        return this.ticketSigningKeyRepository.findAllByOrderByIdAsc().stream()
+                .map(key -> new TicketPublicKeyDto(key.getKid(), TicketSignatureVerifier.ALGORITHM, key.getPublicKey(), key.isActive()))
+                .toList();
+    }
+
+    //nouvelle version de clé : les billets déjà émis restent vérifiables avec les anciennes
+    @Transactional
+    public synchronized TicketPublicKeyDto rotate() {
+        List<TicketSigningKey> keys = this.ticketSigningKeyRepository.findAllByOrderByIdAsc();
+        keys.forEach(key -> key.setActive(false));
+        this.ticketSigningKeyRepository.saveAll(keys);
+        TicketSigningKey created = this.ticketSigningKeyRepository.save(this.generateKey("v" + (keys.size() + 1)));
+        this.keyState = null;
+        return new TicketPublicKeyDto(created.getKid(), TicketSignatureVerifier.ALGORITHM, created.getPublicKey(), true);
+    }
+
+    //rotation faite sur une autre instance : on recharge dès que la clé active change
+    @Scheduled(fixedDelayString = "${tickets.signing.refresh-delay:60000}")
+    public void refreshActiveKey() {
+        KeyState state = this.keyState;
+        if (state == null) {
+            return;
+        }
+        if (this.activeKeyChanged(state)) {
+            this.keyState = null;
+        }
+    }
+
+    //kid inconnu sans nouvelle clé active en base : billet forgé, pas de rechargement complet
+    private boolean activeKeyChanged(KeyState state) {
+        return this.ticketSigningKeyRepository.findFirstByActiveTrueOrderByIdDesc()
+                .filter(active -> !active.getKid().equals(state.activeKid()))
+                .isPresent();
+    }
+
+    private KeyState state() {
+        KeyState state = this.keyState;
+        if (state == null) {
+            synchronized (this) {
+                state = this.keyState;
+                if (state == null) {
+                    state = this.loadKeys();
+                    this.keyState = state;
+                }
+            }
+        }
+        return state;
+    }
+
+    private KeyState loadKeys() {
+        TicketSigningKey active = this.ticketSigningKeyRepository.findFirstByActiveTrueOrderByIdDesc()
+                .orElseGet(this::createFirstKey);
+        try {
+            Map<String, PublicKey> publicKeys = new HashMap<>();
+            for (TicketSigningKey key : this.ticketSigningKeyRepository.findAllByOrderByIdAsc()) {
+                publicKeys.put(key.getKid(), TicketSignatureVerifier.decodePublicKey(key.getPublicKey()));
+                this.encryptLegacyKey(key);
+            }
+            publicKeys.putIfAbsent(active.getKid(), TicketSignatureVerifier.decodePublicKey(active.getPublicKey()));
+            PrivateKey privateKey = KeyFactory.getInstance(TicketSignatureVerifier.ALGORITHM)
+                    .generatePrivate(new PKCS8EncodedKeySpec(this.ticketKeyEncryptor.decrypt(active.getPrivateKey())));
+            return new KeyState(active.getKid(), privateKey, new TicketSignatureVerifier(publicKeys));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Clés de signature des billets invalides", e);
+        }
+    }
+
+    //premier démarrage simultané de plusieurs instances : la clé unique kid départage, on relit la clé gagnante
+    private TicketSigningKey createFirstKey() {
+        try {
+            return this.ticketSigningKeyRepository.save(this.generateKey("v1"));
+        } catch (DataIntegrityViolationException e) {
+            return this.ticketSigningKeyRepository.findFirstByActiveTrueOrderByIdDesc().orElseThrow(() -> e);
+        }
+    }
+
+    //clé privée enregistrée en clair avant le chiffrement : on la chiffre en place
+    private void encryptLegacyKey(TicketSigningKey key) {
+        if (!this.ticketKeyEncryptor.isEncrypted(key.getPrivateKey())) {
+            key.setPrivateKey(this.ticketKeyEncryptor.encrypt(Base64.getDecoder().decode(key.getPrivateKey())));
+            this.ticketSigningKeyRepository.save(key);
+        }
+    }
+
+    private TicketSigningKey generateKey(String kid) {
+        try {
+            KeyPair keyPair = KeyPairGenerator.getInstance(TicketSignatureVerifier.ALGORITHM).generateKeyPair();
+            return TicketSigningKey.builder()
+                    .kid(kid)
+                    .publicKey(Base64.getEncoder().encodeToString(keyPair.getPublic().getEncoded()))
+                    .privateKey(this.ticketKeyEncryptor.encrypt(keyPair.getPrivate().getEncoded()))
+                    .active(true)
+                    .createdAt(Instant.now())
+                    .build();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Génération de la clé de signature impossible", e);
+        }
+    }
+
+    private record KeyState(String activeKid, PrivateKey privateKey, TicketSignatureVerifier verifier) {
+    }
+}
@@ -0,0 +1,143 @@
+package com.ecom.cart.services;
+
+import com.ecom.cart.dto.DecryptDto;
+import com.ecom.cart.dto.QrCodeDto;
+import com.ecom.cart.dto.SignedTicketDto;
+import com.ecom.cart.dto.TicketVerificationDto;
+import com.ecom.cart.response.UserNotFoundException;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+@Service
+public class TicketVerificationService {
+
+    private final QrCodeService qrCodeService;
+    private final TicketSigningService ticketSigningService;
+    private final Executor qrCodeVerifyExecutor;
+    private final ScanRegistry scanRegistry;
+
+    @Value("${qrcode.verify.max-batch:100}")
+    private int maxBatch = 100;
+
+    public TicketVerificationService(QrCodeService qrCodeService, TicketSigningService ticketSigningService,
+                                     @Qualifier("qrCodeVerifyExecutor") Executor qrCodeVerifyExecutor, ScanRegistry scanRegistry) {
+        this.qrCodeService = qrCodeService;
+        this.ticketSigningService = ticketSigningService;
+        this.qrCodeVerifyExecutor = qrCodeVerifyExecutor;
+        this.scanRegistry = scanRegistry;
+    }
+
+    //lecture du QR code + déchiffrement de la clé en un seul appel
+    public TicketVerificationDto verifyTicket(MultipartFile image) {
+        TicketVerificationDto verification = new TicketVerificationDto();
+        verification.setFileName(image == null ? null : image.getOriginalFilename());
+        try {
+            QrCodeDto qrCode = this.qrCodeService.decryptQrCode(image).getBody();
+            verification.setName(qrCode.getName());
+            verification.setType(qrCode.getType());
+            verification.setQuantity(qrCode.getQuantity());
+            verification.setCommande(qrCode.getCommande());
+            verification.setClient(qrCode.getClient());
+
+            //billet signé : vérification locale, sans appel aux services users et orders
+            if (qrCode.getTicket() != null) {
+                SignedTicketDto claims = this.ticketSigningService.verify(qrCode.getTicket());
+                //le verdict affiche le contenu signé, jamais les champs modifiables du QR code
+                fillFromClaims(verification, claims);
+                verification.setValid(matchesClaims(qrCode, claims));
+                verification.setMessage(verification.isValid() ? "Billet valide" : "Billet non authentique");
+                return this.registerScan(verification, ticketKey(claims, qrCode.getTicket()));
+            }
+
+            DecryptDto decryptDto = this.qrCodeService.decryptKey(Long.valueOf(qrCode.getClient()), Long.valueOf(qrCode.getCommande()), qrCode.getCode()).getBody();
+            verification.setOutputCode(decryptDto.getOutputCode());
+            verification.setValid((QrCodeService.TEXT_PREFIX + qrCode.getName()).equals(decryptDto.getOutputCode()));
+            verification.setMessage(verification.isValid() ? "Billet valide" : "Code de sécurité invalide");
+            this.registerScan(verification, "code:" + qrCode.getCode());
+        } catch (UserNotFoundException e) {
+            verification.setMessage(e.getMessage());
+        } catch (Exception e) {
+            //erreur de lecture : decryptQrCode encapsule le motif
+            verification.setMessage(e.getCause() instanceof UserNotFoundException cause ? cause.getMessage() : "Billet illisible");
+        }
+        return verification;
+    }
+
+    public TicketVerificationDto verifySignedTicket(String ticket) {
+        TicketVerificationDto verification = new TicketVerificationDto();
+        try {
+            SignedTicketDto claims = this.ticketSigningService.verify(ticket);
+            verification.setValid(true);
+            verification.setMessage("Billet valide");
+            fillFromClaims(verification, claims);
+            this.registerScan(verification, ticketKey(claims, ticket));
+        } catch (UserNotFoundException e) {
+            verification.setMessage(e.getMessage());
+        }
+        return verification;
+    }
+
+    //lot de scans (ex : stations hors ligne) vérifiés en parallèle, ordre conservé
+    public List<TicketVerificationDto> verifyTickets(List<MultipartFile> images) {
+        if (images == null || images.isEmpty()) {
+            throw new UserNotFoundException("Aucun QR code à vérifier");
+        }
+        if (images.size() > this.maxBatch) {
+            throw new UserNotFoundException("Trop de QR codes dans le lot (maximum " + this.maxBatch + ")");
+        }
+        List<CompletableFuture<TicketVerificationDto>> tasks = images.stream()
+                .map(image -> CompletableFuture.supplyAsync(() -> this.verifyTicket(image), this.qrCodeVerifyExecutor))
+                .toList();
+        return tasks.stream().map(CompletableFuture::join).toList();
+    }
+
+    //premier scan gagnant : un billet valide déjà présenté est refusé
+    private TicketVerificationDto registerScan(TicketVerificationDto verification, String ticketKey) {
+        if (verification.isValid() && !this.scanRegistry.register(digest(ticketKey))) {
+            verification.setValid(false);
+            verification.setAlreadyScanned(true);
+            verification.setMessage("Billet déjà scanné");
+        }
+        return verification;
+    }
+
+    private static void fillFromClaims(TicketVerificationDto verification, SignedTicketDto claims) {
+        verification.setName(claims.getName());
+        verification.setType(claims.getType());
+        verification.setQuantity(String.valueOf(claims.getQuantity()));
+        verification.setCommande(String.valueOf(claims.getOrderId()));
+        verification.setClient(String.valueOf(claims.getUserId()));
+    }
+
+    //tout écart entre les champs en clair et le contenu signé = QR code modifié
+    private static boolean matchesClaims(QrCodeDto qrCode, SignedTicketDto claims) {
+        return String.valueOf(claims.getOrderId()).equals(qrCode.getCommande())
+                && String.valueOf(claims.getUserId()).equals(qrCode.getClient())
+                && Objects.equals(claims.getName(), qrCode.getName())
+                && Objects.equals(claims.getType(), qrCode.getType())
+                && String.valueOf(claims.getQuantity()).equals(qrCode.getQuantity());
+    }
+
+    private static String ticketKey(SignedTicketDto claims, String ticket) {
+        return claims.getItemId() != null ? "item:" + claims.getItemId() : "ticket:" + ticket;
+    }
+
+    private static String digest(String ticketKey) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(ticketKey.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -5,9 +5,13 @@ import com.ecom.cart.dto.AddProductInCartDto;
 import com.ecom.cart.dto.CartItemsDto;
 import com.ecom.cart.dto.DecryptDto;
 import com.ecom.cart.dto.OrderDto;
+import com.ecom.cart.dto.QrCodeJobDto;
 import com.ecom.cart.response.UserNotFoundException;
 import com.ecom.cart.services.CartService;
+import com.ecom.cart.services.QrCodeJobService;
 import com.ecom.cart.services.QrCodeService;
+import com.ecom.cart.services.TicketSigningService;
+import com.ecom.cart.services.TicketVerificationService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -16,6 +20,9 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
 
 import java.util.List;
 
@@ -35,6 +42,15 @@ class CartControllerUnitTest {
     @Mock
     private QrCodeService qrCodeService;
 
+    @Mock
+    private QrCodeJobService qrCodeJobService;
+
+    @Mock
+    private TicketVerificationService ticketVerificationService;
+
+    @Mock
+    private TicketSigningService ticketSigningService;
+
 
     private AddProductInCartDto addProductDto;
     private OrderDto orderDto;
@@ -155,14 +171,16 @@ class CartControllerUnitTest {
         verify(cartService, times(1)).deleteCartById(1L);
     }
 
-    // 7 : getQrCodeById = succès
+    // 7 : getQrCodeById = succès, l'id du jeton est transmis
     @Test
     void getQrCodeById_returnQrCodeDto() {
+        Jwt jwt = Jwt.withTokenValue("token").header("alg", "RS256").claim("id", 1L).build();
+        JwtAuthenticationToken user = new JwtAuthenticationToken(jwt, List.of(new SimpleGrantedAuthority("SCOPE_USER")));
         // Simule le retour du service avec un CartItemsDto
-        when(cartService.getQrCodeById(1L)).thenReturn(cartItemsDto);
+        when(cartService.getQrCodeById(1L, null, 1L)).thenReturn(cartItemsDto);
 
         // Appel du contrôleur
-        ResponseEntity<?> response = cartController.getQrCodeById(1L);
+        ResponseEntity<?> response = cartController.getQrCodeById(1L, null, user);
 
         // Vérifie que le status HTTP est 200 OK
         assertEquals(HttpStatus.OK, response.getStatusCode());
@@ -171,7 +189,7 @@ class CartControllerUnitTest {
         assertEquals(cartItemsDto, response.getBody());
 
         // Vérifie que le service a été appelé une fois
-        verify(cartService, times(1)).getQrCodeById(1L);
+        verify(cartService, times(1)).getQrCodeById(1L, null, 1L);
     }
 
 
@@ -198,4 +216,21 @@ class CartControllerUnitTest {
         verify(qrCodeService, times(1))
                 .decryptKey(decryptDto.getUserId(), decryptDto.getOrderId(), decryptDto.getInputCode());
     }
+
+    // 9 : Statut des billets : l'id du jeton est transmis, l'admin voit toutes les commandes
+    @Test
+    void getQrCodeStatus_shouldUseTokenUserUnlessAdmin() {
+        Jwt jwt = Jwt.withTokenValue("token").header("alg", "RS256").claim("id", 1L).build();
+        JwtAuthenticationToken user = new JwtAuthenticationToken(jwt, List.of(new SimpleGrantedAuthority("SCOPE_USER")));
+        JwtAuthenticationToken admin = new JwtAuthenticationToken(jwt, List.of(new SimpleGrantedAuthority("SCOPE_ADMIN")));
+        when(qrCodeJobService.getStatus(10L, 1L)).thenReturn(new QrCodeJobDto());
+        when(qrCodeJobService.getStatus(10L, null)).thenReturn(new QrCodeJobDto());
+
+        assertEquals(HttpStatus.OK, cartController.getQrCodeStatus(10L, user).getStatusCode());
+        assertEquals(HttpStatus.OK, cartController.getQrCodeStatus(10L, admin).getStatusCode());
+
+        // Vérifie le demandeur transmis au service
+        verify(qrCodeJobService, times(1)).getStatus(10L, 1L);
+        verify(qrCodeJobService, times(1)).getStatus(10L, null);
+    }
 }
@@ -3,6 +3,7 @@ package com.ecom.cart.service;
 import com.ecom.cart.clients.OrderRestClient;
 import com.ecom.cart.clients.ProductRestClient;
 import com.ecom.cart.dto.AddProductInCartDto;
+import com.ecom.cart.dto.OrderAmountDto;
 import com.ecom.cart.entity.CartItems;
 import com.ecom.cart.enums.OrderStatus;
 import com.ecom.cart.model.Order;
@@ -84,24 +85,22 @@ class CartServiceIntegrationTest {
         when(tokenTechnicService.getTechnicalToken()).thenReturn("token");
         when(orderRestClient.findByUserIdAndOrderStatus(anyString(), anyMap())).thenReturn(order);
 
-        // On simule le produit existant
-        when(productRestClient.findById(anyString(), eq(product.getId()))).thenReturn(product);
+        // On simule le produit existant (récupération groupée)
+        when(productRestClient.findListById(anyString(), eq(List.of(product.getId())))).thenReturn(List.of(product));
 
-        // On simule qu’aucun produit identique n’existe déjà dans le panier
-        when(cartRepository.findByProductIdAndOrderIdAndUserId(product.getId(), order.getId(), order.getUserId()))
-                .thenReturn(Optional.empty());
+        // On simule un panier vide
+        when(cartRepository.findByOrderId(order.getId())).thenReturn(List.of());
 
-        // On simule l’enregistrement du panier et la mise à jour de la commande
-        when(cartRepository.save(any(CartItems.class))).thenReturn(cartItem);
-        when(orderRestClient.orderSave(anyString(), any(Order.class))).thenReturn(ResponseEntity.ok().build());
+        // On simule la mise à jour de la commande
+        when(orderRestClient.orderAmount(anyString(), any(OrderAmountDto.class))).thenReturn(ResponseEntity.ok().build());
 
         // Appel de la méthode testée
         ResponseEntity<?> response = cartService.addCaddies(order.getUserId(), List.of(dto));
 
-        // Vérification : statut HTTP OK et sauvegarde du panier
+        // Vérification : statut HTTP OK et création groupée des lignes
         assertThat(response.getStatusCode().is2xxSuccessful()).isTrue();
-        verify(cartRepository, times(1)).save(any(CartItems.class));
-        verify(orderRestClient, times(1)).orderSave(anyString(), any(Order.class));
+        verify(cartRepository, times(1)).upsertLines(anyList());
+        verify(orderRestClient, times(1)).orderAmount(anyString(), any(OrderAmountDto.class));
     }
 
     // 2 : Suppression d’un panier existant
@@ -112,12 +111,9 @@ class CartServiceIntegrationTest {
         // On simule la récupération du panier existant
         when(cartRepository.findById(cartId)).thenReturn(Optional.of(cartItem));
 
-        // On simule la récupération de la commande associée
-        when(orderRestClient.findById(anyString(), eq(order.getId()))).thenReturn(order);
-
         // On simule la suppression du panier
         doNothing().when(cartRepository).deleteById(cartId);
-        when(orderRestClient.orderSave(anyString(), any(Order.class))).thenReturn(ResponseEntity.ok().build());
+        when(orderRestClient.orderAmount(anyString(), any(OrderAmountDto.class))).thenReturn(ResponseEntity.ok().build());
 
         // Appel de la méthode testée
         boolean result = cartService.deleteCartById(cartId);
@@ -125,7 +121,7 @@ class CartServiceIntegrationTest {
         // Vérification, suppression réussie + mise à jour de la commande
         assertThat(result).isTrue();
         verify(cartRepository, times(1)).deleteById(cartId);
-        verify(orderRestClient, times(1)).orderSave(anyString(), any(Order.class));
+        verify(orderRestClient, times(1)).orderAmount(anyString(), any(OrderAmountDto.class));
     }
 
     // 3 : Récupération du panier par userId
@@ -138,8 +134,8 @@ class CartServiceIntegrationTest {
         // On simule la récupération des articles du panier
         when(cartRepository.findByOrderId(order.getId())).thenReturn(List.of(cartItem));
 
-        // On simule la récupération du produit
-        when(productRestClient.findById(anyString(), eq(product.getId()))).thenReturn(product);
+        // On simule la récupération des produits en une seule requête
+        when(productRestClient.findListById(anyString(), eq(List.of(product.getId())))).thenReturn(List.of(product));
 
         // Appel de la méthode testée
         var result = cartService.getCartByUserId(order.getUserId());
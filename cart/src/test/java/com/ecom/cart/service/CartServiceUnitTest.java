@@ -5,17 +5,22 @@ import com.ecom.cart.clients.OrderRestClient;
 import com.ecom.cart.clients.ProductRestClient;
 import com.ecom.cart.dto.AddProductInCartDto;
 import com.ecom.cart.dto.CartItemsDto;
+import com.ecom.cart.dto.OrderAmountDto;
 import com.ecom.cart.entity.CartItems;
 import com.ecom.cart.enums.OrderStatus;
 import com.ecom.cart.model.Order;
 import com.ecom.cart.model.Product;
 import com.ecom.cart.repository.CartRepository;
 import com.ecom.cart.response.UserNotFoundException;
+import com.ecom.cart.services.ActiveOrderCache;
 import com.ecom.cart.services.CartService;
+import com.ecom.cart.services.QrCodeRenderer;
 import com.ecom.cart.services.TokenTechnicService;
+import feign.FeignException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
@@ -47,6 +52,12 @@ class CartServiceUnitTest {
     @Mock
     private ProductRestClient productRestClient;
 
+    @Mock
+    private QrCodeRenderer qrCodeRenderer;
+
+    @Mock
+    private ActiveOrderCache activeOrderCache;
+
     private Order order;
     private Product product;
     private CartItems cartItem;
@@ -89,16 +100,14 @@ class CartServiceUnitTest {
         when(tokenTechnicService.getTechnicalToken()).thenReturn("token");
         when(orderRestClient.findByUserIdAndOrderStatus(anyString(), anyMap())).thenReturn(order);
 
-        // On simule la récupération du produit
-        when(productRestClient.findById(anyString(), eq(product.getId()))).thenReturn(product);
+        // On simule la récupération groupée des produits
+        when(productRestClient.findListById(anyString(), eq(List.of(product.getId())))).thenReturn(List.of(product));
 
-        // On simule qu’aucun produit identique n’existe déjà dans le panier
-        when(cartRepository.findByProductIdAndOrderIdAndUserId(product.getId(), order.getId(), order.getUserId()))
-                .thenReturn(Optional.empty());
+        // On simule un panier vide
+        when(cartRepository.findByOrderId(order.getId())).thenReturn(List.of());
 
-        // On simule l’enregistrement du panier et la mise à jour de la commande
-        when(cartRepository.save(any(CartItems.class))).thenReturn(cartItem);
-        when(orderRestClient.orderSave(anyString(), any(Order.class))).thenReturn(ResponseEntity.ok().build());
+        // On simule la mise à jour de la commande
+        when(orderRestClient.orderAmount(anyString(), any(OrderAmountDto.class))).thenReturn(ResponseEntity.ok().build());
 
         // Appel de la méthode testée
         ResponseEntity<?> response = cartService.addCaddies(order.getUserId(), List.of(dto));
@@ -106,9 +115,11 @@ class CartServiceUnitTest {
         // Vérification, statut HTTP OK
         assertEquals(HttpStatus.OK, response.getStatusCode());
 
-        // Vérification, sauvegarde du panier et mise à jour de la commande
-        verify(cartRepository, times(1)).save(any(CartItems.class));
-        verify(orderRestClient, times(1)).orderSave(anyString(), any(Order.class));
+        // Vérification, création groupée des lignes et mise à jour de la commande
+        verify(cartRepository, times(1)).upsertLines(anyList());
+        verify(cartRepository, never()).saveAll(anyList());
+        verify(cartRepository, never()).save(any(CartItems.class));
+        verify(orderRestClient, times(1)).orderAmount(anyString(), any(OrderAmountDto.class));
     }
 
     // 2 : Ajout d’un produit = quantité mise à jour
@@ -137,16 +148,18 @@ class CartServiceUnitTest {
         when(tokenTechnicService.getTechnicalToken()).thenReturn("token");
         when(orderRestClient.findByUserIdAndOrderStatus(anyString(), anyMap())).thenReturn(order);
 
-        // On simule un produit inexistant (id null)
-        when(productRestClient.findById(anyString(), eq(99L))).thenReturn(new Product());
+        // On simule un panier vide et un produit inexistant
+        when(cartRepository.findByOrderId(order.getId())).thenReturn(List.of());
+        when(productRestClient.findListById(anyString(), eq(List.of(99L)))).thenReturn(List.of());
 
         // Vérification, exception levée
         assertThrows(UserNotFoundException.class,
                 () -> cartService.addCaddies(order.getUserId(), List.of(dto)));
     }
 
-    // 4 : Ajout d’un produit déjà présent → quantité mise à jour
+    // 4 : Ajout d’un produit déjà présent → quantité cumulée en base
     @Test
+    @SuppressWarnings("unchecked")
     void addCaddies_shouldIncrementQuantityIfProductAlreadyInCart() {
         AddProductInCartDto dto = new AddProductInCartDto();
         dto.setUserId(order.getUserId());
@@ -158,20 +171,66 @@ class CartServiceUnitTest {
         when(orderRestClient.findByUserIdAndOrderStatus(anyString(), anyMap())).thenReturn(order);
 
         // On simule un produit déjà présent dans le panier
-        when(cartRepository.findByProductIdAndOrderIdAndUserId(product.getId(), order.getId(), order.getUserId()))
-                .thenReturn(Optional.of(cartItem));
+        when(cartRepository.findByOrderId(order.getId())).thenReturn(List.of(cartItem));
 
-        // On simule la mise à jour du panier
-        when(cartRepository.save(any(CartItems.class))).thenReturn(cartItem);
-        when(orderRestClient.orderSave(anyString(), any(Order.class))).thenReturn(ResponseEntity.ok().build());
+        // On simule la mise à jour de la commande
+        when(orderRestClient.orderAmount(anyString(), any(OrderAmountDto.class))).thenReturn(ResponseEntity.ok().build());
 
         // Appel de la méthode testée
         ResponseEntity<?> response = cartService.addCaddies(order.getUserId(), List.of(dto));
 
-        // Vérification
+        // Vérification, incrément envoyé à l'upsert au prix de la ligne, sans écriture absolue ni appel au service produits
         assertEquals(HttpStatus.OK, response.getStatusCode());
-        verify(cartRepository, times(1)).save(any(CartItems.class));
-        verify(orderRestClient, times(1)).orderSave(anyString(), any(Order.class));
+        ArgumentCaptor<List<CartItems>> captor = ArgumentCaptor.forClass(List.class);
+        verify(cartRepository, times(1)).upsertLines(captor.capture());
+        assertEquals(1, captor.getValue().size());
+        assertEquals(3L, captor.getValue().get(0).getQuantity());
+        assertEquals(cartItem.getPrice(), captor.getValue().get(0).getPrice());
+        assertEquals(2L, cartItem.getQuantity());
+        verify(cartRepository, never()).flush();
+        verifyNoInteractions(productRestClient);
+        verify(orderRestClient, times(1)).orderAmount(anyString(), any(OrderAmountDto.class));
+    }
+
+    // 4 bis : Fusion d'un panier anonyme : nombre d'appels constant
+    @Test
+    @SuppressWarnings("unchecked")
+    void addCaddies_shouldMergeCartWithConstantRoundTrips() {
+        Product other = new Product();
+        other.setId(2L);
+        other.setName("Duo");
+        other.setPrice(80L);
+
+        AddProductInCartDto existingLine = new AddProductInCartDto();
+        existingLine.setUserId(order.getUserId());
+        existingLine.setProductId(product.getId());
+        existingLine.setQuantity(1L);
+        AddProductInCartDto newLine = new AddProductInCartDto();
+        newLine.setUserId(order.getUserId());
+        newLine.setProductId(other.getId());
+        newLine.setQuantity(1L);
+        AddProductInCartDto sameNewLine = new AddProductInCartDto();
+        sameNewLine.setUserId(order.getUserId());
+        sameNewLine.setProductId(other.getId());
+        sameNewLine.setQuantity(2L);
+
+        when(tokenTechnicService.getTechnicalToken()).thenReturn("token");
+        when(orderRestClient.findByUserIdAndOrderStatus(anyString(), anyMap())).thenReturn(order);
+        when(cartRepository.findByOrderId(order.getId())).thenReturn(List.of(cartItem));
+        when(productRestClient.findListById(anyString(), eq(List.of(other.getId())))).thenReturn(List.of(other));
+        when(orderRestClient.orderAmount(anyString(), any(OrderAmountDto.class))).thenReturn(ResponseEntity.ok().build());
+
+        cartService.addCaddies(order.getUserId(), List.of(existingLine, newLine, sameNewLine));
+
+        // Vérification : un seul upsert, incrément de la ligne existante et ligne créée avec la quantité cumulée
+        ArgumentCaptor<List<CartItems>> captor = ArgumentCaptor.forClass(List.class);
+        verify(cartRepository, times(1)).upsertLines(captor.capture());
+        assertEquals(2, captor.getValue().size());
+        assertEquals(1L, captor.getValue().get(0).getQuantity());
+        assertEquals(3L, captor.getValue().get(1).getQuantity());
+        assertEquals(2L, cartItem.getQuantity());
+        verify(productRestClient, times(1)).findListById(anyString(), anyList());
+        verify(orderRestClient, times(1)).orderAmount(anyString(), eq(new OrderAmountDto(order.getId(), product.getPrice() + 3 * other.getPrice())));
     }
 
     // 5 : Suppression d’un produit existant du panier
@@ -179,14 +238,15 @@ class CartServiceUnitTest {
     void deleteCartById_shouldDeleteExistingCart() {
         // On simule un panier existant
         when(cartRepository.findById(cartItem.getId())).thenReturn(Optional.of(cartItem));
-        when(orderRestClient.findById(anyString(), eq(cartItem.getOrderId()))).thenReturn(order);
-        when(orderRestClient.orderSave(anyString(), any(Order.class))).thenReturn(ResponseEntity.ok().build());
+        when(orderRestClient.orderAmount(anyString(), any(OrderAmountDto.class))).thenReturn(ResponseEntity.ok().build());
 
         boolean result = cartService.deleteCartById(cartItem.getId());
 
+        // Vérification : variation négative envoyée sans relire la commande
         assertTrue(result);
         verify(cartRepository, times(1)).deleteById(cartItem.getId());
-        verify(orderRestClient, times(1)).orderSave(anyString(), any(Order.class));
+        verify(orderRestClient, times(1)).orderAmount(anyString(), eq(new OrderAmountDto(order.getId(), -100L)));
+        verify(orderRestClient, never()).findById(anyString(), anyLong());
     }
 
     // 6 : Suppression d’un produit inexistant = retourne false
@@ -206,47 +266,117 @@ class CartServiceUnitTest {
         when(tokenTechnicService.getTechnicalToken()).thenReturn("token");
         when(orderRestClient.findByUserIdAndOrderStatus(anyString(), anyMap())).thenReturn(order);
         when(cartRepository.findByOrderId(order.getId())).thenReturn(List.of(cartItem));
-        when(productRestClient.findById(anyString(), eq(product.getId()))).thenReturn(product);
+        when(productRestClient.findListById(anyString(), eq(List.of(product.getId())))).thenReturn(List.of(product));
 
         var orderDto = cartService.getCartByUserId(order.getUserId());
 
         assertNotNull(orderDto);
         assertEquals(order.getId(), orderDto.getId());
         assertEquals(1, orderDto.getCartItems().size());
+        assertEquals(product.getName(), orderDto.getCartItems().iterator().next().getProductName());
+        verify(productRestClient, never()).findById(anyString(), anyLong());
+    }
+
+    // 7 bis : Récupération du panier par orderId = un seul appel produits pour toutes les lignes
+    @Test
+    void getCartByOrderId_shouldFetchProductsInOneCall() {
+        CartItems secondItem = new CartItems();
+        secondItem.setId(2L);
+        secondItem.setOrderId(order.getId());
+        secondItem.setProductId(product.getId());
+        secondItem.setUserId(order.getUserId());
+        secondItem.setPrice(product.getPrice());
+        secondItem.setQuantity(1L);
+
+        when(tokenTechnicService.getTechnicalToken()).thenReturn("token");
+        when(orderRestClient.findById(anyString(), eq(order.getId()))).thenReturn(order);
+        when(cartRepository.findByOrderId(order.getId())).thenReturn(List.of(cartItem, secondItem));
+        when(productRestClient.findListById(anyString(), eq(List.of(product.getId())))).thenReturn(List.of(product));
+
+        var orderDto = cartService.getCartByOrderId(order.getId());
+
+        assertEquals(2, orderDto.getCartItems().size());
+        verify(productRestClient, times(1)).findListById(anyString(), anyList());
+    }
+
+    // 7 ter : Service produit indisponible = exception
+    @Test
+    void getCartByUserId_shouldThrowWhenProductsUnavailable() {
+        when(tokenTechnicService.getTechnicalToken()).thenReturn("token");
+        when(orderRestClient.findByUserIdAndOrderStatus(anyString(), anyMap())).thenReturn(order);
+        when(cartRepository.findByOrderId(order.getId())).thenReturn(List.of(cartItem));
+        when(productRestClient.findListById(anyString(), anyList())).thenReturn(List.of());
+
+        assertThrows(UserNotFoundException.class, () -> cartService.getCartByUserId(order.getUserId()));
     }
 
     // 8 : Récupération QR code = retourne CartItemsDto
     @Test
     void getQrCodeById_shouldReturnCartItemsDto() {
+        cartItem.setQrPayload("{\"commande\":\"1\"}");
+        byte[] png = new byte[]{1, 2, 3};
         when(cartRepository.findById(cartItem.getId())).thenReturn(Optional.of(cartItem));
+        // On simule le rendu de l'image à partir du contenu stocké
+        when(qrCodeRenderer.render(cartItem.getQrPayload(), 200, "png")).thenReturn(png);
 
-        CartItemsDto dto = cartService.getQrCodeById(cartItem.getId());
+        CartItemsDto dto = cartService.getQrCodeById(cartItem.getId(), 200, cartItem.getUserId());
 
         assertNotNull(dto);
-        assertArrayEquals(cartItem.getQrCode(), dto.getQrCode());
+        assertTrue(dto.isTicketIssued());
+        assertArrayEquals(png, dto.getQrCode());
     }
-    // 9 : addProductToCart → ajout d'un produit existant (incrémente quantité)
+
+    // 8 quater : QR code d'un autre utilisateur = refusé
+    @Test
+    void getQrCodeById_shouldRejectTicketOfAnotherUser() {
+        when(cartRepository.findById(cartItem.getId())).thenReturn(Optional.of(cartItem));
+
+        assertThrows(UserNotFoundException.class, () -> cartService.getQrCodeById(cartItem.getId(), 200, cartItem.getUserId() + 1));
+        verifyNoInteractions(qrCodeRenderer);
+    }
+
+    // 8 bis : Image du QR code pour un article inconnu
+    @Test
+    void getQrCodeImage_shouldThrowWhenItemMissing() {
+        when(cartRepository.findById(99L)).thenReturn(Optional.empty());
+
+        assertThrows(UserNotFoundException.class, () -> cartService.getQrCodeImage(99L, null, "svg", null));
+        verifyNoInteractions(qrCodeRenderer);
+    }
+
+    // 8 ter : Image du QR code d'un autre utilisateur = refusée
+    @Test
+    void getQrCodeImage_shouldRejectTicketOfAnotherUser() {
+        when(cartRepository.findById(cartItem.getId())).thenReturn(Optional.of(cartItem));
+
+        assertThrows(UserNotFoundException.class, () -> cartService.getQrCodeImage(cartItem.getId(), null, "png", cartItem.getUserId() + 1));
+        verifyNoInteractions(qrCodeRenderer);
+    }
+    // 9 : addProductToCart → ajout d'un produit existant (incrément au prix enregistré sur la ligne)
     @Test
-    void addProductToCart_shouldIncrementQuantityWhenActionIsAdd() {
+    void addProductToCart_shouldIncrementAtStoredPriceWhenActionIsAdd() {
         AddProductInCartDto dto = new AddProductInCartDto();
         dto.setUserId(order.getUserId());
         dto.setProductId(product.getId());
         dto.setQuantity(2L);
         dto.setOption("add");
+        // On simule un prix modifié depuis l'ajout de la ligne
+        cartItem.setPrice(40L);
 
         when(cartRepository.findByProductIdAndOrderIdAndUserId(product.getId(), order.getId(), order.getUserId()))
                 .thenReturn(Optional.of(cartItem));
-        when(cartRepository.findById(cartItem.getId())).thenReturn(Optional.of(cartItem));
-
-        when(cartRepository.save(any(CartItems.class))).thenReturn(cartItem);
         when(tokenTechnicService.getTechnicalToken()).thenReturn("token");
         when(orderRestClient.findByUserIdAndOrderStatus(anyString(), anyMap())).thenReturn(order);
-        when(orderRestClient.orderSave(anyString(), any(Order.class))).thenReturn(ResponseEntity.ok().build());
+        when(orderRestClient.orderAmount(anyString(), any(OrderAmountDto.class))).thenReturn(ResponseEntity.ok().build());
 
         ResponseEntity<?> response = cartService.addProductToCart(dto);
-        //verification : 2 existants + 2 ajoutés
+        //verification : 2 existants + 2 ajoutés, variation au prix de la ligne (2 x 40)
         assertEquals(HttpStatus.OK, response.getStatusCode());
         assertEquals(4L, cartItem.getQuantity());
+        verify(orderRestClient).orderAmount(anyString(), eq(new OrderAmountDto(order.getId(), 80L)));
+        verify(cartRepository).incrementQuantity(cartItem.getId(), 2L);
+        verifyNoInteractions(productRestClient);
+        verify(cartRepository, never()).upsertQuantity(anyLong(), anyLong(), anyLong(), anyLong(), anyLong());
     }
     // 10 : addProductToCart → retrait d'un produit (décrémente quantité)
     @Test
@@ -259,18 +389,130 @@ class CartServiceUnitTest {
 
         when(cartRepository.findByProductIdAndOrderIdAndUserId(product.getId(), order.getId(), order.getUserId()))
                 .thenReturn(Optional.of(cartItem));
-        when(cartRepository.findById(cartItem.getId())).thenReturn(Optional.of(cartItem));
-
-        when(cartRepository.save(any(CartItems.class))).thenReturn(cartItem);
         when(tokenTechnicService.getTechnicalToken()).thenReturn("token");
         when(orderRestClient.findByUserIdAndOrderStatus(anyString(), anyMap())).thenReturn(order);
-        when(orderRestClient.orderSave(anyString(), any(Order.class))).thenReturn(ResponseEntity.ok().build());
+        when(orderRestClient.orderAmount(anyString(), any(OrderAmountDto.class))).thenReturn(ResponseEntity.ok().build());
 
         ResponseEntity<?> response = cartService.addProductToCart(dto);
 
         //vérification : 2 existants - 1 retiré
         assertEquals(HttpStatus.OK, response.getStatusCode());
         assertEquals(1L, cartItem.getQuantity());
+        verify(orderRestClient).orderAmount(anyString(), eq(new OrderAmountDto(order.getId(), -50L)));
+        verify(cartRepository).incrementQuantity(cartItem.getId(), -1L);
     }
-}
+    // 11 : addProductToCart → nouvelle ligne créée par upsert
+    @Test
+    void addProductToCart_shouldUpsertLineWhenProductNotInCart() {
+        AddProductInCartDto dto = new AddProductInCartDto();
+        dto.setUserId(order.getUserId());
+        dto.setProductId(product.getId());
+        dto.setQuantity(3L);
+        dto.setOption("add");
 
+        when(tokenTechnicService.getTechnicalToken()).thenReturn("token");
+        when(orderRestClient.findByUserIdAndOrderStatus(anyString(), anyMap())).thenReturn(order);
+        when(productRestClient.findById(anyString(), eq(product.getId()))).thenReturn(product);
+        when(orderRestClient.orderAmount(anyString(), any(OrderAmountDto.class))).thenReturn(ResponseEntity.ok().build());
+
+        ResponseEntity<?> response = cartService.addProductToCart(dto);
+
+        //vérification : une seule instruction d'insertion, variation de 3 x 50
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        verify(orderRestClient).orderAmount(anyString(), eq(new OrderAmountDto(order.getId(), 150L)));
+        verify(cartRepository).upsertQuantity(order.getId(), product.getId(), order.getUserId(), 50L, 3L);
+        verify(cartRepository, never()).save(any(CartItems.class));
+    }
+
+    // 12 : addProductToCart → commande EnCours en cache, aucun appel de recherche à orders
+    @Test
+    void addProductToCart_shouldUseCachedActiveOrder() {
+        AddProductInCartDto dto = new AddProductInCartDto();
+        dto.setUserId(order.getUserId());
+        dto.setProductId(product.getId());
+        dto.setQuantity(1L);
+        dto.setOption("add");
+
+        when(tokenTechnicService.getTechnicalToken()).thenReturn("token");
+        when(activeOrderCache.get(order.getUserId())).thenReturn(order.getId());
+        when(productRestClient.findById(anyString(), eq(product.getId()))).thenReturn(product);
+        when(orderRestClient.orderAmount(anyString(), any(OrderAmountDto.class))).thenReturn(ResponseEntity.ok().build());
+
+        ResponseEntity<?> response = cartService.addProductToCart(dto);
+
+        //vérification : un seul appel à orders, celui de la variation
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        verify(orderRestClient, never()).findByUserIdAndOrderStatus(anyString(), anyMap());
+        verify(orderRestClient, times(1)).orderAmount(anyString(), eq(new OrderAmountDto(order.getId(), 50L)));
+    }
+
+    // 13 : la commande récupérée auprès d'orders est mise en cache
+    @Test
+    void addProductToCart_shouldCacheActiveOrderOnMiss() {
+        AddProductInCartDto dto = new AddProductInCartDto();
+        dto.setUserId(order.getUserId());
+        dto.setProductId(product.getId());
+        dto.setQuantity(1L);
+        dto.setOption("add");
+
+        when(tokenTechnicService.getTechnicalToken()).thenReturn("token");
+        when(orderRestClient.findByUserIdAndOrderStatus(anyString(), anyMap())).thenReturn(order);
+        when(productRestClient.findById(anyString(), eq(product.getId()))).thenReturn(product);
+        when(orderRestClient.orderAmount(anyString(), any(OrderAmountDto.class))).thenReturn(ResponseEntity.ok().build());
+
+        cartService.addProductToCart(dto);
+
+        verify(activeOrderCache, times(1)).put(order.getUserId(), order.getId());
+    }
+
+    // 14 : commande validée entre-temps (cache périmé) → variation refusée, cache invalidé, nouvelle commande relue
+    @Test
+    void addProductToCart_shouldRetryWithFreshOrderWhenCachedOrderIsClosed() {
+        AddProductInCartDto dto = new AddProductInCartDto();
+        dto.setUserId(order.getUserId());
+        dto.setProductId(product.getId());
+        dto.setQuantity(1L);
+        dto.setOption("add");
+        Order newOrder = new Order();
+        newOrder.setId(2L);
+
+        when(tokenTechnicService.getTechnicalToken()).thenReturn("token");
+        // On simule l'ancienne commande en cache, puis la nouvelle commande lue auprès d'orders
+        when(activeOrderCache.get(order.getUserId())).thenReturn(order.getId(), (Long) null);
+        when(orderRestClient.findByUserIdAndOrderStatus(anyString(), anyMap())).thenReturn(newOrder);
+        when(productRestClient.findById(anyString(), eq(product.getId()))).thenReturn(product);
+        when(orderRestClient.orderAmount(anyString(), eq(new OrderAmountDto(order.getId(), 50L)))).thenThrow(mock(FeignException.NotFound.class));
+        when(orderRestClient.orderAmount(anyString(), eq(new OrderAmountDto(newOrder.getId(), 50L)))).thenReturn(ResponseEntity.ok().build());
+
+        ResponseEntity<?> response = cartService.addProductToCart(dto);
+
+        // Vérification : aucune ligne écrite dans la commande validée
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        verify(activeOrderCache).invalidate(order.getUserId());
+        verify(cartRepository, never()).upsertQuantity(eq(order.getId()), anyLong(), anyLong(), anyLong(), anyLong());
+        verify(cartRepository).upsertQuantity(newOrder.getId(), product.getId(), order.getUserId(), 50L, 1L);
+    }
+
+    // 15 : échec d'écriture de la ligne → variation annulée
+    @Test
+    void addProductToCart_shouldUndoAmountWhenLineWriteFails() {
+        AddProductInCartDto dto = new AddProductInCartDto();
+        dto.setUserId(order.getUserId());
+        dto.setProductId(product.getId());
+        dto.setQuantity(3L);
+        dto.setOption("add");
+
+        when(tokenTechnicService.getTechnicalToken()).thenReturn("token");
+        when(activeOrderCache.get(order.getUserId())).thenReturn(order.getId());
+        when(productRestClient.findById(anyString(), eq(product.getId()))).thenReturn(product);
+        when(orderRestClient.orderAmount(anyString(), any(OrderAmountDto.class))).thenReturn(ResponseEntity.ok().build());
+        // On simule une erreur base de données
+        when(cartRepository.upsertQuantity(order.getId(), product.getId(), order.getUserId(), 50L, 3L)).thenThrow(new IllegalStateException("db"));
+
+        assertThrows(IllegalStateException.class, () -> cartService.addProductToCart(dto));
+
+        // Vérification : la variation est appliquée puis annulée
+        verify(orderRestClient).orderAmount(anyString(), eq(new OrderAmountDto(order.getId(), 150L)));
+        verify(orderRestClient).orderAmount(anyString(), eq(new OrderAmountDto(order.getId(), -150L)));
+    }
+}
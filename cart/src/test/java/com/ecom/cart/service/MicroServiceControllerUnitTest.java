@@ -1,20 +1,27 @@
 package com.ecom.cart.service;
 
 import com.ecom.cart.controller.MicroServiceController;
-import com.ecom.cart.entity.CartItems;
+import com.ecom.cart.dto.QrCodeJobDto;
+import com.ecom.cart.dto.SoldItemDto;
+import com.ecom.cart.services.ActiveOrderCache;
 import com.ecom.cart.services.CartService;
-import com.ecom.cart.services.QrCodeService;
+import com.ecom.cart.enums.QrCodeJobStatus;
+import com.ecom.cart.services.QrCodeJobService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.server.ResponseStatusException;
 
 import java.util.List;
 import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -24,52 +31,69 @@ class MicroServiceControllerUnitTest {
     private MicroServiceController microServiceController;
 
     @Mock
-    private QrCodeService qrCodeService;
+    private QrCodeJobService qrCodeJobService;
 
     @Mock
     private CartService cartService;
 
+    @Mock
+    private ActiveOrderCache activeOrderCache;
+
     private Map<String, Long> qrCodeRequest;
-    private List<CartItems> cartItemsList;
 
     @BeforeEach
     void setUp() {
         // Création QR code
         qrCodeRequest = Map.of("userId", 1L, "orderId", 1L);
-
-        // Création d'une liste de CartItems
-        CartItems cartItem = new CartItems();
-        cartItem.setId(1L);
-        cartItem.setUserId(1L);
-        cartItem.setOrderId(1L);
-        cartItemsList = List.of(cartItem);
     }
 
-    // 1 : generateQrCode = vérifie l'appel du service
+    // 1 : generateQrCode = la génération est mise en file et le contrôleur répond 202
     @Test
     void generateQrCode() {
-        // Appel du contrôleur avec la requête simulée
-        microServiceController.generateQrCode(qrCodeRequest);
+        when(qrCodeJobService.enqueue(1L, 1L)).thenReturn(new QrCodeJobDto(1L, QrCodeJobStatus.EnAttente, 0));
 
-        // Vérifie que la méthode generateQrCode
-        verify(qrCodeService, times(1))
-                .generateQrCode(qrCodeRequest.get("userId"), qrCodeRequest.get("orderId"));
+        // Appel du contrôleur avec la requête simulée
+        ResponseEntity<QrCodeJobDto> response = microServiceController.generateQrCode(qrCodeRequest);
+
+        // Vérifie la réponse et l'enregistrement du job
+        assertEquals(HttpStatus.ACCEPTED, response.getStatusCode());
+        assertEquals(QrCodeJobStatus.EnAttente, response.getBody().getStatus());
+        verify(qrCodeJobService, times(1))
+                .enqueue(qrCodeRequest.get("userId"), qrCodeRequest.get("orderId"));
+        verify(activeOrderCache, times(1)).invalidate(1L);
     }
 
-    // 2 : Recherche par QrCode
+    // 2 : Pagination invalide = 400 sans appel au service
     @Test
-    void findByQrCode() {
-        // Simule le retour du service avec une liste de CartItems
-        when(cartService.findByQrCodeIsNotNull()).thenReturn(cartItemsList);
+    void findSoldItems_shouldRejectInvalidPaging() {
+        ResponseStatusException negativeSize = assertThrows(ResponseStatusException.class, () -> microServiceController.findSoldItems(0, -1));
+        ResponseStatusException negativePage = assertThrows(ResponseStatusException.class, () -> microServiceController.findSoldItems(-1, 500));
 
-        // Appel du contrôleur
-        List<CartItems> response = microServiceController.findByQrCodeIsNotNull();
+        assertEquals(HttpStatus.BAD_REQUEST, negativeSize.getStatusCode());
+        assertEquals(HttpStatus.BAD_REQUEST, negativePage.getStatusCode());
+        verifyNoInteractions(cartService);
+    }
 
-        // Vérifie la liste retournée
-        assertEquals(cartItemsList, response);
+    // 3 : Articles vendus paginés sans QR code
+    @Test
+    void findSoldItems() {
+        List<SoldItemDto> soldItems = List.of(new SoldItemDto(1L, 1L, 1L, 2L, 50L));
+        when(cartService.findSoldItems(0, 1000)).thenReturn(soldItems);
+
+        // Appel du contrôleur avec une taille supérieure au maximum
+        List<SoldItemDto> response = microServiceController.findSoldItems(0, 5000);
 
-        // Vérifie que le service a été appelé une fois
-        verify(cartService, times(1)).findByQrCodeIsNotNull();
+        // Vérifie la liste retournée et la taille plafonnée
+        assertEquals(soldItems, response);
+        verify(cartService, times(1)).findSoldItems(0, 1000);
     }
 
-}
\ No newline at end of file
+    // Invalidation de la commande EnCours en cache, notifiée par orders
+    @Test
+    void evictActiveOrder_shouldInvalidateCache() {
+        ResponseEntity<Void> response = microServiceController.evictActiveOrder(Map.of("userId", 1L));
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        verify(activeOrderCache, times(1)).invalidate(1L);
+    }
+}
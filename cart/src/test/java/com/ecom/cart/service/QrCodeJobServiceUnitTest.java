@@ -0,0 +1,181 @@
+package com.ecom.cart.service;
+
+import com.ecom.cart.dto.QrCodeJobDto;
+import com.ecom.cart.entity.QrCodeJob;
+import com.ecom.cart.enums.QrCodeJobStatus;
+import com.ecom.cart.repository.QrCodeJobRepository;
+import com.ecom.cart.response.UserNotFoundException;
+import com.ecom.cart.services.QrCodeJobService;
+import com.ecom.cart.services.QrCodeService;
+import com.ecom.cart.services.TicketKeyCache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.*;
+
+class QrCodeJobServiceUnitTest {
+
+    @InjectMocks
+    private QrCodeJobService qrCodeJobService;
+
+    @Mock
+    private QrCodeJobRepository qrCodeJobRepository;
+
+    @Mock
+    private QrCodeService qrCodeService;
+
+    @Mock
+    private ThreadPoolTaskExecutor qrCodeJobExecutor;
+
+    @Mock
+    private TicketKeyCache ticketKeyCache;
+
+    private QrCodeJob job;
+
+    @BeforeEach
+    void setUp() {
+        // Initialisation
+        MockitoAnnotations.openMocks(this);
+
+        // Création d'un job en cours pour la commande 10
+        job = QrCodeJob.builder()
+                .id(1L)
+                .userId(1L)
+                .orderId(10L)
+                .status(QrCodeJobStatus.EnCours)
+                .attempts(1)
+                .startedAt(Instant.now())
+                .createdAt(Instant.now())
+                .build();
+    }
+
+    // 1 : enqueue = un nouveau job est enregistré en attente
+    @Test
+    void enqueue_shouldSavePendingJob() {
+        when(qrCodeJobRepository.findByOrderId(10L)).thenReturn(Optional.empty());
+        when(qrCodeJobRepository.save(any(QrCodeJob.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        QrCodeJobDto result = qrCodeJobService.enqueue(1L, 10L);
+
+        assertThat(result.getOrderId()).isEqualTo(10L);
+        assertThat(result.getStatus()).isEqualTo(QrCodeJobStatus.EnAttente);
+        verify(qrCodeJobRepository).save(any(QrCodeJob.class));
+        verify(ticketKeyCache).invalidate(1L, 10L);
+        // aucune génération dans le thread appelant
+        verifyNoInteractions(qrCodeService);
+    }
+
+    // 2 : enqueue = un job existant n'est pas dupliqué
+    @Test
+    void enqueue_shouldReturnExistingJob() {
+        when(qrCodeJobRepository.findByOrderId(10L)).thenReturn(Optional.of(job));
+
+        QrCodeJobDto result = qrCodeJobService.enqueue(1L, 10L);
+
+        assertThat(result.getStatus()).isEqualTo(QrCodeJobStatus.EnCours);
+        verify(qrCodeJobRepository, never()).save(any());
+    }
+
+    // 3 : process = le job passe à terminé après génération
+    @Test
+    void process_shouldMarkJobDone() {
+        when(qrCodeJobRepository.findById(1L)).thenReturn(Optional.of(job));
+
+        qrCodeJobService.process(1L);
+
+        verify(qrCodeService).generateQrCode(1L, 10L);
+        assertThat(job.getStatus()).isEqualTo(QrCodeJobStatus.Termine);
+        assertThat(job.getFinishedAt()).isNotNull();
+        // Écriture conditionnelle sur la réservation du worker, jamais l'entité complète
+        verify(qrCodeJobRepository).finish(eq(1L), eq(QrCodeJobStatus.EnCours), eq(job.getStartedAt()), eq(QrCodeJobStatus.Termine),
+                isNull(), isNull(), any(Instant.class));
+        verify(qrCodeJobRepository, never()).save(any());
+    }
+
+    // 4 : process = en cas d'erreur le job est reprogrammé plus tard
+    @Test
+    void process_shouldRescheduleOnFailure() {
+        when(qrCodeJobRepository.findById(1L)).thenReturn(Optional.of(job));
+        // On simule l'indisponibilité d'un service
+        doThrow(new UserNotFoundException("Service indisponible")).when(qrCodeService).generateQrCode(1L, 10L);
+
+        qrCodeJobService.process(1L);
+
+        assertThat(job.getStatus()).isEqualTo(QrCodeJobStatus.EnAttente);
+        assertThat(job.getLastError()).isEqualTo("Service indisponible");
+        assertThat(job.getNextAttemptAt()).isAfter(Instant.now());
+    }
+
+    // 5 : process = le job est abandonné après le nombre maximum de tentatives
+    @Test
+    void process_shouldFailAfterMaxAttempts() {
+        job.setAttempts(5);
+        when(qrCodeJobRepository.findById(1L)).thenReturn(Optional.of(job));
+        doThrow(new UserNotFoundException("Service indisponible")).when(qrCodeService).generateQrCode(1L, 10L);
+
+        qrCodeJobService.process(1L);
+
+        assertThat(job.getStatus()).isEqualTo(QrCodeJobStatus.Echec);
+    }
+
+    // 5 bis : enqueue = relance d'un job abandonné par mise à jour conditionnelle
+    @Test
+    void enqueue_shouldRetryFailedJobConditionally() {
+        job.setStatus(QrCodeJobStatus.Echec);
+        when(qrCodeJobRepository.findByOrderId(10L)).thenReturn(Optional.of(job));
+        when(qrCodeJobRepository.retryFailed(eq(1L), eq(QrCodeJobStatus.Echec), eq(QrCodeJobStatus.EnAttente), any(Instant.class))).thenReturn(1);
+
+        QrCodeJobDto result = qrCodeJobService.enqueue(1L, 10L);
+
+        assertThat(result.getStatus()).isEqualTo(QrCodeJobStatus.EnAttente);
+        assertThat(result.getAttempts()).isZero();
+        verify(qrCodeJobRepository, never()).save(any());
+    }
+
+    // 5 ter : dispatch = pool saturé, la réservation est rendue sans écraser le job
+    @Test
+    void dispatch_shouldReleaseClaimWhenPoolIsFull() {
+        when(qrCodeJobRepository.findReadyJobIds(eq(QrCodeJobStatus.EnAttente), any(Instant.class), any())).thenReturn(List.of(1L));
+        when(qrCodeJobRepository.claim(eq(1L), eq(QrCodeJobStatus.EnAttente), eq(QrCodeJobStatus.EnCours), any(Instant.class))).thenReturn(1);
+        // On simule un pool de workers saturé
+        doThrow(new TaskRejectedException("pool plein")).when(qrCodeJobExecutor).execute(any(Runnable.class));
+
+        qrCodeJobService.dispatch();
+
+        verify(qrCodeJobRepository).release(eq(1L), eq(QrCodeJobStatus.EnCours), eq(QrCodeJobStatus.EnAttente), any(Instant.class));
+        verify(qrCodeJobRepository, never()).save(any());
+    }
+
+    // 6 : getStatus = commande inconnue
+    @Test
+    void getStatus_shouldThrowWhenNoJob() {
+        when(qrCodeJobRepository.findByOrderId(99L)).thenReturn(Optional.empty());
+
+        assertThatThrownBy(() -> qrCodeJobService.getStatus(99L))
+                .isInstanceOf(UserNotFoundException.class);
+    }
+
+    // 7 : getStatus = job d'un autre utilisateur invisible
+    @Test
+    void getStatus_shouldHideJobOfAnotherUser() {
+        when(qrCodeJobRepository.findByOrderId(10L)).thenReturn(Optional.of(job));
+
+        assertThatThrownBy(() -> qrCodeJobService.getStatus(10L, 2L))
+                .isInstanceOf(UserNotFoundException.class);
+        assertThat(qrCodeJobService.getStatus(10L, 1L).getOrderId()).isEqualTo(10L);
+    }
+}
@@ -0,0 +1,70 @@
+package com.ecom.cart.service;
+
+import com.ecom.cart.response.UserNotFoundException;
+import com.ecom.cart.services.QrCodeRenderer;
+import com.google.zxing.BinaryBitmap;
+import com.google.zxing.MultiFormatReader;
+import com.google.zxing.client.j2se.BufferedImageLuminanceSource;
+import com.google.zxing.common.HybridBinarizer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class QrCodeRendererUnitTest {
+
+    private QrCodeRenderer qrCodeRenderer;
+    private final String payload = "{\"commande\":\"1\",\"client\":\"1\",\"Nom\":\"John\"}";
+
+    @BeforeEach
+    void setUp() {
+        qrCodeRenderer = new QrCodeRenderer(1024 * 1024, new SimpleMeterRegistry());
+    }
+
+    // 1 : PNG lisible à la taille demandée
+    @Test
+    void render_shouldProduceReadablePng() throws Exception {
+        byte[] png = qrCodeRenderer.render(payload, 200, "png");
+
+        BufferedImage image = ImageIO.read(new ByteArrayInputStream(png));
+        assertThat(image.getWidth()).isEqualTo(200);
+
+        // Vérification : le QR code contient le contenu stocké
+        String text = new MultiFormatReader()
+                .decode(new BinaryBitmap(new HybridBinarizer(new BufferedImageLuminanceSource(image))))
+                .getText();
+        assertThat(text).isEqualTo(payload);
+    }
+
+    // 2 : Même demande = même image (cache)
+    @Test
+    void render_shouldReuseCachedImage() {
+        byte[] first = qrCodeRenderer.render(payload, null, "png");
+        byte[] second = qrCodeRenderer.render(payload, null, "png");
+
+        assertThat(second).isSameAs(first);
+    }
+
+    // 3 : Format SVG
+    @Test
+    void render_shouldProduceSvg() {
+        String svg = new String(qrCodeRenderer.render(payload, 300, "svg"), StandardCharsets.UTF_8);
+
+        assertThat(svg).startsWith("<svg").contains("width=\"300\"").contains("<path");
+    }
+
+    // 4 : Billet pas encore généré
+    @Test
+    void render_shouldThrowWithoutPayload() {
+        assertThatThrownBy(() -> qrCodeRenderer.render(null, null, "png"))
+                .isInstanceOf(UserNotFoundException.class)
+                .hasMessageContaining("Billet en cours de génération");
+    }
+}
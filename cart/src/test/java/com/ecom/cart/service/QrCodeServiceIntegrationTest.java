@@ -96,17 +96,15 @@ class QrCodeServiceIntegrationTest {
         // On simule la récupération des items du panier
         when(cartRepository.findByOrderId(order.getId())).thenReturn(List.of(cartItem));
 
-        // On simule la récupération du produit
-        when(productRestClient.findById(anyString(), eq(product.getId()))).thenReturn(product);
-
-        // On simule la sauvegarde du panier
-        when(cartRepository.save(any(CartItems.class))).thenReturn(cartItem);
+        // On simule la récupération groupée des produits
+        when(productRestClient.findListById(anyString(), eq(List.of(product.getId())))).thenReturn(List.of(product));
 
         // Appel de la méthode testée
         qrCodeService.generateQrCode(user.getId(), order.getId());
 
-        // Vérification, méthode save appelée
-        verify(cartRepository, times(1)).save(cartItem);
+        // Vérification, QR code généré et sauvegarde groupée
+        assertThat(cartItem.getQrPayload()).isNotEmpty();
+        verify(cartRepository, times(1)).saveAll(List.of(cartItem));
     }
 
     // 2 : Décryptage QR code valide
@@ -11,17 +11,22 @@ import com.ecom.cart.model.User;
 import com.ecom.cart.repository.CartRepository;
 import com.ecom.cart.response.UserNotFoundException;
 import com.ecom.cart.services.QrCodeService;
+import com.ecom.cart.services.TicketKeyCache;
+import com.ecom.cart.services.TicketSigningService;
 import com.ecom.cart.services.TokenTechnicService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
 import org.springframework.mock.web.MockMultipartFile;
 
 import javax.crypto.spec.SecretKeySpec;
 import java.util.Base64;
 import java.util.List;
+import java.util.concurrent.Executor;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
@@ -47,6 +52,15 @@ class QrCodeServiceUnitTest {
     @Mock
     private ProductRestClient productRestClient;
 
+    @Mock
+    private Executor qrCodeRenderExecutor;
+
+    @Mock
+    private TicketSigningService ticketSigningService;
+
+    @Spy
+    private TicketKeyCache ticketKeyCache = new TicketKeyCache(100, 600, 60, new SimpleMeterRegistry());
+
     private User user;
     private Order order;
     private Product product;
@@ -57,6 +71,15 @@ class QrCodeServiceUnitTest {
         // Initialisation
         MockitoAnnotations.openMocks(this);
 
+        // Le rendu s'exécute dans le thread du test
+        doAnswer(invocation -> {
+            ((Runnable) invocation.getArgument(0)).run();
+            return null;
+        }).when(qrCodeRenderExecutor).execute(any(Runnable.class));
+
+        // Signature du billet
+        when(ticketSigningService.sign(any())).thenReturn("v1.contenu.signature");
+
         // Création d’un utilisateur avec clé secrète
         user = new User();
         user.setId(1L);
@@ -154,18 +177,67 @@ class QrCodeServiceUnitTest {
         // Simulation des cartItems existants pour cette commande
         when(cartRepository.findByOrderId(order.getId())).thenReturn(List.of(cartItem));
 
-        // Simulation de récupération du produit correspondant au cartItem
-        when(productRestClient.findById(anyString(), eq(product.getId()))).thenReturn(product);
-
-        // Simulation de la sauvegarde du cartItem
-        when(cartRepository.save(any(CartItems.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        // Simulation de récupération groupée des produits
+        when(productRestClient.findListById(anyString(), eq(List.of(product.getId())))).thenReturn(List.of(product));
 
         //Appel de la méthode testée
         qrCodeService.generateQrCode(user.getId(), order.getId());
 
         // Vérification : le QR code = ok
-        assertThat(cartItem.getQrCode()).isNotNull();
-        assertThat(cartItem.getQrCode().length).isGreaterThan(0);
+        assertThat(cartItem.getQrPayload()).isNotNull();
+        assertThat(cartItem.getQrPayload()).contains("\"Nom\":\"John\"").contains("\"Billet\":\"v1.contenu.signature\"");
+        verify(cartRepository, times(1)).saveAll(List.of(cartItem));
+    }
+
+    // 4 bis : Commande à plusieurs items : utilisateur, commande et produits récupérés une seule fois
+    @Test
+    void generateQrCode_shouldFetchKeysAndProductsOnce() {
+        when(tokenTechnicService.getTechnicalToken()).thenReturn("token");
+        when(userRestClient.findUserById(anyString(), eq(user.getId()))).thenReturn(user);
+        when(orderRestClient.findById(anyString(), eq(order.getId()))).thenReturn(order);
+
+        // Deux items pour le même produit et un item pour un second produit
+        Product other = new Product();
+        other.setId(2L);
+        other.setName("Pass");
+        CartItems second = new CartItems();
+        second.setId(2L);
+        second.setOrderId(order.getId());
+        second.setProductId(product.getId());
+        second.setQuantity(1L);
+        CartItems third = new CartItems();
+        third.setId(3L);
+        third.setOrderId(order.getId());
+        third.setProductId(other.getId());
+        third.setQuantity(3L);
+        when(cartRepository.findByOrderId(order.getId())).thenReturn(List.of(cartItem, second, third));
+        when(productRestClient.findListById(anyString(), eq(List.of(1L, 2L)))).thenReturn(List.of(product, other));
+
+        qrCodeService.generateQrCode(user.getId(), order.getId());
+
+        // Vérification : un seul appel par service et tous les QR codes générés
+        verify(userRestClient, times(1)).findUserById(anyString(), eq(user.getId()));
+        verify(orderRestClient, times(1)).findById(anyString(), eq(order.getId()));
+        verify(productRestClient, never()).findById(anyString(), anyLong());
+        verify(qrCodeRenderExecutor, times(3)).execute(any(Runnable.class));
+        assertThat(third.getQrPayload()).isNotEmpty();
+        verify(cartRepository, times(1)).saveAll(List.of(cartItem, second, third));
+    }
+
+    // 4 ter : Produit introuvable : aucune sauvegarde
+    @Test
+    void generateQrCode_shouldThrowWhenProductMissing() {
+        when(tokenTechnicService.getTechnicalToken()).thenReturn("token");
+        when(userRestClient.findUserById(anyString(), eq(user.getId()))).thenReturn(user);
+        when(orderRestClient.findById(anyString(), eq(order.getId()))).thenReturn(order);
+        when(cartRepository.findByOrderId(order.getId())).thenReturn(List.of(cartItem));
+        // On simule le service produits indisponible (fallback)
+        when(productRestClient.findListById(anyString(), anyList())).thenReturn(List.of());
+
+        assertThatThrownBy(() -> qrCodeService.generateQrCode(user.getId(), order.getId()))
+                .isInstanceOf(UserNotFoundException.class)
+                .hasMessageContaining("Service indisponible");
+        verify(cartRepository, never()).saveAll(anyList());
     }
 
     // 5 : Test exception si l'utilisateur est introuvable lors de la génération du QR code
@@ -213,4 +285,68 @@ class QrCodeServiceUnitTest {
         assertThat(result).isNotNull();
         assertThat(result.getOutputCode()).contains(user.getName());
     }
-}
\ No newline at end of file
+
+    // 8 : Scans successifs : les clés sont dérivées une seule fois puis lues en cache
+    @Test
+    void decryptKey_shouldUseCachedKey() throws Exception {
+        when(tokenTechnicService.getTechnicalToken()).thenReturn("token");
+        when(userRestClient.findUserById(anyString(), eq(user.getId()))).thenReturn(user);
+        when(orderRestClient.findById(anyString(), eq(order.getId()))).thenReturn(order);
+
+        String encryptedCode = qrCodeService.encryptKey(user.getId(), order.getId(), user.getName());
+
+        // Trois scans du même billet
+        for (int i = 0; i < 3; i++) {
+            assertThat(qrCodeService.decryptKey(user.getId(), order.getId(), encryptedCode).getBody().getOutputCode())
+                    .contains(user.getName());
+        }
+
+        // Vérification : un seul aller-retour vers users et orders
+        verify(userRestClient, times(1)).findUserById(anyString(), eq(user.getId()));
+        verify(orderRestClient, times(1)).findById(anyString(), eq(order.getId()));
+        assertThat(ticketKeyCache.hitRate()).isGreaterThan(0.5);
+    }
+
+    // 9 : Clé de commande changée : la clé en cache est remplacée
+    @Test
+    void decryptKey_shouldRefreshStaleKey() throws Exception {
+        when(tokenTechnicService.getTechnicalToken()).thenReturn("token");
+        when(userRestClient.findUserById(anyString(), eq(user.getId()))).thenReturn(user);
+        when(orderRestClient.findById(anyString(), eq(order.getId()))).thenReturn(order);
+
+        // Ancienne clé dérivée
+        SecretKeySpec oldKey = qrCodeService.getKeyFormUserAndOrder(user.getId(), order.getId());
+
+        // On simule une nouvelle clé secrète pour la commande et un billet chiffré avec elle
+        order.setSecretKey(Base64.getEncoder().encodeToString("newOrderKey12345".getBytes()));
+        ticketKeyCache.invalidate(user.getId(), order.getId());
+        String encryptedCode = qrCodeService.encryptKey(user.getId(), order.getId(), user.getName());
+
+        // Le cache contient encore l'ancienne clé
+        ticketKeyCache.put(user.getId(), order.getId(), oldKey);
+
+        DecryptDto result = qrCodeService.decryptKey(user.getId(), order.getId(), encryptedCode).getBody();
+
+        assertThat(result.getOutputCode()).contains(user.getName());
+    }
+
+    // 10 : Codes invalides répétés : une seule re-dérivation de la clé
+    @Test
+    void decryptKey_shouldRefreshKeyOnlyOnceForRepeatedInvalidCodes() {
+        when(tokenTechnicService.getTechnicalToken()).thenReturn("token");
+        when(userRestClient.findUserById(anyString(), eq(user.getId()))).thenReturn(user);
+        when(orderRestClient.findById(anyString(), eq(order.getId()))).thenReturn(order);
+
+        // IV + bloc incomplet : le déchiffrement échoue toujours
+        String invalidCode = Base64.getEncoder().encodeToString(new byte[21]);
+
+        for (int i = 0; i < 3; i++) {
+            assertThatThrownBy(() -> qrCodeService.decryptKey(user.getId(), order.getId(), invalidCode))
+                    .isInstanceOf(UserNotFoundException.class);
+        }
+
+        // Vérification : dérivation initiale + une seule re-dérivation
+        verify(userRestClient, times(2)).findUserById(anyString(), eq(user.getId()));
+        verify(orderRestClient, times(2)).findById(anyString(), eq(order.getId()));
+    }
+}
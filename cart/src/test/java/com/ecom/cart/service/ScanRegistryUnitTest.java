@@ -0,0 +1,186 @@
+package com.ecom.cart.service;
+
+import com.ecom.cart.entity.TicketScan;
+import com.ecom.cart.repository.TicketScanRepository;
+import com.ecom.cart.services.ScanRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Pageable;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+class ScanRegistryUnitTest {
+
+    @Mock
+    private TicketScanRepository ticketScanRepository;
+
+    @TempDir
+    Path tempDir;
+
+    private SimpleMeterRegistry meterRegistry;
+    private ScanRegistry scanRegistry;
+    private Path journal;
+
+    @BeforeEach
+    void setUp() {
+        // Initialisation, journal local dans un dossier temporaire
+        MockitoAnnotations.openMocks(this);
+        meterRegistry = new SimpleMeterRegistry();
+        journal = tempDir.resolve("scan-journal.log");
+        scanRegistry = new ScanRegistry(ticketScanRepository, meterRegistry, journal);
+    }
+
+    // 1 : Premier scan accepté, second refusé et compté
+    @Test
+    void register_shouldDetectDuplicate() {
+        assertThat(scanRegistry.register("item:1")).isTrue();
+        assertThat(scanRegistry.register("item:1")).isFalse();
+
+        assertThat(meterRegistry.get("tickets.scans").tag("result", "duplicate").counter().count()).isEqualTo(1.0);
+    }
+
+    // 2 : Scans simultanés du même billet, un seul gagnant
+    @Test
+    void register_shouldAcceptOnlyOneConcurrentScan() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(16);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger winners = new AtomicInteger();
+        for (int i = 0; i < 200; i++) {
+            pool.submit(() -> {
+                start.await();
+                if (scanRegistry.register("item:42")) {
+                    winners.incrementAndGet();
+                }
+                return null;
+            });
+        }
+        start.countDown();
+        pool.shutdown();
+        assertThat(pool.awaitTermination(5, TimeUnit.SECONDS)).isTrue();
+
+        assertThat(winners.get()).isEqualTo(1);
+    }
+
+    // 2 bis : Billet déjà scanné à une autre instance, refusé par la clé unique
+    @Test
+    void register_shouldRejectScanRecordedByAnotherInstance() {
+        when(ticketScanRepository.saveAndFlush(any(TicketScan.class))).thenThrow(new DataIntegrityViolationException("uk ticket_key"));
+
+        assertThat(scanRegistry.register("item:9")).isFalse();
+        assertThat(scanRegistry.register("item:9")).isFalse();
+
+        // Vérification : un seul aller-retour, le billet est ensuite connu localement
+        verify(ticketScanRepository, times(1)).saveAndFlush(any(TicketScan.class));
+        assertThat(meterRegistry.get("tickets.scans").tag("result", "duplicate").counter().count()).isEqualTo(2.0);
+    }
+
+    // 3 : Base indisponible au scan, journalisation par lot ensuite
+    @Test
+    @SuppressWarnings("unchecked")
+    void flush_shouldSaveScansInOneBatch() {
+        when(ticketScanRepository.saveAndFlush(any(TicketScan.class))).thenThrow(new RuntimeException("base indisponible"));
+        scanRegistry.register("item:1");
+        scanRegistry.register("item:2");
+        scanRegistry.register("item:2");
+
+        scanRegistry.flush();
+
+        ArgumentCaptor<List<TicketScan>> captor = ArgumentCaptor.forClass(List.class);
+        verify(ticketScanRepository, times(1)).saveAll(captor.capture());
+        assertThat(captor.getValue()).extracting(TicketScan::getTicketKey).containsExactly("item:1", "item:2");
+
+        // Plus rien à journaliser
+        scanRegistry.flush();
+        verify(ticketScanRepository, times(1)).saveAll(anyList());
+    }
+
+    // 4 : Base indisponible, les scans sont conservés
+    @Test
+    void flush_shouldKeepScansWhenDatabaseFails() {
+        when(ticketScanRepository.saveAndFlush(any(TicketScan.class))).thenThrow(new RuntimeException("base indisponible"));
+        scanRegistry.register("item:1");
+        when(ticketScanRepository.saveAll(anyList())).thenThrow(new RuntimeException("base indisponible")).thenReturn(List.of());
+
+        scanRegistry.flush();
+        scanRegistry.flush();
+
+        verify(ticketScanRepository, times(2)).saveAll(anyList());
+    }
+
+    // 4 bis : Doublon accepté par deux instances pendant la panne, compté à la journalisation
+    @Test
+    void flush_shouldCountDuplicatesAdmittedByAnotherInstance() {
+        when(ticketScanRepository.saveAndFlush(any(TicketScan.class))).thenThrow(new RuntimeException("base indisponible"));
+        scanRegistry.register("item:3");
+        when(ticketScanRepository.saveAll(anyList())).thenThrow(new DataIntegrityViolationException("uk ticket_key"));
+        when(ticketScanRepository.save(any(TicketScan.class))).thenThrow(new DataIntegrityViolationException("uk ticket_key"));
+
+        scanRegistry.flush();
+
+        assertThat(meterRegistry.get("tickets.scans.admitted-duplicates").counter().count()).isEqualTo(1.0);
+    }
+
+    // 5 : Reprise après redémarrage
+    @Test
+    void recover_shouldReloadScannedTickets() {
+        when(ticketScanRepository.findTicketKeys(any(Pageable.class))).thenReturn(List.of("item:7"));
+
+        scanRegistry.recover();
+
+        assertThat(scanRegistry.isScanned("item:7")).isTrue();
+        assertThat(scanRegistry.register("item:7")).isFalse();
+    }
+
+    // 6 : Arrêt brutal pendant la panne : les scans du journal local sont rejoués au redémarrage
+    @Test
+    @SuppressWarnings("unchecked")
+    void recover_shouldReplayJournalAfterCrash() {
+        when(ticketScanRepository.saveAndFlush(any(TicketScan.class))).thenThrow(new RuntimeException("base indisponible"));
+        scanRegistry.register("item:1");
+        scanRegistry.register("item:2");
+        assertThat(journal).exists();
+
+        // On simule le redémarrage : nouvelle instance, item:2 déjà écrit en base avant l'arrêt
+        ScanRegistry restarted = new ScanRegistry(ticketScanRepository, new SimpleMeterRegistry(), journal);
+        when(ticketScanRepository.findTicketKeys(any(Pageable.class))).thenReturn(List.of("item:2"));
+        restarted.recover();
+
+        assertThat(restarted.isScanned("item:1")).isTrue();
+        assertThat(restarted.register("item:1")).isFalse();
+
+        // Seul le scan absent de la base est rejoué, puis le journal est vidé
+        restarted.flush();
+        ArgumentCaptor<List<TicketScan>> captor = ArgumentCaptor.forClass(List.class);
+        verify(ticketScanRepository, times(1)).saveAll(captor.capture());
+        assertThat(captor.getValue()).extracting(TicketScan::getTicketKey).containsExactly("item:1");
+        assertThat(journal).doesNotExist();
+    }
+
+    // 6 bis : Journal conservé tant que la base reste indisponible
+    @Test
+    void flush_shouldKeepJournalWhenDatabaseFails() throws Exception {
+        when(ticketScanRepository.saveAndFlush(any(TicketScan.class))).thenThrow(new RuntimeException("base indisponible"));
+        when(ticketScanRepository.saveAll(anyList())).thenThrow(new RuntimeException("base indisponible"));
+        scanRegistry.register("item:5");
+
+        scanRegistry.flush();
+
+        assertThat(Files.readAllLines(journal)).hasSize(1).allMatch(line -> line.endsWith("\titem:5"));
+    }
+}
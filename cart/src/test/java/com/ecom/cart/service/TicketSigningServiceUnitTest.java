@@ -0,0 +1,195 @@
+package com.ecom.cart.service;
+
+import com.ecom.cart.dto.SignedTicketDto;
+import com.ecom.cart.dto.TicketPublicKeyDto;
+import com.ecom.cart.entity.TicketSigningKey;
+import com.ecom.cart.repository.TicketSigningKeyRepository;
+import com.ecom.cart.response.UserNotFoundException;
+import com.ecom.cart.security.TicketKeyEncryptor;
+import com.ecom.cart.security.TicketSignatureVerifier;
+import com.ecom.cart.services.TicketSigningService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.security.KeyPairGenerator;
+import java.security.PublicKey;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+class TicketSigningServiceUnitTest {
+
+    private TicketSigningService ticketSigningService;
+
+    @Mock
+    private TicketSigningKeyRepository ticketSigningKeyRepository;
+
+    // Clé maître de test (256 bits)
+    private final TicketKeyEncryptor ticketKeyEncryptor = new TicketKeyEncryptor(Base64.getEncoder().encodeToString(new byte[32]));
+
+    // Table des clés simulée en mémoire
+    private final List<TicketSigningKey> keys = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        // Initialisation
+        MockitoAnnotations.openMocks(this);
+        ticketSigningService = new TicketSigningService(ticketSigningKeyRepository, ticketKeyEncryptor);
+
+        when(ticketSigningKeyRepository.save(any(TicketSigningKey.class))).thenAnswer(invocation -> {
+            TicketSigningKey key = invocation.getArgument(0);
+            if (!keys.contains(key)) {
+                keys.add(key);
+            }
+            return key;
+        });
+        when(ticketSigningKeyRepository.findAllByOrderByIdAsc()).thenAnswer(invocation -> List.copyOf(keys));
+        when(ticketSigningKeyRepository.findFirstByActiveTrueOrderByIdDesc())
+                .thenAnswer(invocation -> keys.stream().filter(TicketSigningKey::isActive).reduce((a, b) -> b));
+    }
+
+    private SignedTicketDto claims() {
+        return SignedTicketDto.builder().itemId(5L).orderId(10L).userId(1L).name("John").type("Solo").quantity(2L).build();
+    }
+
+    // 1 : Billet signé puis vérifié
+    @Test
+    void sign_shouldProduceVerifiableTicket() {
+        String ticket = ticketSigningService.sign(claims());
+
+        SignedTicketDto result = ticketSigningService.verify(ticket);
+
+        assertThat(ticket.split("\\.")).hasSize(3);
+        assertThat(result.getKid()).isEqualTo("v1");
+        assertThat(result.getOrderId()).isEqualTo(10L);
+        assertThat(result.getIssuedAt()).isNotNull();
+    }
+
+    // 2 : Billet modifié = refusé
+    @Test
+    void verify_shouldRejectTamperedTicket() {
+        String ticket = ticketSigningService.sign(claims());
+        String[] parts = ticket.split("\\.");
+        String forged = ticketSigningService.sign(SignedTicketDto.builder().orderId(99L).userId(1L).build()).split("\\.")[1];
+
+        assertThatThrownBy(() -> ticketSigningService.verify(parts[0] + "." + forged + "." + parts[2]))
+                .isInstanceOf(UserNotFoundException.class)
+                .hasMessageContaining("Billet non authentique");
+    }
+
+    // 3 : Rotation, les anciens billets restent valides
+    @Test
+    void rotate_shouldKeepOldTicketsValid() {
+        String oldTicket = ticketSigningService.sign(claims());
+
+        TicketPublicKeyDto newKey = ticketSigningService.rotate();
+        String newTicket = ticketSigningService.sign(claims());
+
+        assertThat(newKey.getKid()).isEqualTo("v2");
+        assertThat(ticketSigningService.verify(oldTicket).getKid()).isEqualTo("v1");
+        assertThat(ticketSigningService.verify(newTicket).getKid()).isEqualTo("v2");
+        assertThat(ticketSigningService.publicKeys()).extracting(TicketPublicKeyDto::getKid).containsExactly("v1", "v2");
+    }
+
+    // 4 : Vérification hors ligne avec les seules clés publiques publiées
+    @Test
+    void verifier_shouldWorkWithPublishedKeysOnly() throws Exception {
+        String ticket = ticketSigningService.sign(claims());
+        TicketPublicKeyDto published = ticketSigningService.publicKeys().get(0);
+        PublicKey publicKey = TicketSignatureVerifier.decodePublicKey(published.getPublicKey());
+
+        TicketSignatureVerifier verifier = new TicketSignatureVerifier(Map.of(published.getKid(), publicKey));
+
+        assertThat(verifier.verify(ticket).getName()).isEqualTo("John");
+        assertThatThrownBy(() -> new TicketSignatureVerifier(Map.of()).verify(ticket))
+                .isInstanceOf(UserNotFoundException.class)
+                .hasMessageContaining("Clé de signature inconnue");
+    }
+
+    // 5 : Clé privée chiffrée en base, ancienne clé en clair chiffrée au chargement
+    @Test
+    void loadKeys_shouldStorePrivateKeysEncrypted() throws Exception {
+        TicketSigningKey legacy = TicketSigningKey.builder()
+                .kid("v1")
+                .publicKey(Base64.getEncoder().encodeToString(KeyPairGenerator.getInstance(TicketSignatureVerifier.ALGORITHM).generateKeyPair().getPublic().getEncoded()))
+                .privateKey(Base64.getEncoder().encodeToString(KeyPairGenerator.getInstance(TicketSignatureVerifier.ALGORITHM).generateKeyPair().getPrivate().getEncoded()))
+                .active(false)
+                .createdAt(Instant.now())
+                .build();
+        keys.add(legacy);
+
+        ticketSigningService.rotate();
+        ticketSigningService.sign(claims());
+
+        assertThat(keys).extracting(TicketSigningKey::getPrivateKey).allMatch(ticketKeyEncryptor::isEncrypted);
+    }
+
+    // 6 : Rotation faite par une autre instance : la nouvelle clé est reprise
+    @Test
+    void refreshActiveKey_shouldPickUpRotationFromAnotherInstance() {
+        ticketSigningService.sign(claims());
+
+        // On simule la rotation sur une autre instance
+        new TicketSigningService(ticketSigningKeyRepository, ticketKeyEncryptor).rotate();
+
+        ticketSigningService.refreshActiveKey();
+        String ticket = ticketSigningService.sign(claims());
+
+        assertThat(ticketSigningService.verify(ticket).getKid()).isEqualTo("v2");
+    }
+
+    // 7 : Premier démarrage concurrent : on relit la clé créée par l'autre instance
+    @Test
+    void sign_shouldReuseKeyCreatedConcurrently() {
+        // On simule une autre instance qui crée la clé v1
+        new TicketSigningService(ticketSigningKeyRepository, ticketKeyEncryptor).sign(claims());
+        TicketSigningKey winner = keys.get(0);
+
+        // Aucune clé lue au départ, puis conflit sur kid à l'insertion
+        doReturn(Optional.empty(), Optional.of(winner)).when(ticketSigningKeyRepository).findFirstByActiveTrueOrderByIdDesc();
+        doThrow(new DataIntegrityViolationException("uk kid")).when(ticketSigningKeyRepository).save(any(TicketSigningKey.class));
+
+        String ticket = ticketSigningService.sign(claims());
+
+        assertThat(ticketSigningService.verify(ticket).getKid()).isEqualTo("v1");
+        assertThat(keys).hasSize(1);
+    }
+
+    // 8 : Billet signé avec une clé d'une autre instance : rechargement puis vérification
+    @Test
+    void verify_shouldReloadWhenAnotherInstanceRotated() {
+        ticketSigningService.sign(claims());
+
+        // On simule la rotation et la signature sur une autre instance
+        TicketSigningService other = new TicketSigningService(ticketSigningKeyRepository, ticketKeyEncryptor);
+        other.rotate();
+        String ticket = other.sign(claims());
+
+        assertThat(ticketSigningService.verify(ticket).getKid()).isEqualTo("v2");
+    }
+
+    // 9 : Kid inconnu sans nouvelle clé active : refus sans recharger toutes les clés
+    @Test
+    void verify_shouldNotReloadKeysForUnknownKid() {
+        String[] parts = ticketSigningService.sign(claims()).split("\\.");
+        clearInvocations(ticketSigningKeyRepository);
+
+        for (int i = 0; i < 3; i++) {
+            assertThatThrownBy(() -> ticketSigningService.verify("v99." + parts[1] + "." + parts[2]))
+                    .isInstanceOf(UserNotFoundException.class)
+                    .hasMessageContaining("Clé de signature inconnue");
+        }
+
+        verify(ticketSigningKeyRepository, never()).findAllByOrderByIdAsc();
+    }
+}
@@ -0,0 +1,189 @@
+package com.ecom.cart.service;
+
+import com.ecom.cart.dto.DecryptDto;
+import com.ecom.cart.dto.QrCodeDto;
+import com.ecom.cart.dto.SignedTicketDto;
+import com.ecom.cart.dto.TicketVerificationDto;
+import com.ecom.cart.response.UserNotFoundException;
+import com.ecom.cart.services.QrCodeService;
+import com.ecom.cart.services.ScanRegistry;
+import com.ecom.cart.services.TicketSigningService;
+import com.ecom.cart.services.TicketVerificationService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+class TicketVerificationServiceUnitTest {
+
+    @InjectMocks
+    private TicketVerificationService ticketVerificationService;
+
+    @Mock
+    private QrCodeService qrCodeService;
+
+    @Mock
+    private TicketSigningService ticketSigningService;
+
+    @Mock
+    private Executor qrCodeVerifyExecutor;
+
+    @Mock
+    private ScanRegistry scanRegistry;
+
+    private MockMultipartFile image;
+    private QrCodeDto qrCodeDto;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        // Initialisation
+        MockitoAnnotations.openMocks(this);
+
+        // Les vérifications s'exécutent dans le thread du test
+        doAnswer(invocation -> {
+            ((Runnable) invocation.getArgument(0)).run();
+            return null;
+        }).when(qrCodeVerifyExecutor).execute(any(Runnable.class));
+
+        // Premier passage des billets
+        when(scanRegistry.register(anyString())).thenReturn(true);
+
+        image = new MockMultipartFile("img", "billet.png", "image/png", new byte[]{1, 2, 3});
+
+        // Contenu lu dans le QR code
+        qrCodeDto = new QrCodeDto();
+        qrCodeDto.setName("John");
+        qrCodeDto.setType("Solo");
+        qrCodeDto.setQuantity("2");
+        qrCodeDto.setCommande("10");
+        qrCodeDto.setClient("1");
+        qrCodeDto.setCode("code");
+        when(qrCodeService.decryptQrCode(image)).thenReturn(ResponseEntity.ok(qrCodeDto));
+    }
+
+    // 1 : Billet valide en un seul appel
+    @Test
+    void verifyTicket_shouldReturnValidVerdict() throws Exception {
+        DecryptDto decryptDto = new DecryptDto();
+        decryptDto.setOutputCode("Billet valide pour le client : John");
+        when(qrCodeService.decryptKey(1L, 10L, "code")).thenReturn(ResponseEntity.ok(decryptDto));
+
+        TicketVerificationDto result = ticketVerificationService.verifyTicket(image);
+
+        assertThat(result.isValid()).isTrue();
+        assertThat(result.getFileName()).isEqualTo("billet.png");
+        assertThat(result.getType()).isEqualTo("Solo");
+    }
+
+    // 2 : Code de sécurité refusé
+    @Test
+    void verifyTicket_shouldReturnInvalidVerdict() throws Exception {
+        // On simule un code qui ne se déchiffre pas
+        when(qrCodeService.decryptKey(1L, 10L, "code")).thenThrow(new UserNotFoundException("Code de sécurité invalide"));
+
+        TicketVerificationDto result = ticketVerificationService.verifyTicket(image);
+
+        assertThat(result.isValid()).isFalse();
+        assertThat(result.getMessage()).isEqualTo("Code de sécurité invalide");
+    }
+
+    // 3 : Image sans QR code
+    @Test
+    void verifyTicket_shouldReportUnreadableImage() {
+        when(qrCodeService.decryptQrCode(image))
+                .thenThrow(new RuntimeException("Erreur lecture QR code", new UserNotFoundException("Le fichier ne contient pas de QR code")));
+
+        TicketVerificationDto result = ticketVerificationService.verifyTicket(image);
+
+        assertThat(result.isValid()).isFalse();
+        assertThat(result.getMessage()).isEqualTo("Le fichier ne contient pas de QR code");
+    }
+
+    // 4 : Lot de scans, un verdict par image dans le même ordre
+    @Test
+    void verifyTickets_shouldVerifyEachImage() throws Exception {
+        MockMultipartFile unreadable = new MockMultipartFile("imgs", "vide.png", "image/png", new byte[0]);
+        when(qrCodeService.decryptQrCode(unreadable)).thenThrow(new UserNotFoundException("Le fichier QR code est vide ou null"));
+        DecryptDto decryptDto = new DecryptDto();
+        decryptDto.setOutputCode("Billet valide pour le client : John");
+        when(qrCodeService.decryptKey(1L, 10L, "code")).thenReturn(ResponseEntity.ok(decryptDto));
+
+        List<TicketVerificationDto> results = ticketVerificationService.verifyTickets(List.of(image, unreadable));
+
+        assertThat(results).hasSize(2);
+        assertThat(results.get(0).isValid()).isTrue();
+        assertThat(results.get(1).isValid()).isFalse();
+        assertThat(results.get(1).getFileName()).isEqualTo("vide.png");
+        verify(qrCodeVerifyExecutor, times(2)).execute(any(Runnable.class));
+    }
+
+    // 4 bis : Billet signé vérifié localement, sans déchiffrement AES
+    @Test
+    void verifyTicket_shouldUseSignatureWhenPresent() throws Exception {
+        qrCodeDto.setTicket("v1.contenu.signature");
+        when(ticketSigningService.verify("v1.contenu.signature"))
+                .thenReturn(SignedTicketDto.builder().kid("v1").orderId(10L).userId(1L).name("John").type("Solo").quantity(2L).build());
+
+        TicketVerificationDto result = ticketVerificationService.verifyTicket(image);
+
+        assertThat(result.isValid()).isTrue();
+        verify(qrCodeService, never()).decryptKey(anyLong(), anyLong(), anyString());
+    }
+
+    // 4 bis bis : Quantité et type modifiés dans le QR code, jeton signé d'origine conservé
+    @Test
+    void verifyTicket_shouldRejectEditedFieldsAndShowSignedContent() {
+        qrCodeDto.setTicket("v1.contenu.signature");
+        qrCodeDto.setType("Famille");
+        qrCodeDto.setQuantity("4");
+        when(ticketSigningService.verify("v1.contenu.signature"))
+                .thenReturn(SignedTicketDto.builder().kid("v1").orderId(10L).userId(1L).name("John").type("Solo").quantity(2L).build());
+
+        TicketVerificationDto result = ticketVerificationService.verifyTicket(image);
+
+        // Vérification : refusé, et le verdict affiche le contenu signé
+        assertThat(result.isValid()).isFalse();
+        assertThat(result.getMessage()).isEqualTo("Billet non authentique");
+        assertThat(result.getType()).isEqualTo("Solo");
+        assertThat(result.getQuantity()).isEqualTo("2");
+        verify(scanRegistry, never()).register(anyString());
+    }
+
+    // 4 ter : Billet déjà présenté = refusé
+    @Test
+    void verifyTicket_shouldRejectSecondScan() {
+        qrCodeDto.setTicket("v1.contenu.signature");
+        when(ticketSigningService.verify("v1.contenu.signature"))
+                .thenReturn(SignedTicketDto.builder().kid("v1").itemId(5L).orderId(10L).userId(1L).name("John").type("Solo").quantity(2L).build());
+        // On simule un billet déjà scanné à une autre entrée
+        when(scanRegistry.register(anyString())).thenReturn(false);
+
+        TicketVerificationDto result = ticketVerificationService.verifyTicket(image);
+
+        assertThat(result.isValid()).isFalse();
+        assertThat(result.isAlreadyScanned()).isTrue();
+        assertThat(result.getMessage()).isEqualTo("Billet déjà scanné");
+    }
+
+    // 5 : Lot trop volumineux
+    @Test
+    void verifyTickets_shouldRejectOversizedBatch() {
+        List<MultipartFile> images = Collections.nCopies(101, image);
+
+        assertThatThrownBy(() -> ticketVerificationService.verifyTickets(images))
+                .isInstanceOf(UserNotFoundException.class)
+                .hasMessageContaining("Trop de QR codes");
+    }
+}
@@ -0,0 +1,68 @@
+package com.ecom.cart.service;
+
+import com.ecom.cart.clients.SecurityRestClient;
+import com.ecom.cart.dto.TokenTechnicDto;
+import com.ecom.cart.services.TokenTechnicService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TokenTechnicServiceUnitTest {
+
+    @Mock
+    private SecurityRestClient securityRestClient;
+
+    private TokenTechnicService tokenTechnicService;
+
+    @BeforeEach
+    void setUp() {
+        tokenTechnicService = new TokenTechnicService(securityRestClient);
+        ReflectionTestUtils.setField(tokenTechnicService, "clientId", "client");
+        ReflectionTestUtils.setField(tokenTechnicService, "clientSecret", "secret");
+        ReflectionTestUtils.setField(tokenTechnicService, "refreshMargin", 60L);
+    }
+
+    // 1 : Le token est demandé une seule fois puis servi depuis le cache
+    @Test
+    void getTechnicalToken_shouldReuseCachedToken() {
+        when(securityRestClient.getTokenTechnic(anyString(), anyString()))
+                .thenReturn(new TokenTechnicDto("token", "Bearer", 3600L, "users:read"));
+
+        assertEquals("token", tokenTechnicService.getTechnicalToken());
+        assertEquals("token", tokenTechnicService.getTechnicalToken());
+
+        verify(securityRestClient, times(1)).getTokenTechnic(anyString(), anyString());
+    }
+
+    // 2 : Le renouvellement en tâche de fond remplace le token proche de l'expiration
+    @Test
+    void refreshBeforeExpiry_shouldRenewTokenNearExpiry() {
+        when(securityRestClient.getTokenTechnic(anyString(), anyString()))
+                // On simule un premier token déjà arrivé à échéance
+                .thenReturn(new TokenTechnicDto("old-token", "Bearer", 0L, "users:read"))
+                .thenReturn(new TokenTechnicDto("new-token", "Bearer", 3600L, "users:read"));
+
+        assertEquals("old-token", tokenTechnicService.getTechnicalToken());
+        tokenTechnicService.refreshBeforeExpiry();
+
+        assertEquals("new-token", tokenTechnicService.getTechnicalToken());
+        verify(securityRestClient, times(2)).getTokenTechnic(anyString(), anyString());
+    }
+
+    // 3 : Fallback du circuit breaker sans token en cache = null
+    @Test
+    void getTechnicalToken_shouldReturnNullWhenFallback() {
+        when(securityRestClient.getTokenTechnic(anyString(), anyString()))
+                .thenReturn(new TokenTechnicDto(null, null, 0L, null));
+
+        assertNull(tokenTechnicService.getTechnicalToken());
+    }
+}
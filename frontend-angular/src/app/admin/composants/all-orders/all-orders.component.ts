@@ -5,7 +5,7 @@ import {AuthService} from '../../../services/auth.service';
 import {MatTableDataSource} from '@angular/material/table';
 import {AdminService} from '../../services/admin.service';
 
-type ColumnKey = 'commande' | 'amount' | 'date' | 'status' | 'action';
+type ColumnKey = 'commande' | 'client' | 'amount' | 'date' | 'status' | 'action';
 @Component({
   selector: 'app-all-orders',
   standalone: false,
@@ -16,7 +16,7 @@ export class AllOrdersComponent implements OnInit{
   loading = false;
   myOrders: any[] = [];
   dataSource = new MatTableDataSource<any>([]);
-  displayedColumns: ColumnKey[] = ['commande','amount','date','status','action'];
+  displayedColumns: ColumnKey[] = ['commande','client','amount','date','status','action'];
   error?: string;
   pagedOrders: any[] = [];        // ✅ commandes paginées pour mobile
   pageSizeMobile = 5;            // ✅ nombre d'éléments par page mobile
@@ -27,6 +27,7 @@ export class AllOrdersComponent implements OnInit{
   // Options de colonnes pour le filtre
   columnOptions: { key: ColumnKey; label: string; visible: boolean }[] = [
     { key: 'commande', label: 'Commande', visible: true },
+    { key: 'client',   label: 'Client',   visible: true },
     { key: 'amount',   label: 'Montant',  visible: true },
     { key: 'date',     label: 'Date',     visible: true },
     { key: 'status',   label: 'Status',   visible: true },
@@ -8,6 +8,7 @@ import {CartService} from '../../../services/cart.service';
 import {CaddiesService} from '../../../services/caddies.service';
 import {DeleteDialogComponent} from '../../../dialog/delete-dialog/delete-dialog.component';
 import {MatDialog} from '@angular/material/dialog';
+import {environment} from '../../../../environments/environment';
 
 @Component({
   selector: 'app-dashboard',
@@ -50,8 +51,8 @@ export class DashboardComponent implements OnInit {
         this.loading = false;
         // @ts-ignore
         data.forEach((p: { id: string | number; }) => this.quantityMap[p.id] = 1);
-        data.forEach((element: { processedImg: string; byteImg: string; }) => {
-          element.processedImg = 'data:image/jpeg;base64,' + element.byteImg;
+        data.forEach((element: { processedImg: string; imageUrl: string; }) => {
+          element.processedImg = environment.backend_products + element.imageUrl;
           this.products.push(element);
         })
       },
@@ -3,6 +3,7 @@ import {ActivatedRoute, Router} from '@angular/router';
 import {FormBuilder, FormGroup, Validators} from '@angular/forms';
 import {MatSnackBar} from '@angular/material/snack-bar';
 import {AdminService} from '../../services/admin.service';
+import {environment} from '../../../../environments/environment';
 
 @Component({
   selector: 'app-update-product',
@@ -36,7 +37,7 @@ export class UpdateProductComponent implements OnInit {
     this.adminService.getProductById(this.activatedRoute.snapshot.params['productId']).subscribe({
       next: data => {
         this.productForm.patchValue(data);
-        this.existingImage = 'data:image/jpeg;base64,' + data.byteImg;
+        this.existingImage = environment.backend_products + data.imageUrl;
       }
     })
   }
@@ -6,6 +6,7 @@ import {CartService} from '../services/cart.service';
 import {AuthService} from '../services/auth.service';
 import {Router} from '@angular/router';
 import {BehaviorSubject, filter, Subscription, take} from 'rxjs';
+import {environment} from '../../environments/environment';
 
 @Component({
   selector: 'app-caddy',
@@ -122,8 +123,8 @@ export class CaddyComponent implements OnInit {
           next: data => {
             this.valueBackend = data;
             this.entries = [];
-            this.valueBackend.cartItems.forEach((item: { processedImg: string; returnedImg: string; }) => {
-              item.processedImg = 'data:image/jpeg;base64,' + item.returnedImg;
+            this.valueBackend.cartItems.forEach((item: { processedImg: string; imageUrl: string; }) => {
+              item.processedImg = environment.backend_products + item.imageUrl;
               this.entries.push(item);
             })
             this.cartService.getSizeCaddy();
@@ -158,8 +159,8 @@ export class CaddyComponent implements OnInit {
       next: data => {
         this.loading=false;
         this.valueBackend = data;
-        this.valueBackend.cartItems.forEach((item: { processedImg: string; returnedImg: string; }) => {
-          item.processedImg = 'data:image/jpeg;base64,' + item.returnedImg;
+        this.valueBackend.cartItems.forEach((item: { processedImg: string; imageUrl: string; }) => {
+          item.processedImg = environment.backend_products + item.imageUrl;
           this.entries.push(item);
         })
       },
@@ -3,6 +3,7 @@ import {ActivatedRoute, Router} from '@angular/router';
 import {MatDialog} from '@angular/material/dialog';
 import {CustomerService} from '../../services/customer.service';
 import {QrCodeComponent} from '../qr-code/qr-code.component';
+import {environment} from '../../../../environments/environment';
 
 @Component({
   selector: 'app-detail-product-order',
@@ -32,9 +33,13 @@ export class DetailProductOrderComponent implements OnInit {
     this.customerService.getCartByOrderId(this.orderId).subscribe({
       next: (data: any) => {
         this.valueBackend = data;
-        this.valueBackend.cartItems.forEach((item: { processedImg: string; returnedImg: string; qrCodeImg:string; qrCode:string }) => {
-          item.processedImg = 'data:image/jpeg;base64,' + item.returnedImg;
-          item.qrCodeImg = 'data:image/png;base64,' + item.qrCode;
+        this.valueBackend.cartItems.forEach((item: { id: number; processedImg: string; imageUrl: string; qrCodeImg:string; ticketIssued:boolean }) => {
+          item.processedImg = environment.backend_products + item.imageUrl;
+          if (item.ticketIssued) {
+            this.customerService.getQrCodeImage(item.id, 150).subscribe({
+              next: (blob: Blob) => item.qrCodeImg = URL.createObjectURL(blob)
+            })
+          }
           this.productList.push(item);
         })
       }
@@ -4,6 +4,7 @@ import {AuthService} from '../../../services/auth.service';
 import {CartService} from '../../../services/cart.service';
 import {MatDialog} from '@angular/material/dialog';
 import {MatSnackBar} from '@angular/material/snack-bar';
+import {environment} from '../../../../environments/environment';
 
 
 @Component({
@@ -36,9 +37,8 @@ export class PlaceOrderComponent implements OnInit {
       next: data => {
         this.loading = false;
         this.valueBackend = data;
-        this.valueBackend.cartItems.forEach((item: { processedImg: string; returnedImg: string; qrCodeImg:string; qrCode:string }) => {
-          item.processedImg = 'data:image/jpeg;base64,' + item.returnedImg;
-          item.qrCodeImg = 'data:image/png;base64,' + item.qrCode;
+        this.valueBackend.cartItems.forEach((item: { processedImg: string; imageUrl: string }) => {
+          item.processedImg = environment.backend_products + item.imageUrl;
           this.entries.push(item);
         })
       },
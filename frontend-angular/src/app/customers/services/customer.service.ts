@@ -34,6 +34,10 @@ export class CustomerService {
     return this.http.get(`${environment.backend_cart}/qrCode/${id}`);
   }
 
+  public getQrCodeImage(id:number, size:number) {
+    return this.http.get(`${environment.backend_cart}/qrCode-image/${id}?size=${size}`, {responseType: 'blob'});
+  }
+
   public readQrCode(image:any) {
     return this.http.post(`${environment.backend_cart}/decryptQrCode`, image);
   }
@@ -7,6 +7,7 @@ import {Product} from '../model/product.model';
 import {CaddiesService} from '../services/caddies.service';
 import {AuthService} from '../services/auth.service';
 import {CartService} from '../services/cart.service';
+import {environment} from '../../environments/environment';
 
 @Component({
   selector: 'app-product',
@@ -43,8 +44,8 @@ export class ProductComponent implements OnInit {
         // @ts-ignore
         data.forEach((p: { id: string | number; }) => this.quantityMap[p.id] = 1);
         data.forEach(
-          (element: { processedImg: string; byteImg: string; }) =>{
-            element.processedImg = 'data:image/jpeg;base64,' + element.byteImg;
+          (element: { processedImg: string; imageUrl: string; }) =>{
+            element.processedImg = environment.backend_products + element.imageUrl;
             this.products.push(element);
           })
       },
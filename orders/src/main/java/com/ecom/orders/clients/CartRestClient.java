@@ -1,14 +1,17 @@
 package com.ecom.orders.clients;
 
-import com.ecom.orders.model.CartItems;
+import com.ecom.orders.dto.SoldItemDto;
+import com.ecom.orders.response.UserNotFoundException;
 import io.github.resilience4j.circuitbreaker.annotation.CircuitBreaker;
 import org.springframework.cloud.openfeign.FeignClient;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
 
 import java.util.List;
 import java.util.Map;
@@ -20,12 +23,31 @@ public interface CartRestClient {
     @CircuitBreaker(name="cart", fallbackMethod = "getDefaultCart")
     ResponseEntity<Void> generateQrCde(@RequestHeader("Authorization") String authorization, @RequestBody Map<String, Long> qrCode);
 
-    @GetMapping("/_internal/allCartByQrCodeIsNotNull")
-    @CircuitBreaker(name="cart", fallbackMethod = "getListCart")
-    List<CartItems> findByQrCodeIsNotNull(@RequestHeader("Authorization") String authorization);
+    @PostMapping("/_internal/activeOrder-evict")
+    @CircuitBreaker(name="cart", fallbackMethod = "getDefaultEvict")
+    ResponseEntity<Void> evictActiveOrder(@RequestHeader("Authorization") String authorization, @RequestBody Map<String, Long> activeOrder);
 
-    default List<CartItems> getListCart(Exception exception){
-        return List.of();
+    @GetMapping("/_internal/soldItems")
+    @CircuitBreaker(name="cart", fallbackMethod = "getSoldItems")
+    List<SoldItemDto> findSoldItems(@RequestHeader("Authorization") String authorization, @RequestParam("page") int page, @RequestParam("size") int size);
+
+    @GetMapping("/_internal/orderItems/{orderId}")
+    @CircuitBreaker(name="cart", fallbackMethod = "getOrderItems")
+    List<SoldItemDto> findOrderItems(@RequestHeader("Authorization") String authorization, @PathVariable Long orderId);
+
+    //une liste vide marquerait la commande comme cumulée sans ses ventes : on échoue, la reprise planifiée réessaiera
+    default List<SoldItemDto> getOrderItems(String authorization, Long orderId, Throwable throwable){
+        throw new UserNotFoundException("Service indisponible");
+    }
+
+    //une page manquante fausserait la reconstruction des cumuls : on échoue plutôt que de renvoyer une liste vide
+    default List<SoldItemDto> getSoldItems(String authorization, int page, int size, Throwable throwable){
+        throw new UserNotFoundException("Service indisponible");
+    }
+
+    //le TTL du cache côté panier prend le relais
+    default ResponseEntity<Void> getDefaultEvict(String authorization, Map<String, Long> activeOrder, Throwable throwable) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
     }
 
     default ResponseEntity<Void> getDefaultCart(String authorization, Map<String, Long> qrCode, Throwable throwable) {
@@ -1,12 +1,16 @@
 package com.ecom.orders.clients;
 
 
+import com.ecom.orders.dto.UserSummaryDto;
 import com.ecom.orders.model.User;
 import io.github.resilience4j.circuitbreaker.annotation.CircuitBreaker;
 import org.springframework.cloud.openfeign.FeignClient;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
 
 import java.util.List;
 
@@ -17,11 +21,21 @@ public interface UserRestClient {
     @CircuitBreaker(name="users", fallbackMethod = "getDefaultUser")
     User findUserById(@RequestHeader("Authorization") String authorization, @PathVariable Long id);
 
-    @GetMapping("/_internal/allUsers")
-    @CircuitBreaker(name="users", fallbackMethod = "getAllUser")
-    List<User> findAll(@RequestHeader("Authorization") String authorization);
+    @GetMapping("/_internal/users/ids")
+    @CircuitBreaker(name="users", fallbackMethod = "getDefaultUserIds")
+    List<Long> findUserIds(@RequestHeader("Authorization") String authorization, @RequestParam("afterId") Long afterId, @RequestParam("size") int size);
 
-    default List<User> getAllUser(Exception exception){
+    @PostMapping("/_internal/users/summaries")
+    @CircuitBreaker(name="users", fallbackMethod = "getDefaultSummaries")
+    List<UserSummaryDto> findSummaries(@RequestHeader("Authorization") String authorization, @RequestBody List<Long> ids);
+
+    //sans le service users, la liste des commandes reste affichée sans les emails
+    default List<UserSummaryDto> getDefaultSummaries(String authorization, List<Long> ids, Exception exception){
+        return List.of();
+    }
+
+    //page vide : la synchronisation reprendra au même point
+    default List<Long> getDefaultUserIds(String authorization, Long afterId, int size, Exception exception){
         return List.of();
     }
 
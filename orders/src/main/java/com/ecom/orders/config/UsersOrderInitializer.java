@@ -1,65 +1,69 @@
 package com.ecom.orders.config;
 
 import com.ecom.orders.clients.UserRestClient;
-import com.ecom.orders.entity.Order;
+import com.ecom.orders.entity.SyncState;
 import com.ecom.orders.enums.OrderStatus;
-import com.ecom.orders.model.User;
 import com.ecom.orders.repository.OrderRepository;
+import com.ecom.orders.repository.SyncStateRepository;
 import com.ecom.orders.services.TokenTechnicService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
-import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Date;
+import java.util.HashSet;
 import java.util.List;
-import java.util.UUID;
+import java.util.Set;
 
 @Slf4j
 @Component
 @RequiredArgsConstructor
 public class UsersOrderInitializer {
 
+    static final String USERS_ORDERS = "users-orders";
+    static final int PAGE_SIZE = 1000;
+
     private final UserRestClient userRestClient;
     private final OrderRepository orderRepository;
+    private final SyncStateRepository syncStateRepository;
     private final TokenTechnicService tokenTechnicService;
 
-    @Transactional
-    public void synchronize() {
+    //reprise depuis le dernier utilisateur synchronisé
+    public int synchronize() {
+        return synchronize(false);
+    }
+
+    //full = true : on repart du premier utilisateur
+    public int synchronize(boolean full) {
+        int created = 0;
         try {
             String token = "Bearer " + tokenTechnicService.getTechnicalToken();
+            SyncState state = syncStateRepository.findById(USERS_ORDERS)
+                    .orElseGet(() -> new SyncState(USERS_ORDERS, 0L, null));
+            long afterId = full ? 0L : state.getLastUserId();
 
-            List<User> users = userRestClient.findAll(token);
-
-            if (users == null || users.isEmpty()) {
-                log.warn("Aucun utilisateur trouvé.");
-                return;
-            }
-
-            log.info("Nombre d'utilisateurs récupérés: {}", users.size());
-
-            for (User user : users) {
-                if (user == null || user.getId() == null) continue;
+            List<Long> userIds;
+            do {
+                userIds = userRestClient.findUserIds(token, afterId, PAGE_SIZE);
+                if (userIds == null || userIds.isEmpty()) {
+                    break;
+                }
 
-                Order existingOrder = orderRepository.findByUserIdAndOrderStatus(user.getId(), OrderStatus.EnCours);
+                //une requête pour toute la page, puis une insertion groupée des commandes manquantes
+                Set<Long> missing = new HashSet<>(userIds);
+                orderRepository.findUserIdsWithStatus(userIds, OrderStatus.EnCours).forEach(missing::remove);
+                created += orderRepository.insertOpenOrders(missing);
 
-                if (existingOrder == null) {
-                    Order order = Order.builder()
-                            .amount(0L)
-                            .totalAmount(0L)
-                            .userId(user.getId())
-                            .orderStatus(OrderStatus.EnCours)
-                            .trackingId(UUID.randomUUID())
-                            .build();
-                    orderRepository.save(order);
-                    log.info("Commande créée pour l'utilisateur: {}", user.getEmail());
-                } else {
-                    log.debug("Commande déjà existante pour l'utilisateur: {}", user.getEmail());
-                }
-            }
+                afterId = userIds.get(userIds.size() - 1);
+                state.setLastUserId(Math.max(state.getLastUserId(), afterId));
+                state.setUpdatedAt(new Date());
+                syncStateRepository.save(state);
+            } while (userIds.size() == PAGE_SIZE);
 
+            log.info("Synchronisation des commandes : {} commande(s) créée(s), reprise après l'utilisateur {}", created, state.getLastUserId());
         } catch (Exception e) {
             log.error("Erreur lors de l'initialisation des commandes utilisateurs", e);
         }
+        return created;
     }
 }
-
@@ -1,6 +1,7 @@
 package com.ecom.orders.controller;
 
 import com.ecom.orders.config.UsersOrderInitializer;
+import com.ecom.orders.dto.OrderAmountDto;
 import com.ecom.orders.entity.Order;
 import com.ecom.orders.services.OrderService;
 import lombok.extern.slf4j.Slf4j;
@@ -26,6 +27,12 @@ public class MicroServiceController {
         this.orderService.updateOrderTotal(order);
     }
 
+    @PostMapping(path = "/_internal/order-amount")
+    public ResponseEntity<Void> addAmount(@RequestBody OrderAmountDto orderAmountDto) {
+        this.orderService.applyAmountDelta(orderAmountDto);
+        return ResponseEntity.ok().build();
+    }
+
     @PostMapping(path = "/_internal/order-user")
     public void orderSave(@RequestBody Order order) {
         this.orderService.newOrder(order);
@@ -37,9 +44,9 @@ public class MicroServiceController {
     }
 
     @PostMapping("/_internal/orders/sync")
-    public ResponseEntity<Void> synchronizeOrders() {
+    public ResponseEntity<Void> synchronizeOrders(@RequestParam(defaultValue = "false") boolean full) {
         log.info("demande sync recu");
-        usersOrderInitializer.synchronize();
+        usersOrderInitializer.synchronize(full);
         return ResponseEntity.ok().build();
     }
 
@@ -3,23 +3,44 @@ package com.ecom.orders.controller.admin;
 
 import com.ecom.orders.dto.AnalyticsResponse;
 import com.ecom.orders.dto.OrderDto;
+import com.ecom.orders.dto.OrderPageDto;
 import com.ecom.orders.services.AdminService;
+import com.ecom.orders.services.SalesRollupService;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.async.AsyncWebRequest;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.time.LocalDate;
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/admin")
 public class AdminOrderController {
 
     private final AdminService adminService;
+    private final SalesRollupService salesRollupService;
 
-    public AdminOrderController(AdminService adminService) {this.adminService = adminService;}
+    @Value("${orders.export.timeout:600000}")
+    private long exportTimeout = 600000;
+
+    public AdminOrderController(AdminService adminService, SalesRollupService salesRollupService) {
+        this.adminService = adminService;
+        this.salesRollupService = salesRollupService;
+    }
 
     @GetMapping("/placedOrders")
     @PreAuthorize("hasAnyAuthority('SCOPE_ADMIN')")
@@ -27,10 +48,44 @@ public class AdminOrderController {
         return ResponseEntity.ok(adminService.getAllPlacedOrders());
     }
 
+    @GetMapping("/placedOrders/page")
+    @PreAuthorize("hasAnyAuthority('SCOPE_ADMIN')")
+    public ResponseEntity<OrderPageDto> getPlacedOrdersPage(@RequestParam(required = false) String cursor,
+                                                            @RequestParam(defaultValue = "50") int size,
+                                                            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                                            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                                            @RequestParam(required = false) Long userId){
+        return ResponseEntity.ok(adminService.getPlacedOrdersPage(cursor, size, from, to, userId));
+    }
+
+    @GetMapping("/placedOrders/export")
+    @PreAuthorize("hasAnyAuthority('SCOPE_ADMIN')")
+    public ResponseEntity<StreamingResponseBody> exportPlacedOrders(@RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                                                    @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                                                    @RequestParam(required = false) Long userId,
+                                                                    NativeWebRequest request){
+        //délai propre à l'export : les autres requêtes asynchrones gardent le délai par défaut
+        AsyncWebRequest asyncWebRequest = WebAsyncUtils.getAsyncManager(request).getAsyncWebRequest();
+        if (asyncWebRequest != null) {
+            asyncWebRequest.setTimeout(this.exportTimeout);
+        }
+        StreamingResponseBody body = outputStream -> adminService.exportPlacedOrders(from, to, userId, outputStream);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/x-ndjson"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"commandes.ndjson\"")
+                .body(body);
+    }
+
     @GetMapping("/order/analytics")
     @PreAuthorize("hasAnyAuthority('SCOPE_ADMIN')")
     public ResponseEntity<AnalyticsResponse> getAnalyticsResponse(){
         return ResponseEntity.ok(adminService.calculateAnalytics());
     }
 
+    @PostMapping("/order/analytics/rebuild")
+    @PreAuthorize("hasAnyAuthority('SCOPE_ADMIN')")
+    public ResponseEntity<Map<String, Integer>> rebuildAnalytics(){
+        return ResponseEntity.ok(Map.of("rollups", salesRollupService.rebuild()));
+    }
+
 }
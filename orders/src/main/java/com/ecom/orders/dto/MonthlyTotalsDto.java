@@ -0,0 +1,16 @@
+package com.ecom.orders.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class MonthlyTotalsDto {
+
+    private Long currentMonthOrders;
+    private Long currentMonthEarnings;
+    private Long previousMonthOrders;
+    private Long previousMonthEarnings;
+}
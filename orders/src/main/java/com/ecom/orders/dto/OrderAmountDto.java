@@ -0,0 +1,15 @@
+package com.ecom.orders.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderAmountDto {
+
+    private Long orderId;
+    //variation signée du montant (négative pour un retrait)
+    private Long delta;
+}
@@ -0,0 +1,16 @@
+package com.ecom.orders.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Date;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class OrderDateDto {
+
+    private Long id;
+    private Date date;
+}
@@ -2,11 +2,13 @@ package com.ecom.orders.dto;
 
 import com.ecom.orders.enums.OrderStatus;
 import lombok.Data;
+import lombok.NoArgsConstructor;
 
 import java.util.Collection;
 import java.util.Date;
 import java.util.UUID;
 @Data
+@NoArgsConstructor
 public class OrderDto {
 
     private Long id;
@@ -18,4 +20,15 @@ public class OrderDto {
     private Long userId;
     private String userEmail;
     private Collection<CartItemsDto> cartItems;
+
+    //projection JPQL de la liste admin
+    public OrderDto(Long id, Date date, Long amount, OrderStatus orderStatus, Long totalAmount, UUID trackingId, Long userId) {
+        this.id = id;
+        this.date = date;
+        this.amount = amount;
+        this.orderStatus = orderStatus;
+        this.totalAmount = totalAmount;
+        this.trackingId = trackingId;
+        this.userId = userId;
+    }
 }
@@ -0,0 +1,17 @@
+package com.ecom.orders.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class OrderPageDto {
+
+    private List<OrderDto> orders;
+    //à renvoyer tel quel pour la page suivante, null sur la dernière page
+    private String nextCursor;
+}
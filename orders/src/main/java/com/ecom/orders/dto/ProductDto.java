@@ -12,7 +12,7 @@ public class ProductDto {
     private String name;
     private Long price;
     private String description;
-    private byte[] byteImg;
+    private String imageUrl;
     private Long categoryId;
     private String categoryName;
     private MultipartFile img;
@@ -0,0 +1,17 @@
+package com.ecom.orders.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class SoldItemDto {
+
+    private Long id;
+    private Long productId;
+    private Long orderId;
+    private Long quantity;
+    private Long price;
+}
@@ -13,7 +13,9 @@ import java.util.Date;
 import java.util.UUID;
 
 @Entity
-@Table(name = "orders")
+@Table(name = "orders", indexes = {
+        @Index(name = "idx_orders_status_date", columnList = "order_status, date"),
+        @Index(name = "idx_orders_user_status", columnList = "user_id, order_status")})
 @Data @Builder @NoArgsConstructor
 @AllArgsConstructor
 public class Order {
@@ -36,6 +38,9 @@ public class Order {
     @Version
     @Column(nullable = false, columnDefinition = "bigint default 0")
     private long version = 0L;
+    //commande déjà ajoutée aux cumuls des ventes (les commandes antérieures à la colonne sont réputées comptées)
+    @Column(nullable = false, columnDefinition = "boolean default true")
+    private boolean salesRecorded;
 
     public OrderDto getOrderDto(){
         OrderDto orderDto = new OrderDto();
@@ -0,0 +1,24 @@
+package com.ecom.orders.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Entity
+@Table(name = "product_sales_rollup", uniqueConstraints = @UniqueConstraint(
+        name = "uk_rollup_product_period", columnNames = {"product_id", "period_year", "period_month"}))
+@Data @Builder @NoArgsConstructor
+@AllArgsConstructor
+public class ProductSalesRollup {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    private Long productId;
+    private int periodYear;
+    private int periodMonth;
+    private long quantity;
+    private long amount;
+}
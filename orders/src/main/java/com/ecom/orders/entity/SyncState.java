@@ -0,0 +1,23 @@
+package com.ecom.orders.entity;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Date;
+
+@Entity
+@Table(name = "sync_state")
+@Data @NoArgsConstructor
+@AllArgsConstructor
+public class SyncState {
+
+    @Id
+    private String name;
+    //plus grand identifiant utilisateur déjà synchronisé
+    private long lastUserId;
+    private Date updatedAt;
+}
@@ -40,7 +40,7 @@ public class CartItems {
         cartItemsDto.setProductId(product.getId());
         cartItemsDto.setProductName(product.getName());
         cartItemsDto.setUserId(userId);
-        cartItemsDto.setReturnedImg(product.getImg());
+        cartItemsDto.setImageUrl(product.getImageUrl());
         cartItemsDto.setQrCode(qrCode);
         return cartItemsDto;
     }
@@ -2,14 +2,23 @@ package com.ecom.orders.repository;
 
 
 
+import com.ecom.orders.dto.MonthlyTotalsDto;
+import com.ecom.orders.dto.OrderDateDto;
+import com.ecom.orders.dto.OrderDto;
 import com.ecom.orders.entity.Order;
 import com.ecom.orders.enums.OrderStatus;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 
-public interface OrderRepository extends JpaRepository<Order, Long> {
+public interface OrderRepository extends JpaRepository<Order, Long>, OrderRepositoryCustom {
 
     Order findByUserIdAndOrderStatus(Long userId, OrderStatus status);
 
@@ -22,4 +31,62 @@ public interface OrderRepository extends JpaRepository<Order, Long> {
     List<Order> findByDateBetweenAndOrderStatus(Date startOfMonth, Date endOfMonth, OrderStatus orderStatus);
 
     Long countByOrderStatus(OrderStatus orderStatus);
+
+    //utilisateurs de la page qui ont déjà une commande dans ce statut
+    @Query("SELECT o.userId FROM Order o WHERE o.orderStatus = :status AND o.userId IN :userIds")
+    List<Long> findUserIdsWithStatus(@Param("userIds") Collection<Long> userIds, @Param("status") OrderStatus status);
+
+    //marque posée une seule fois : un second cumul de la même commande ne modifie aucune ligne
+    @Modifying
+    @Query("UPDATE Order o SET o.salesRecorded = true WHERE o.id = :id AND o.orderStatus = :status AND o.salesRecorded = false")
+    int markSalesRecorded(@Param("id") Long id, @Param("status") OrderStatus status);
+
+    @Modifying
+    @Query("UPDATE Order o SET o.salesRecorded = true WHERE o.id IN :ids")
+    int markSalesRecordedIn(@Param("ids") Collection<Long> ids);
+
+    //commandes validées pas encore cumulées (échec ou interruption après la validation)
+    @Query("SELECT o FROM Order o WHERE o.orderStatus = :status AND o.salesRecorded = false ORDER BY o.id")
+    List<Order> findSalesNotRecorded(@Param("status") OrderStatus status, Pageable pageable);
+
+    //mise à jour atomique des montants, uniquement sur une commande encore ouverte
+    @Modifying
+    @Transactional
+    @Query("UPDATE Order o SET o.amount = o.amount + :delta, o.totalAmount = o.totalAmount + :delta, " +
+            "o.version = o.version + 1 WHERE o.id = :id AND o.orderStatus = :status")
+    int addToAmount(@Param("id") Long id, @Param("delta") Long delta, @Param("status") OrderStatus status);
+
+    @Query("SELECT COALESCE(SUM(o.amount), 0) FROM Order o " +
+            "WHERE o.orderStatus = :status AND o.date >= :start AND o.date < :end")
+    Long sumAmountByStatusAndDateRange(@Param("status") OrderStatus status, @Param("start") Date start, @Param("end") Date end);
+
+    @Query("SELECT COUNT(o) FROM Order o " +
+            "WHERE o.orderStatus = :status AND o.date >= :start AND o.date < :end")
+    Long countByStatusAndDateRange(@Param("status") OrderStatus status, @Param("start") Date start, @Param("end") Date end);
+
+    //totaux du mois en cours et du mois précédent en une seule requête
+    @Query("SELECT new com.ecom.orders.dto.MonthlyTotalsDto(" +
+            "COALESCE(SUM(CASE WHEN o.date >= :currentStart THEN 1L ELSE 0L END), 0L), " +
+            "COALESCE(SUM(CASE WHEN o.date >= :currentStart THEN o.amount ELSE 0L END), 0L), " +
+            "COALESCE(SUM(CASE WHEN o.date < :currentStart THEN 1L ELSE 0L END), 0L), " +
+            "COALESCE(SUM(CASE WHEN o.date < :currentStart THEN o.amount ELSE 0L END), 0L)) " +
+            "FROM Order o WHERE o.orderStatus = :status AND o.date >= :previousStart AND o.date < :end")
+    MonthlyTotalsDto findMonthlyTotals(@Param("status") OrderStatus status, @Param("previousStart") Date previousStart,
+                                       @Param("currentStart") Date currentStart, @Param("end") Date end);
+
+    @Query("SELECT new com.ecom.orders.dto.OrderDateDto(o.id, o.date) FROM Order o WHERE o.id IN :ids AND o.orderStatus = :status")
+    List<OrderDateDto> findDatesByIdInAndOrderStatus(@Param("ids") Collection<Long> ids, @Param("status") OrderStatus status);
+
+    String PLACED_ORDERS = "SELECT new com.ecom.orders.dto.OrderDto(o.id, o.date, o.amount, o.orderStatus, o.totalAmount, o.trackingId, o.userId) " +
+            "FROM Order o WHERE o.orderStatus = :status " +
+            "AND (:from IS NULL OR o.date >= :from) AND (:to IS NULL OR o.date < :to) " +
+            "AND (:userId IS NULL OR o.userId = :userId) ";
+
+    //pagination par clé (date, id) : coût constant quelle que soit la page
+    @Query(PLACED_ORDERS +
+            "AND (:cursorDate IS NULL OR o.date < :cursorDate OR (o.date = :cursorDate AND o.id < :cursorId)) " +
+            "ORDER BY o.date DESC, o.id DESC")
+    List<OrderDto> findPlacedPage(@Param("status") OrderStatus status, @Param("from") Date from, @Param("to") Date to,
+                                  @Param("userId") Long userId, @Param("cursorDate") Date cursorDate,
+                                  @Param("cursorId") Long cursorId, Pageable pageable);
 }
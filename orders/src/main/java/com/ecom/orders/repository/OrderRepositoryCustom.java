@@ -0,0 +1,9 @@
+package com.ecom.orders.repository;
+
+import java.util.Collection;
+
+public interface OrderRepositoryCustom {
+
+    //crée une commande EnCours vide par utilisateur, en une seule instruction
+    int insertOpenOrders(Collection<Long> userIds);
+}
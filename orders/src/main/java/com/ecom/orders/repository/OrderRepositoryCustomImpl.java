@@ -0,0 +1,39 @@
+package com.ecom.orders.repository;
+
+import com.ecom.orders.enums.OrderStatus;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+public class OrderRepositoryCustomImpl implements OrderRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    @Transactional
+    public int insertOpenOrders(Collection<Long> userIds) {
+        if (userIds.isEmpty()) {
+            return 0;
+        }
+        List<Long> ids = List.copyOf(userIds);
+        StringBuilder sql = new StringBuilder(
+                "INSERT INTO orders (amount, total_amount, order_status, tracking_id, user_id, version) VALUES ");
+        for (int i = 0; i < ids.size(); i++) {
+            sql.append(i == 0 ? "" : ", ").append("(0, 0, :status, :tracking").append(i).append(", :user").append(i).append(", 0)");
+        }
+        Query query = entityManager.createNativeQuery(sql.toString());
+        query.setParameter("status", OrderStatus.EnCours.name());
+        for (int i = 0; i < ids.size(); i++) {
+            //UUID lié par Hibernate selon le type de colonne du dialecte
+            query.setParameter("tracking" + i, UUID.randomUUID());
+            query.setParameter("user" + i, ids.get(i));
+        }
+        return query.executeUpdate();
+    }
+}
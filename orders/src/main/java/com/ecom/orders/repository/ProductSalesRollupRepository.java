@@ -0,0 +1,18 @@
+package com.ecom.orders.repository;
+
+import com.ecom.orders.entity.ProductSalesRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+public interface ProductSalesRollupRepository extends JpaRepository<ProductSalesRollup, Long> {
+
+    //création ou cumul en une instruction : deux premières ventes simultanées du mois ne se gênent pas
+    @Modifying
+    @Query(value = "INSERT INTO product_sales_rollup (product_id, period_year, period_month, quantity, amount) " +
+            "VALUES (:productId, :year, :month, :quantity, :amount) " +
+            "ON DUPLICATE KEY UPDATE quantity = quantity + :quantity, amount = amount + :amount", nativeQuery = true)
+    int upsert(@Param("productId") Long productId, @Param("year") int year, @Param("month") int month,
+               @Param("quantity") long quantity, @Param("amount") long amount);
+}
@@ -0,0 +1,22 @@
+package com.ecom.orders.repository;
+
+import com.ecom.orders.entity.SyncState;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Optional;
+
+public interface SyncStateRepository extends JpaRepository<SyncState, String> {
+
+    //verrou partagé : plusieurs écritures concurrentes, mais pas pendant un traitement exclusif
+    @Lock(LockModeType.PESSIMISTIC_READ)
+    @Query("SELECT s FROM SyncState s WHERE s.name = :name")
+    Optional<SyncState> lockShared(@Param("name") String name);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM SyncState s WHERE s.name = :name")
+    Optional<SyncState> lockExclusive(@Param("name") String name);
+}
@@ -1,41 +1,56 @@
 package com.ecom.orders.services;
 
-import com.ecom.orders.clients.CartRestClient;
-import com.ecom.orders.clients.ProductRestClient;
+import com.ecom.orders.clients.UserRestClient;
 import com.ecom.orders.dto.AnalyticsResponse;
+import com.ecom.orders.dto.MonthlyTotalsDto;
 import com.ecom.orders.dto.OrderDto;
+import com.ecom.orders.dto.OrderPageDto;
 import com.ecom.orders.dto.ProductAnalyticsDto;
-import com.ecom.orders.dto.ProductDto;
 import com.ecom.orders.entity.Order;
 import com.ecom.orders.enums.OrderStatus;
-import com.ecom.orders.model.CartItems;
 import com.ecom.orders.repository.OrderRepository;
+import com.ecom.orders.response.UserNotFoundException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.time.ZoneId;
 import java.util.*;
-import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
 public class AdminService {
 
     private final OrderRepository orderRepository;
-    private final CartRestClient cartRestClient;
-    private final ProductRestClient productRestClient;
+    private final SalesRollupService salesRollupService;
+    private final UserRestClient userRestClient;
     private final TokenTechnicService tokenTechnicService;
+    private final ObjectMapper objectMapper;
 
-    public AdminService(OrderRepository orderRepository, CartRestClient cartRestClient, ProductRestClient productRestClient, TokenTechnicService tokenTechnicService) {
+    //limite côté users pour une recherche groupée
+    static final int USER_BATCH_SIZE = 1000;
+    static final int MAX_PAGE_SIZE = 500;
+    static final int EXPORT_CHUNK_SIZE = 500;
+
+    public AdminService(OrderRepository orderRepository, SalesRollupService salesRollupService, UserRestClient userRestClient, TokenTechnicService tokenTechnicService, ObjectMapper objectMapper) {
         this.orderRepository = orderRepository;
-        this.cartRestClient = cartRestClient;
-        this.productRestClient = productRestClient;
+        this.salesRollupService = salesRollupService;
+        this.userRestClient = userRestClient;
         this.tokenTechnicService = tokenTechnicService;
+        this.objectMapper = objectMapper;
     }
 
     public List<OrderDto> getAllPlacedOrders() {
         List<Order> orderList = orderRepository.findByOrderStatusIn(List.of(OrderStatus.Valider));
+        Map<Long, String> emails = this.findUserEmails(orderList.stream().map(Order::getUserId).toList());
         return orderList.stream().map(item ->{
             OrderDto dto = new OrderDto();
             dto.setId(item.getId());
@@ -45,160 +60,141 @@ public class AdminService {
             dto.setTotalAmount(item.getTotalAmount());
             dto.setAmount(item.getAmount());
             dto.setTrackingId(item.getTrackingId());
-
-            /*User user = userRestClient.findUserById("Bearer "+this.tokenTechnicService.getTechnicalToken(),item.getUserId());
-            log.info(user.getName());
-            if (user.getId() == null) {
-                throw new UserNotFoundException("Service indisponible");
-            }
-            dto.setUserEmail(user.getEmail());*/
+            dto.setUserEmail(emails.get(item.getUserId()));
 
             return dto;
 
         }).collect(Collectors.toList());
     }
 
-    public AnalyticsResponse calculateAnalytics() {
-
-        LocalDate currentDate = LocalDate.now();
-        LocalDate previousMonthday = currentDate.minusMonths(1);
-
-        Long currentMonthOrders = getTotalOrdersForMonth(currentDate.getMonthValue(), currentDate.getYear());
-        Long previousMonthOrders = getTotalOrdersForMonth(previousMonthday.getMonthValue(), previousMonthday.getYear());
-
-        Long currentMonthEarnings = getTotalEarningsForMonth(currentDate.getMonthValue(), currentDate.getYear());
-        Long previousMonthEarnings = getTotalEarningsForMonth(previousMonthday.getMonthValue(), previousMonthday.getYear());
-
-        Long placed = orderRepository.countByOrderStatus(OrderStatus.Valider);
-
-        List<ProductAnalyticsDto> productAnalyticsDtos = this.getProductStatsByMonth();
-        AnalyticsResponse analyticsResponse = new AnalyticsResponse();
-        analyticsResponse.setPlaced(placed);
-
-        analyticsResponse.setCurrentMonthOrders(currentMonthOrders);
-        analyticsResponse.setPreviousMonthOrders(previousMonthOrders);
-        analyticsResponse.setCurrentMonthEarnings(currentMonthEarnings);
-        analyticsResponse.setPreviousMonthEarnings(previousMonthEarnings);
-        analyticsResponse.setProductStats(productAnalyticsDtos);
+    //commandes validées par page, de la plus récente à la plus ancienne
+    public OrderPageDto getPlacedOrdersPage(String cursor, int size, LocalDate from, LocalDate to, Long userId) {
+        int limit = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        Date cursorDate = null;
+        Long cursorId = null;
+        if (cursor != null && !cursor.isBlank()) {
+            String[] parts = cursor.split("_");
+            try {
+                cursorDate = new Date(Long.parseLong(parts[0]));
+                cursorId = Long.parseLong(parts[1]);
+            } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+                throw new UserNotFoundException("Curseur invalide");
+            }
+        }
 
-        return analyticsResponse;
+        List<OrderDto> orders = orderRepository.findPlacedPage(OrderStatus.Valider, startOf(from), endOf(to), userId,
+                cursorDate, cursorId, PageRequest.of(0, limit));
+        this.fillUserEmails(orders);
 
+        String nextCursor = null;
+        if (orders.size() == limit) {
+            OrderDto last = orders.get(orders.size() - 1);
+            nextCursor = last.getDate().getTime() + "_" + last.getId();
+        }
+        return new OrderPageDto(orders, nextCursor);
     }
 
-    public Long getTotalEarningsForMonth(int month, int year) {
-        Calendar calendar = Calendar.getInstance();
-        calendar.set(Calendar.YEAR, year);
-        calendar.set(Calendar.MONTH, month - 1);
-        calendar.set(Calendar.DAY_OF_MONTH, 1);
-        calendar.set(Calendar.HOUR_OF_DAY, 0);
-        calendar.set(Calendar.MINUTE, 0);
-        calendar.set(Calendar.SECOND, 0);
-
-        Date startOfMonth = calendar.getTime();
-
-        calendar.set(Calendar.DAY_OF_MONTH, calendar.getActualMaximum(Calendar.DAY_OF_MONTH));
-        calendar.set(Calendar.HOUR_OF_DAY, 23);
-        calendar.set(Calendar.MINUTE, 59);
-        calendar.set(Calendar.SECOND, 59);
-
-        Date endOfMonth = calendar.getTime();
-
-        List<Order> orders = orderRepository.findByDateBetweenAndOrderStatus(startOfMonth, endOfMonth, OrderStatus.Valider);
+    //export NDJSON par blocs lus avec la pagination par clé : mémoire bornée à un bloc, et aucune
+    //transaction ni connexion gardée pendant les appels au service users et l'écriture de la réponse
+    public void exportPlacedOrders(LocalDate from, LocalDate to, Long userId, OutputStream outputStream) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+        Date cursorDate = null;
+        Long cursorId = null;
+        List<OrderDto> chunk;
+        do {
+            chunk = orderRepository.findPlacedPage(OrderStatus.Valider, startOf(from), endOf(to), userId,
+                    cursorDate, cursorId, PageRequest.of(0, EXPORT_CHUNK_SIZE));
+            this.writeChunk(chunk, writer);
+            if (!chunk.isEmpty()) {
+                OrderDto last = chunk.get(chunk.size() - 1);
+                cursorDate = last.getDate();
+                cursorId = last.getId();
+            }
+        } while (chunk.size() == EXPORT_CHUNK_SIZE);
+        writer.flush();
+    }
 
-        Long sum = 0L;
-        for (Order order : orders) {
-            sum+= order.getAmount();
+    private void writeChunk(List<OrderDto> chunk, Writer writer) throws IOException {
+        this.fillUserEmails(chunk);
+        for (OrderDto dto : chunk) {
+            writer.write(objectMapper.writeValueAsString(dto));
+            writer.write('\n');
         }
-
-        return sum;
+        writer.flush();
     }
 
-    public Long getTotalOrdersForMonth(int month, int year) {
-        Calendar calendar = Calendar.getInstance();
-        calendar.set(Calendar.YEAR, year);
-        calendar.set(Calendar.MONTH, month - 1);
-        calendar.set(Calendar.DAY_OF_MONTH, 1);
-        calendar.set(Calendar.HOUR_OF_DAY, 0);
-        calendar.set(Calendar.MINUTE, 0);
-        calendar.set(Calendar.SECOND, 0);
-
-        Date startOfMonth = calendar.getTime();
-
-        calendar.set(Calendar.DAY_OF_MONTH, calendar.getActualMaximum(Calendar.DAY_OF_MONTH));
-        calendar.set(Calendar.HOUR_OF_DAY, 23);
-        calendar.set(Calendar.MINUTE, 59);
-        calendar.set(Calendar.SECOND, 59);
-
-        Date endOfMonth = calendar.getTime();
-
-        List<Order> orders = orderRepository.findByDateBetweenAndOrderStatus(startOfMonth, endOfMonth, OrderStatus.Valider);
-
-        return (long) orders.size();
+    private void fillUserEmails(List<OrderDto> orders) {
+        if (orders.isEmpty()) {
+            return;
+        }
+        Map<Long, String> emails = this.findUserEmails(orders.stream().map(OrderDto::getUserId).toList());
+        orders.forEach(dto -> dto.setUserEmail(emails.get(dto.getUserId())));
     }
 
-    public List<ProductAnalyticsDto> getProductStatsByMonth() {
-        LocalDate currentDate = LocalDate.now();
-        LocalDate previousMonthDate = currentDate.minusMonths(1);
-
-        //Récupérer liste CartItems validés
-        List<CartItems> items = cartRestClient.findByQrCodeIsNotNull("Bearer "+this.tokenTechnicService.getTechnicalToken());
+    private static Date startOf(LocalDate from) {
+        return from == null ? null : toDate(from);
+    }
 
-            //classer par productId
-            Map<Long, List<CartItems>> itemsByProduct = items.stream()
-                    .collect(Collectors.groupingBy(CartItems::getProductId));
+    //borne haute incluse : jusqu'à la fin de la journée
+    private static Date endOf(LocalDate to) {
+        return to == null ? null : toDate(to.plusDays(1));
+    }
 
-            List<Long> productIds = new ArrayList<>(itemsByProduct.keySet());
+    //emails des clients récupérés par lots, au lieu d'un appel par commande
+    Map<Long, String> findUserEmails(List<Long> ids) {
+        List<Long> userIds = ids.stream().filter(Objects::nonNull).distinct().toList();
+        Map<Long, String> emails = new HashMap<>();
+        for (int i = 0; i < userIds.size(); i += USER_BATCH_SIZE) {
+            List<Long> batch = userIds.subList(i, Math.min(i + USER_BATCH_SIZE, userIds.size()));
+            userRestClient.findSummaries("Bearer " + this.tokenTechnicService.getTechnicalToken(), batch)
+                    .forEach(user -> emails.put(user.getId(), user.getEmail()));
+        }
+        return emails;
+    }
 
-            List<ProductDto> products = productRestClient.findListById(
-                    "Bearer " + this.tokenTechnicService.getTechnicalToken(), productIds
-            );
-            Map<Long, ProductDto> productMap = products.stream()
-                    .collect(Collectors.toMap(ProductDto::getId, Function.identity()));
+    public AnalyticsResponse calculateAnalytics() {
 
-            List<ProductAnalyticsDto> statsList = new ArrayList<>();
+        LocalDate currentMonth = LocalDate.now().withDayOfMonth(1);
+        LocalDate previousMonth = currentMonth.minusMonths(1);
 
-            // Calculer les stats par produit
-            for (Map.Entry<Long, List<CartItems>> entry : itemsByProduct.entrySet()) {
-                Long productId = entry.getKey();
-                List<CartItems> productItems = entry.getValue();
+        //commandes et chiffre d'affaires des 2 mois calculés par la base
+        MonthlyTotalsDto totals = orderRepository.findMonthlyTotals(OrderStatus.Valider,
+                toDate(previousMonth), toDate(currentMonth), toDate(currentMonth.plusMonths(1)));
 
-                ProductDto product = productMap.get(productId);
-                if (product == null) continue;
+        Long placed = orderRepository.countByOrderStatus(OrderStatus.Valider);
 
-                ProductAnalyticsDto stats = new ProductAnalyticsDto(product.getName());
+        List<ProductAnalyticsDto> productAnalyticsDtos = this.getProductStatsByMonth();
+        AnalyticsResponse analyticsResponse = new AnalyticsResponse();
+        analyticsResponse.setPlaced(placed);
 
-                for (CartItems ci : productItems) {
-                    // Récupérer la date
-                    Order order = orderRepository.findById(ci.getOrderId()).orElse(null);
-                    if (order == null) continue;
+        analyticsResponse.setCurrentMonthOrders(totals.getCurrentMonthOrders());
+        analyticsResponse.setPreviousMonthOrders(totals.getPreviousMonthOrders());
+        analyticsResponse.setCurrentMonthEarnings(totals.getCurrentMonthEarnings());
+        analyticsResponse.setPreviousMonthEarnings(totals.getPreviousMonthEarnings());
+        analyticsResponse.setProductStats(productAnalyticsDtos);
 
-                    LocalDate date = order.getDate().toInstant()
-                            .atZone(ZoneId.systemDefault()).toLocalDate();
+        return analyticsResponse;
 
-                    long quantity = ci.getQuantity();
-                    long amount = ci.getQuantity() * ci.getPrice();
+    }
 
-                    // Faire le total
-                    stats.setTotalQuantity(stats.getTotalQuantity() + quantity);
-                    stats.setTotalAmount(stats.getTotalAmount() + amount);
+    public Long getTotalEarningsForMonth(int month, int year) {
+        LocalDate startOfMonth = LocalDate.of(year, month, 1);
+        return orderRepository.sumAmountByStatusAndDateRange(OrderStatus.Valider,
+                toDate(startOfMonth), toDate(startOfMonth.plusMonths(1)));
+    }
 
-                    // Classer par mois en cours
-                    if (date.getMonthValue() == currentDate.getMonthValue()
-                            && date.getYear() == currentDate.getYear()) {
-                        stats.setCurrentMonthQuantity(stats.getCurrentMonthQuantity() + quantity);
-                        stats.setCurrentMonthTotal(stats.getCurrentMonthTotal() + amount);
-                    }
+    public Long getTotalOrdersForMonth(int month, int year) {
+        LocalDate startOfMonth = LocalDate.of(year, month, 1);
+        return orderRepository.countByStatusAndDateRange(OrderStatus.Valider,
+                toDate(startOfMonth), toDate(startOfMonth.plusMonths(1)));
+    }
 
-                    // Classer par mois précédent
-                    if (date.getMonthValue() == previousMonthDate.getMonthValue()
-                            && date.getYear() == previousMonthDate.getYear()) {
-                        stats.setPreviousMonthQuantity(stats.getPreviousMonthQuantity() + quantity);
-                        stats.setPreviousMonthTotal(stats.getPreviousMonthTotal() + amount);
-                    }
-                }
+    private static Date toDate(LocalDate date) {
+        return Date.from(date.atStartOfDay(ZoneId.systemDefault()).toInstant());
+    }
 
-                statsList.add(stats);
-            }
-            return statsList;
+    //statistiques produits lues dans la table des cumuls mensuels
+    public List<ProductAnalyticsDto> getProductStatsByMonth() {
+        return salesRollupService.getProductStats();
     }
 }
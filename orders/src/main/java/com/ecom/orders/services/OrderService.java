@@ -2,6 +2,7 @@ package com.ecom.orders.services;
 
 import com.ecom.orders.clients.CartRestClient;
 import com.ecom.orders.clients.UserRestClient;
+import com.ecom.orders.dto.OrderAmountDto;
 import com.ecom.orders.dto.OrderDto;
 import com.ecom.orders.dto.PlaceOrderDto;
 import com.ecom.orders.entity.Order;
@@ -9,7 +10,9 @@ import com.ecom.orders.enums.OrderStatus;
 import com.ecom.orders.model.User;
 import com.ecom.orders.repository.OrderRepository;
 import com.ecom.orders.response.UserNotFoundException;
+import io.micrometer.core.annotation.Timed;
 import jakarta.transaction.Transactional;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 
@@ -19,6 +22,7 @@ import java.security.NoSuchAlgorithmException;
 import java.util.*;
 import java.util.stream.Collectors;
 
+@Slf4j
 @Service
 public class OrderService {
 
@@ -26,12 +30,14 @@ public class OrderService {
     private final TokenTechnicService tokenTechnicService;
     private final UserRestClient userRestClient;
     private final CartRestClient cartRestClient;
+    private final SalesRollupService salesRollupService;
 
-    public OrderService(OrderRepository orderRepository, TokenTechnicService tokenTechnicService, UserRestClient userRestClient, CartRestClient cartRestClient) {
+    public OrderService(OrderRepository orderRepository, TokenTechnicService tokenTechnicService, UserRestClient userRestClient, CartRestClient cartRestClient, SalesRollupService salesRollupService) {
         this.orderRepository = orderRepository;
         this.tokenTechnicService = tokenTechnicService;
         this.userRestClient = userRestClient;
         this.cartRestClient = cartRestClient;
+        this.salesRollupService = salesRollupService;
     }
 
     @Transactional
@@ -44,6 +50,14 @@ public class OrderService {
         orderRepository.save(setOrder);
     }
 
+    //le panier envoie la variation, pas le total : pas de mise à jour perdue
+    public void applyAmountDelta(OrderAmountDto orderAmountDto) {
+        int updated = orderRepository.addToAmount(orderAmountDto.getOrderId(), orderAmountDto.getDelta(), OrderStatus.EnCours);
+        if (updated == 0) {
+            throw new UserNotFoundException("Commande introuvable");
+        }
+    }
+
     public void newOrder(Order order) {
         Optional<Order> existOrder = Optional.ofNullable(orderRepository.findByUserIdAndOrderStatus(order.getId(), OrderStatus.EnCours));
         if (existOrder.isPresent()) {
@@ -65,6 +79,7 @@ public class OrderService {
         return order;
     }
 
+    @Timed(value = "orders.place", histogram = true)
     public OrderDto placeOrder(PlaceOrderDto placeOrderDto) throws NoSuchAlgorithmException {
 
         Order activeOrder = orderRepository.findByUserIdAndOrderStatus(placeOrderDto.getUserId(), OrderStatus.EnCours);
@@ -75,6 +90,7 @@ public class OrderService {
             activeOrder.setOrderStatus(OrderStatus.Valider);
             activeOrder.setDate(new Date());
             activeOrder.setSecretKey(this.generateAndEncryptKeyForDB());
+            activeOrder.setSalesRecorded(false);
 
             orderRepository.save(activeOrder);
 
@@ -87,6 +103,16 @@ public class OrderService {
                 newOrder.setOrderStatus(OrderStatus.EnCours);
                 newOrder.setTrackingId(UUID.randomUUID());
                 orderRepository.save(newOrder);
+
+                //le panier ne doit plus utiliser l'ancienne commande en cache
+                this.cartRestClient.evictActiveOrder("Bearer "+this.tokenTechnicService.getTechnicalToken(), Map.of("userId", activeOrder.getUserId()));
+
+                //mise à jour des cumuls de ventes ; en cas d'échec la reprise planifiée s'en charge
+                try {
+                    salesRollupService.recordOrder(activeOrder);
+                } catch (Exception e) {
+                    log.warn("Cumuls des ventes différés pour la commande {} : {}", activeOrder.getId(), e.getMessage());
+                }
                 return activeOrder.getOrderDto();
             } else {
                 throw new UserNotFoundException("Service indisponible");
@@ -0,0 +1,227 @@
+package com.ecom.orders.services;
+
+import com.ecom.orders.clients.CartRestClient;
+import com.ecom.orders.clients.ProductRestClient;
+import com.ecom.orders.dto.OrderDateDto;
+import com.ecom.orders.dto.ProductAnalyticsDto;
+import com.ecom.orders.dto.ProductDto;
+import com.ecom.orders.dto.SoldItemDto;
+import com.ecom.orders.entity.Order;
+import com.ecom.orders.entity.ProductSalesRollup;
+import com.ecom.orders.entity.SyncState;
+import com.ecom.orders.enums.OrderStatus;
+import com.ecom.orders.repository.OrderRepository;
+import com.ecom.orders.repository.ProductSalesRollupRepository;
+import com.ecom.orders.repository.SyncStateRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+@Slf4j
+@Service
+public class SalesRollupService {
+
+    private static final int ORDER_IDS_BATCH_SIZE = 1000;
+    static final String SALES_ROLLUP = "sales-rollup";
+
+    private final ProductSalesRollupRepository rollupRepository;
+    private final OrderRepository orderRepository;
+    private final CartRestClient cartRestClient;
+    private final ProductRestClient productRestClient;
+    private final TokenTechnicService tokenTechnicService;
+    private final SyncStateRepository syncStateRepository;
+    private final TransactionTemplate transactionTemplate;
+    @Value("${analytics.sold-items.page-size:500}")
+    private int soldItemsPageSize = 500;
+    @Value("${analytics.rollup.catch-up-batch:100}")
+    private int catchUpBatchSize = 100;
+
+    public SalesRollupService(ProductSalesRollupRepository rollupRepository, OrderRepository orderRepository, CartRestClient cartRestClient, ProductRestClient productRestClient, TokenTechnicService tokenTechnicService, SyncStateRepository syncStateRepository,
+                              TransactionTemplate transactionTemplate) {
+        this.rollupRepository = rollupRepository;
+        this.orderRepository = orderRepository;
+        this.cartRestClient = cartRestClient;
+        this.productRestClient = productRestClient;
+        this.tokenTechnicService = tokenTechnicService;
+        this.syncStateRepository = syncStateRepository;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    //ligne de verrou partagée par les cumuls au fil de l'eau et la reconstruction
+    @EventListener(ApplicationReadyEvent.class)
+    public void createLock() {
+        if (syncStateRepository.existsById(SALES_ROLLUP)) {
+            return;
+        }
+        try {
+            syncStateRepository.save(new SyncState(SALES_ROLLUP, 0L, null));
+        } catch (DataIntegrityViolationException e) {
+            //créée par une autre instance
+        }
+    }
+
+    //on ajoute les articles d'une commande validée aux cumuls du mois, une seule fois par commande
+    public void recordOrder(Order order) {
+        //appel à cart avant la transaction : aucun verrou n'est tenu pendant l'appel distant
+        List<SoldItemDto> items = cartRestClient.findOrderItems("Bearer " + this.tokenTechnicService.getTechnicalToken(), order.getId());
+        this.transactionTemplate.executeWithoutResult(status -> this.applyOrder(order, items));
+    }
+
+    //commandes validées dont le cumul a échoué (cart indisponible, arrêt entre validation et cumul) : reprises ici
+    @Scheduled(fixedDelayString = "${analytics.rollup.catch-up-delay:60000}")
+    public void recordPendingOrders() {
+        for (Order order : orderRepository.findSalesNotRecorded(OrderStatus.Valider, PageRequest.of(0, catchUpBatchSize))) {
+            try {
+                this.recordOrder(order);
+            } catch (Exception e) {
+                log.warn("Cumuls des ventes toujours en attente pour la commande {} : {}", order.getId(), e.getMessage());
+            }
+        }
+    }
+
+    private void applyOrder(Order order, List<SoldItemDto> items) {
+        //attend la fin d'une reconstruction en cours
+        syncStateRepository.lockShared(SALES_ROLLUP);
+        //marque et cumuls dans la même transaction : commande déjà comptée (reprise, reconstruction) = rien à faire
+        if (orderRepository.markSalesRecorded(order.getId(), OrderStatus.Valider) == 0) {
+            return;
+        }
+        YearMonth month = toYearMonth(order.getDate());
+
+        Map<Long, List<SoldItemDto>> itemsByProduct = items.stream()
+                .collect(Collectors.groupingBy(SoldItemDto::getProductId));
+        for (Map.Entry<Long, List<SoldItemDto>> entry : itemsByProduct.entrySet()) {
+            long quantity = entry.getValue().stream().mapToLong(SoldItemDto::getQuantity).sum();
+            long amount = entry.getValue().stream().mapToLong(ci -> ci.getQuantity() * ci.getPrice()).sum();
+
+            rollupRepository.upsert(entry.getKey(), month.getYear(), month.getMonthValue(), quantity, amount);
+        }
+    }
+
+    //reconstruction complète des cumuls à partir des articles vendus : les pages sont lues avant le verrou exclusif,
+    //les commandes comptées sont marquées pour qu'un cumul en attente ne les ajoute pas une seconde fois
+    public int rebuild() {
+        List<SoldItemDto> items = this.findAllSoldItems();
+        return this.transactionTemplate.execute(status -> this.replaceRollups(items));
+    }
+
+    private int replaceRollups(List<SoldItemDto> items) {
+        SyncState lock = syncStateRepository.lockExclusive(SALES_ROLLUP)
+                .orElseGet(() -> syncStateRepository.save(new SyncState(SALES_ROLLUP, 0L, null)));
+        //statut lu sous le verrou : une commande validée après cette lecture sera cumulée par recordOrder
+        Map<Long, YearMonth> orderMonths = this.findOrderMonths(items);
+
+        Map<String, ProductSalesRollup> rollups = new HashMap<>();
+        for (SoldItemDto ci : items) {
+            YearMonth month = orderMonths.get(ci.getOrderId());
+            if (month == null) continue;
+
+            ProductSalesRollup rollup = rollups.computeIfAbsent(ci.getProductId() + ":" + month,
+                    key -> ProductSalesRollup.builder()
+                            .productId(ci.getProductId())
+                            .periodYear(month.getYear())
+                            .periodMonth(month.getMonthValue())
+                            .build());
+            rollup.setQuantity(rollup.getQuantity() + ci.getQuantity());
+            rollup.setAmount(rollup.getAmount() + ci.getQuantity() * ci.getPrice());
+        }
+
+        rollupRepository.deleteAllInBatch();
+        rollupRepository.saveAll(rollups.values());
+        List<Long> countedOrderIds = List.copyOf(orderMonths.keySet());
+        for (int i = 0; i < countedOrderIds.size(); i += ORDER_IDS_BATCH_SIZE) {
+            orderRepository.markSalesRecordedIn(countedOrderIds.subList(i, Math.min(i + ORDER_IDS_BATCH_SIZE, countedOrderIds.size())));
+        }
+        lock.setUpdatedAt(new Date());
+        log.info("Cumuls des ventes reconstruits : {} ligne(s)", rollups.size());
+        return rollups.size();
+    }
+
+    public List<ProductAnalyticsDto> getProductStats() {
+        YearMonth currentMonth = YearMonth.now();
+        YearMonth previousMonth = currentMonth.minusMonths(1);
+
+        List<ProductSalesRollup> rollups = rollupRepository.findAll();
+        if (rollups.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        //noms des produits en une seule requête
+        List<Long> productIds = rollups.stream().map(ProductSalesRollup::getProductId).distinct().toList();
+        Map<Long, ProductDto> productMap = productRestClient.findListById(
+                        "Bearer " + this.tokenTechnicService.getTechnicalToken(), productIds).stream()
+                .collect(Collectors.toMap(ProductDto::getId, Function.identity()));
+
+        Map<Long, ProductAnalyticsDto> statsByProduct = new LinkedHashMap<>();
+        for (ProductSalesRollup rollup : rollups) {
+            ProductDto product = productMap.get(rollup.getProductId());
+            if (product == null) continue;
+
+            ProductAnalyticsDto stats = statsByProduct.computeIfAbsent(rollup.getProductId(),
+                    id -> new ProductAnalyticsDto(product.getName()));
+            YearMonth month = YearMonth.of(rollup.getPeriodYear(), rollup.getPeriodMonth());
+
+            // Faire le total
+            stats.setTotalQuantity(stats.getTotalQuantity() + rollup.getQuantity());
+            stats.setTotalAmount(stats.getTotalAmount() + rollup.getAmount());
+
+            // Classer par mois en cours
+            if (month.equals(currentMonth)) {
+                stats.setCurrentMonthQuantity(stats.getCurrentMonthQuantity() + rollup.getQuantity());
+                stats.setCurrentMonthTotal(stats.getCurrentMonthTotal() + rollup.getAmount());
+            }
+
+            // Classer par mois précédent
+            if (month.equals(previousMonth)) {
+                stats.setPreviousMonthQuantity(stats.getPreviousMonthQuantity() + rollup.getQuantity());
+                stats.setPreviousMonthTotal(stats.getPreviousMonthTotal() + rollup.getAmount());
+            }
+        }
+        return new ArrayList<>(statsByProduct.values());
+    }
+
+    //on récupère les articles vendus page par page (sans les QR codes)
+    private List<SoldItemDto> findAllSoldItems() {
+        List<SoldItemDto> items = new ArrayList<>();
+        String token = "Bearer " + this.tokenTechnicService.getTechnicalToken();
+        int page = 0;
+        List<SoldItemDto> content;
+        //on s'arrête sur une page vide : cart peut plafonner la taille demandée
+        do {
+            content = cartRestClient.findSoldItems(token, page++, soldItemsPageSize);
+            items.addAll(content);
+        } while (!content.isEmpty());
+        return items;
+    }
+
+    //on charge les dates des commandes validées par lots (requête IN) : même définition d'une vente qu'à la validation
+    private Map<Long, YearMonth> findOrderMonths(List<SoldItemDto> items) {
+        List<Long> orderIds = items.stream().map(SoldItemDto::getOrderId).distinct().toList();
+        Map<Long, YearMonth> orderMonths = new HashMap<>();
+        for (int i = 0; i < orderIds.size(); i += ORDER_IDS_BATCH_SIZE) {
+            List<Long> batch = orderIds.subList(i, Math.min(i + ORDER_IDS_BATCH_SIZE, orderIds.size()));
+            for (OrderDateDto orderDate : orderRepository.findDatesByIdInAndOrderStatus(batch, OrderStatus.Valider)) {
+                if (orderDate.getDate() != null) {
+                    orderMonths.put(orderDate.getId(), toYearMonth(orderDate.getDate()));
+                }
+            }
+        }
+        return orderMonths;
+    }
+
+    private static YearMonth toYearMonth(Date date) {
+        return YearMonth.from(date.toInstant().atZone(ZoneId.systemDefault()));
+    }
+}
@@ -3,8 +3,10 @@ package com.ecom.orders.service;
 import com.ecom.orders.controller.admin.AdminOrderController;
 import com.ecom.orders.dto.AnalyticsResponse;
 import com.ecom.orders.dto.OrderDto;
+import com.ecom.orders.dto.OrderPageDto;
 import com.ecom.orders.enums.OrderStatus;
 import com.ecom.orders.services.AdminService;
+import com.ecom.orders.services.SalesRollupService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -13,8 +15,15 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.ByteArrayOutputStream;
 
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -26,6 +35,9 @@ class AdminControllerTest {
     @Mock
     private AdminService adminService;
 
+    @Mock
+    private SalesRollupService salesRollupService;
+
     @InjectMocks
     private AdminOrderController adminOrderController;
 
@@ -88,4 +100,45 @@ class AdminControllerTest {
         // Vérification que le service a été appelé
         verify(adminService, times(1)).calculateAnalytics();
     }
+
+    // 3 : Test reconstruction des cumuls de ventes
+    @Test
+    void rebuildAnalytics_shouldReturnRollupCount() {
+        // Simulation du service
+        when(salesRollupService.rebuild()).thenReturn(3);
+
+        // Appel direct du contrôleur
+        ResponseEntity<Map<String, Integer>> response = adminOrderController.rebuildAnalytics();
+
+        // Vérification du code HTTP et du contenu
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(3, response.getBody().get("rollups"));
+        verify(salesRollupService, times(1)).rebuild();
+    }
+
+    // 4 : Test page de commandes par curseur
+    @Test
+    void getPlacedOrdersPage_shouldReturnPage() {
+        OrderPageDto page = new OrderPageDto(List.of(orderDto), "1700000000000_1");
+        when(adminService.getPlacedOrdersPage("c", 20, null, null, 1L)).thenReturn(page);
+
+        ResponseEntity<OrderPageDto> response = adminOrderController.getPlacedOrdersPage("c", 20, null, null, 1L);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals("1700000000000_1", response.getBody().getNextCursor());
+    }
+
+    // 5 : Test export NDJSON, le service écrit directement dans la réponse
+    @Test
+    void exportPlacedOrders_shouldStreamNdjson() throws Exception {
+        ResponseEntity<StreamingResponseBody> response = adminOrderController.exportPlacedOrders(null, null, null,
+                new ServletWebRequest(new MockHttpServletRequest(), new MockHttpServletResponse()));
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals("application/x-ndjson", response.getHeaders().getContentType().toString());
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        response.getBody().writeTo(out);
+        verify(adminService, times(1)).exportPlacedOrders(null, null, null, out);
+    }
 }
@@ -2,13 +2,22 @@ package com.ecom.orders.service;
 
 import com.ecom.orders.clients.CartRestClient;
 import com.ecom.orders.clients.ProductRestClient;
+import com.ecom.orders.clients.UserRestClient;
 import com.ecom.orders.dto.AnalyticsResponse;
+import com.ecom.orders.dto.MonthlyTotalsDto;
+import com.ecom.orders.dto.OrderDateDto;
 import com.ecom.orders.dto.OrderDto;
 import com.ecom.orders.dto.ProductAnalyticsDto;
+import com.ecom.orders.dto.ProductDto;
+import com.ecom.orders.dto.SoldItemDto;
+import com.ecom.orders.dto.UserSummaryDto;
 import com.ecom.orders.entity.Order;
 import com.ecom.orders.enums.OrderStatus;
 import com.ecom.orders.repository.OrderRepository;
+import com.ecom.orders.repository.ProductSalesRollupRepository;
+import com.ecom.orders.response.UserNotFoundException;
 import com.ecom.orders.services.AdminService;
+import com.ecom.orders.services.SalesRollupService;
 import com.ecom.orders.services.TokenTechnicService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -29,6 +38,12 @@ class AdminServiceIntegrationTest {
     @Autowired
     private AdminService adminService;
 
+    @Autowired
+    private SalesRollupService salesRollupService;
+
+    @Autowired
+    private ProductSalesRollupRepository productSalesRollupRepository;
+
     @MockBean
     private OrderRepository orderRepository;
 
@@ -41,10 +56,16 @@ class AdminServiceIntegrationTest {
     @MockBean
     private TokenTechnicService tokenTechnicService;
 
+    @MockBean
+    private UserRestClient userRestClient;
+
     private Order order;
 
     @BeforeEach
     void setUp() {
+        // Table des cumuls vide avant chaque test
+        productSalesRollupRepository.deleteAll();
+
         // Création d'une commande
         order = new Order();
         order.setId(1L);
@@ -59,14 +80,19 @@ class AdminServiceIntegrationTest {
     void getAllPlacedOrders_shouldReturnList() {
         // On simule la recherche
         when(orderRepository.findByOrderStatusIn(List.of(OrderStatus.Valider))).thenReturn(List.of(order));
+        when(tokenTechnicService.getTechnicalToken()).thenReturn("token");
+        when(userRestClient.findSummaries(anyString(), eq(List.of(1L))))
+                .thenReturn(List.of(new UserSummaryDto(1L, "John", "john@test.com")));
 
         // Appel du service
         List<OrderDto> result = adminService.getAllPlacedOrders();
 
-        // Vérification
+        // Vérification, email renseigné par la recherche groupée
         assertThat(result).isNotEmpty();
         assertThat(result.get(0).getId()).isEqualTo(order.getId());
+        assertThat(result.get(0).getUserEmail()).isEqualTo("john@test.com");
         verify(orderRepository, times(1)).findByOrderStatusIn(anyList());
+        verify(userRestClient, never()).findUserById(anyString(), anyLong());
     }
 
     // 2 : Vérifie calcul des analytics
@@ -74,8 +100,8 @@ class AdminServiceIntegrationTest {
     void calculateAnalytics_shouldReturnAnalytics() {
         // On simule la recherche des stats
         when(orderRepository.countByOrderStatus(OrderStatus.Valider)).thenReturn(1L);
-        when(orderRepository.findByDateBetweenAndOrderStatus(any(), any(), eq(OrderStatus.Valider)))
-                .thenReturn(List.of(order));
+        when(orderRepository.findMonthlyTotals(eq(OrderStatus.Valider), any(), any(), any()))
+                .thenReturn(new MonthlyTotalsDto(1L, 100L, 1L, 100L));
 
         // Appel du service
         var result = adminService.calculateAnalytics();
@@ -92,7 +118,7 @@ class AdminServiceIntegrationTest {
     void getProductStatsByMonth_shouldReturnList() {
         // On simule la liste des articles vendus
         when(tokenTechnicService.getTechnicalToken()).thenReturn("token");
-        when(cartRestClient.findByQrCodeIsNotNull(anyString())).thenReturn(Collections.emptyList());
+        when(cartRestClient.findSoldItems(anyString(), anyInt(), anyInt())).thenReturn(Collections.emptyList());
 
         // Appel du service
         List<ProductAnalyticsDto> stats = adminService.getProductStatsByMonth();
@@ -102,16 +128,99 @@ class AdminServiceIntegrationTest {
         assertThat(stats).isEmpty();
     }
 
+    // 3 bis : Vérifie la reconstruction des cumuls puis la lecture des stats produits
+    @Test
+    void getProductStatsByMonth_shouldReadRebuiltRollups() {
+        order.setDate(new Date());
+        when(tokenTechnicService.getTechnicalToken()).thenReturn("token");
+        when(cartRestClient.findSoldItems(anyString(), eq(0), anyInt()))
+                .thenReturn(List.of(new SoldItemDto(1L, 1L, order.getId(), 2L, 50L)));
+        when(orderRepository.findDatesByIdInAndOrderStatus(List.of(order.getId()), OrderStatus.Valider))
+                .thenReturn(List.of(new OrderDateDto(order.getId(), order.getDate())));
+        ProductDto product = new ProductDto();
+        product.setId(1L);
+        product.setName("Solo");
+        when(productRestClient.findListById(anyString(), eq(List.of(1L)))).thenReturn(List.of(product));
+
+        // Reconstruction des cumuls à partir de l'historique
+        int rollups = salesRollupService.rebuild();
+
+        // Appel du service
+        List<ProductAnalyticsDto> stats = adminService.getProductStatsByMonth();
+
+        // Vérification, 1 cumul, 1 produit, 2 billets pour 100
+        assertThat(rollups).isEqualTo(1);
+        assertThat(stats).hasSize(1);
+        assertThat(stats.get(0).getTotalQuantity()).isEqualTo(2L);
+        assertThat(stats.get(0).getCurrentMonthTotal()).isEqualTo(100L);
+        verify(orderRepository, never()).findById(anyLong());
+    }
+
+    // 3 ter : Page plus courte que demandé (plafond côté cart) : la lecture continue jusqu'à une page vide
+    @Test
+    void rebuild_shouldReadUntilEmptyPage() {
+        order.setDate(new Date());
+        when(tokenTechnicService.getTechnicalToken()).thenReturn("token");
+        when(cartRestClient.findSoldItems(anyString(), eq(0), anyInt()))
+                .thenReturn(List.of(new SoldItemDto(1L, 1L, order.getId(), 2L, 50L)));
+        when(cartRestClient.findSoldItems(anyString(), eq(1), anyInt()))
+                .thenReturn(List.of(new SoldItemDto(2L, 1L, order.getId(), 1L, 50L)));
+        when(orderRepository.findDatesByIdInAndOrderStatus(List.of(order.getId()), OrderStatus.Valider))
+                .thenReturn(List.of(new OrderDateDto(order.getId(), order.getDate())));
+        ProductDto product = new ProductDto();
+        product.setId(1L);
+        product.setName("Solo");
+        when(productRestClient.findListById(anyString(), eq(List.of(1L)))).thenReturn(List.of(product));
+
+        salesRollupService.rebuild();
+        List<ProductAnalyticsDto> stats = adminService.getProductStatsByMonth();
+
+        // Vérification : les deux pages sont cumulées
+        assertThat(stats).hasSize(1);
+        assertThat(stats.get(0).getTotalQuantity()).isEqualTo(3L);
+        verify(cartRestClient, times(3)).findSoldItems(anyString(), anyInt(), anyInt());
+    }
+
+    // 3 quater : Commande déjà cumulée (reconstruction ou reprise) = aucun second cumul
+    @Test
+    void recordOrder_shouldSkipOrderAlreadyCounted() {
+        order.setDate(new Date());
+        when(tokenTechnicService.getTechnicalToken()).thenReturn("token");
+        when(cartRestClient.findOrderItems(anyString(), eq(order.getId())))
+                .thenReturn(List.of(new SoldItemDto(1L, 1L, order.getId(), 2L, 50L)));
+        // On simule la marque déjà posée
+        when(orderRepository.markSalesRecorded(order.getId(), OrderStatus.Valider)).thenReturn(0);
+
+        salesRollupService.recordOrder(order);
+
+        // Vérification : aucun cumul écrit
+        assertThat(productSalesRollupRepository.count()).isZero();
+    }
+
+    // 3 quinquies : Reprise planifiée, cart indisponible = la commande reste en attente sans erreur
+    @Test
+    void recordPendingOrders_shouldKeepOrderPendingWhenCartFails() {
+        order.setDate(new Date());
+        when(tokenTechnicService.getTechnicalToken()).thenReturn("token");
+        when(orderRepository.findSalesNotRecorded(eq(OrderStatus.Valider), any())).thenReturn(List.of(order));
+        when(cartRestClient.findOrderItems(anyString(), eq(order.getId()))).thenThrow(new UserNotFoundException("Service indisponible"));
+
+        salesRollupService.recordPendingOrders();
+
+        // Vérification : la marque n'est pas posée
+        verify(orderRepository, never()).markSalesRecorded(anyLong(), any());
+    }
+
     // 4 : Test : Vérifie la méthode calculateAnalytics()
     @Test
     void calculateAnalytics() {
         // Simulation des dépendances
         when(orderRepository.countByOrderStatus(OrderStatus.Valider)).thenReturn(5L);
-        when(orderRepository.findByDateBetweenAndOrderStatus(any(Date.class), any(Date.class), eq(OrderStatus.Valider)))
-                .thenReturn(List.of(order));
+        when(orderRepository.findMonthlyTotals(eq(OrderStatus.Valider), any(Date.class), any(Date.class), any(Date.class)))
+                .thenReturn(new MonthlyTotalsDto(1L, order.getAmount(), 0L, 0L));
 
         // Simulation d'une liste vide
-        when(cartRestClient.findByQrCodeIsNotNull(anyString())).thenReturn(List.of());
+        when(cartRestClient.findSoldItems(anyString(), anyInt(), anyInt())).thenReturn(List.of());
         when(tokenTechnicService.getTechnicalToken()).thenReturn("token");
 
         // Appel de la méthode
@@ -126,6 +235,6 @@ class AdminServiceIntegrationTest {
 
         // Vérifie que les dépendances ont bien été appelées
         verify(orderRepository, times(1)).countByOrderStatus(OrderStatus.Valider);
-        verify(orderRepository, atLeastOnce()).findByDateBetweenAndOrderStatus(any(), any(), eq(OrderStatus.Valider));
+        verify(orderRepository, times(1)).findMonthlyTotals(eq(OrderStatus.Valider), any(), any(), any());
     }
 }
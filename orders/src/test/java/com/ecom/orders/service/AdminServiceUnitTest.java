@@ -1,18 +1,31 @@
 package com.ecom.orders.service;
 
+import com.ecom.orders.clients.UserRestClient;
+import com.ecom.orders.dto.OrderDto;
+import com.ecom.orders.dto.OrderPageDto;
+import com.ecom.orders.dto.UserSummaryDto;
 import com.ecom.orders.entity.Order;
 import com.ecom.orders.enums.OrderStatus;
 import com.ecom.orders.repository.OrderRepository;
+import com.ecom.orders.response.UserNotFoundException;
 import com.ecom.orders.services.AdminService;
+import com.ecom.orders.services.TokenTechnicService;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.springframework.data.domain.Pageable;
 
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.List;
+import java.util.stream.IntStream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -25,6 +38,15 @@ class AdminServiceUnitTest {
     @Mock
     private OrderRepository orderRepository;
 
+    @Mock
+    private UserRestClient userRestClient;
+
+    @Mock
+    private TokenTechnicService tokenTechnicService;
+
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper();
+
     private Order order;
 
     @BeforeEach
@@ -70,14 +92,16 @@ class AdminServiceUnitTest {
         calendar.set(Calendar.SECOND, 59);
         Date endOfMonth = calendar.getTime();
 
-        when(orderRepository.findByDateBetweenAndOrderStatus(any(Date.class), any(Date.class), eq(OrderStatus.Valider)))
-                .thenReturn(orders);
+        // on simule la somme calculée par la base
+        when(orderRepository.sumAmountByStatusAndDateRange(eq(OrderStatus.Valider), any(Date.class), any(Date.class)))
+                .thenReturn(orders.stream().mapToLong(Order::getAmount).sum());
 
         Long total = adminService.getTotalEarningsForMonth(month, year);
 
         assertEquals(100L, total);
         verify(orderRepository, times(1))
-                .findByDateBetweenAndOrderStatus(any(Date.class), any(Date.class), eq(OrderStatus.Valider));
+                .sumAmountByStatusAndDateRange(eq(OrderStatus.Valider), any(Date.class), any(Date.class));
+        verify(orderRepository, never()).findByDateBetweenAndOrderStatus(any(), any(), any());
 
     }
 
@@ -108,9 +132,9 @@ class AdminServiceUnitTest {
         System.out.println(">>> startOfMonth = " + startOfMonth);
         System.out.println(">>> endOfMonth   = " + endOfMonth);
 
-        // on simule la recherche
-        when(orderRepository.findByDateBetweenAndOrderStatus(any(Date.class), any(Date.class), eq(OrderStatus.Valider)))
-                .thenReturn(orders);
+        // on simule le comptage fait par la base
+        when(orderRepository.countByStatusAndDateRange(eq(OrderStatus.Valider), any(Date.class), any(Date.class)))
+                .thenReturn((long) orders.size());
 
         // Appel de la méthode testée
         Long count = adminService.getTotalOrdersForMonth(month, year);
@@ -119,8 +143,100 @@ class AdminServiceUnitTest {
         System.out.println(">>> count = " + count);
         assertEquals(2L, count);
         verify(orderRepository, times(1))
-                .findByDateBetweenAndOrderStatus(any(Date.class), any(Date.class), eq(OrderStatus.Valider));
+                .countByStatusAndDateRange(eq(OrderStatus.Valider), any(Date.class), any(Date.class));
 
     }
 
+    // Emails des commandes validées : un seul appel au service users pour tous les clients
+    @Test
+    void getAllPlacedOrders_shouldFetchEmailsInOneCall() {
+        order.setUserId(10L);
+        Order second = new Order();
+        second.setId(2L);
+        second.setUserId(10L);
+        second.setOrderStatus(OrderStatus.Valider);
+        Order third = new Order();
+        third.setId(3L);
+        third.setUserId(20L);
+        third.setOrderStatus(OrderStatus.Valider);
+
+        when(orderRepository.findByOrderStatusIn(List.of(OrderStatus.Valider))).thenReturn(List.of(order, second, third));
+        when(tokenTechnicService.getTechnicalToken()).thenReturn("token");
+        when(userRestClient.findSummaries("Bearer token", List.of(10L, 20L)))
+                .thenReturn(List.of(new UserSummaryDto(10L, "Jean", "jean@test.com"), new UserSummaryDto(20L, "Paul", "paul@test.com")));
+
+        List<OrderDto> result = adminService.getAllPlacedOrders();
+
+        assertEquals("jean@test.com", result.get(0).getUserEmail());
+        assertEquals("jean@test.com", result.get(1).getUserEmail());
+        assertEquals("paul@test.com", result.get(2).getUserEmail());
+        verify(userRestClient, times(1)).findSummaries(anyString(), anyList());
+        verify(userRestClient, never()).findUserById(anyString(), anyLong());
+    }
+
+    // Page de commandes : curseur (date, id) de la dernière ligne quand la page est pleine
+    @Test
+    void getPlacedOrdersPage_shouldReturnNextCursorWhenPageIsFull() {
+        Date date = new Date(1_700_000_000_000L);
+        OrderDto first = new OrderDto(5L, date, 100L, OrderStatus.Valider, 100L, null, 10L);
+        OrderDto second = new OrderDto(4L, date, 50L, OrderStatus.Valider, 50L, null, 10L);
+
+        when(orderRepository.findPlacedPage(eq(OrderStatus.Valider), any(), any(), isNull(), isNull(), isNull(), any(Pageable.class)))
+                .thenReturn(List.of(first, second));
+        when(tokenTechnicService.getTechnicalToken()).thenReturn("token");
+        when(userRestClient.findSummaries("Bearer token", List.of(10L)))
+                .thenReturn(List.of(new UserSummaryDto(10L, "Jean", "jean@test.com")));
+
+        OrderPageDto page = adminService.getPlacedOrdersPage(null, 2, LocalDate.of(2023, 11, 1), LocalDate.of(2023, 11, 30), null);
+
+        // Vérification : curseur de la dernière ligne et emails renseignés
+        assertEquals("1700000000000_4", page.getNextCursor());
+        assertEquals("jean@test.com", page.getOrders().get(1).getUserEmail());
+        verify(orderRepository, never()).findByOrderStatusIn(anyList());
+    }
+
+    // Page suivante : le curseur est décodé et la dernière page n'a pas de curseur
+    @Test
+    void getPlacedOrdersPage_shouldUseCursorAndEndOnPartialPage() {
+        when(orderRepository.findPlacedPage(eq(OrderStatus.Valider), isNull(), isNull(), eq(10L),
+                eq(new Date(1_700_000_000_000L)), eq(4L), any(Pageable.class))).thenReturn(List.of());
+
+        OrderPageDto page = adminService.getPlacedOrdersPage("1700000000000_4", 50, null, null, 10L);
+
+        assertTrue(page.getOrders().isEmpty());
+        assertNull(page.getNextCursor());
+        verifyNoInteractions(userRestClient);
+    }
+
+    // Curseur illisible = erreur
+    @Test
+    void getPlacedOrdersPage_shouldRejectInvalidCursor() {
+        assertThrows(UserNotFoundException.class, () -> adminService.getPlacedOrdersPage("abc", 50, null, null, null));
+    }
+
+    // Export NDJSON : une ligne par commande, lue par blocs avec le curseur, emails recherchés par bloc
+    @Test
+    void exportPlacedOrders_shouldWriteOneLinePerOrder() throws Exception {
+        Date date = new Date();
+        List<OrderDto> rows = IntStream.rangeClosed(1, 501)
+                .mapToObj(i -> new OrderDto((long) (1000 - i), date, 10L, OrderStatus.Valider, 10L, null, 7L))
+                .toList();
+        // On simule deux pages : 500 commandes puis la dernière, reprise après la dernière commande lue
+        when(orderRepository.findPlacedPage(eq(OrderStatus.Valider), isNull(), isNull(), isNull(), isNull(), isNull(), any(Pageable.class)))
+                .thenReturn(rows.subList(0, 500));
+        when(orderRepository.findPlacedPage(eq(OrderStatus.Valider), isNull(), isNull(), isNull(), eq(date), eq(500L), any(Pageable.class)))
+                .thenReturn(rows.subList(500, 501));
+        when(tokenTechnicService.getTechnicalToken()).thenReturn("token");
+        when(userRestClient.findSummaries(anyString(), eq(List.of(7L))))
+                .thenReturn(List.of(new UserSummaryDto(7L, "Jean", "jean@test.com")));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        adminService.exportPlacedOrders(null, null, null, out);
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(501, lines.length);
+        assertTrue(lines[0].contains("\"userEmail\":\"jean@test.com\""));
+        // deux blocs : 500 + 1
+        verify(userRestClient, times(2)).findSummaries(anyString(), anyList());
+    }
 }
@@ -0,0 +1,37 @@
+package com.ecom.orders.service;
+
+import com.ecom.orders.config.MetricsConfig;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MetricsConfigUnitTest {
+
+    // 1 : erreurs et appels refusés par le circuit ouvert comptés comme fallbacks
+    @Test
+    void circuitBreakerFallbackMetrics_shouldCountErrorsAndNotPermittedCalls() {
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        CircuitBreakerRegistry registry = CircuitBreakerRegistry.of(CircuitBreakerConfig.ofDefaults(),
+                List.of(new MetricsConfig().circuitBreakerFallbackMetrics(meterRegistry)));
+        CircuitBreaker circuitBreaker = registry.circuitBreaker("cart");
+
+        // On simule un appel en erreur puis un circuit ouvert
+        assertThrows(IllegalStateException.class, () -> circuitBreaker.executeRunnable(() -> {
+            throw new IllegalStateException("cart indisponible");
+        }));
+        circuitBreaker.transitionToOpenState();
+        assertThrows(CallNotPermittedException.class, () -> circuitBreaker.executeRunnable(() -> { }));
+
+        // Vérification des compteurs par circuit et par cause
+        assertEquals(1.0, meterRegistry.get("resilience4j.circuitbreaker.fallback.calls").tags("name", "cart", "kind", "error").counter().count());
+        assertEquals(1.0, meterRegistry.get("resilience4j.circuitbreaker.fallback.calls").tags("name", "cart", "kind", "not_permitted").counter().count());
+    }
+}
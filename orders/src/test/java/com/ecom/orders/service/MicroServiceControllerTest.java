@@ -2,6 +2,7 @@ package com.ecom.orders.service;
 
 import com.ecom.orders.config.UsersOrderInitializer;
 import com.ecom.orders.controller.MicroServiceController;
+import com.ecom.orders.dto.OrderAmountDto;
 import com.ecom.orders.entity.Order;
 import com.ecom.orders.enums.OrderStatus;
 import com.ecom.orders.services.OrderService;
@@ -89,13 +90,13 @@ class MicroServiceControllerTest {
     @Test
     void synchronizeOrders() {
         // Appel direct du contrôleur
-        ResponseEntity<Void> response = microServiceController.synchronizeOrders();
+        ResponseEntity<Void> response = microServiceController.synchronizeOrders(false);
 
         // Vérification du code HTTP
         assertEquals(HttpStatus.OK, response.getStatusCode());
 
-        // Vérification que le synchronizer a été appelé
-        verify(usersOrderInitializer, times(1)).synchronize();
+        // Vérification que le synchronizer a été appelé (reprise incrémentale)
+        verify(usersOrderInitializer, times(1)).synchronize(false);
     }
 
     // 5 : Test récupération commande par Id
@@ -113,4 +114,17 @@ class MicroServiceControllerTest {
         // Vérification que le service a été appelé
         verify(orderService, times(1)).findById(1L);
     }
+
+    // 6 : Test variation du montant d'une commande
+    @Test
+    void addAmount_shouldApplyDelta() {
+        OrderAmountDto orderAmountDto = new OrderAmountDto(1L, -50L);
+
+        // Appel direct du contrôleur
+        ResponseEntity<Void> response = microServiceController.addAmount(orderAmountDto);
+
+        // Vérification du code HTTP et de l'appel au service
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        verify(orderService, times(1)).applyAmountDelta(orderAmountDto);
+    }
 }
@@ -10,6 +10,7 @@ import com.ecom.orders.model.User;
 import com.ecom.orders.repository.OrderRepository;
 import com.ecom.orders.response.UserNotFoundException;
 import com.ecom.orders.services.OrderService;
+import com.ecom.orders.services.SalesRollupService;
 import com.ecom.orders.services.TokenTechnicService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -45,6 +46,9 @@ class OrderServiceIntegrationTest {
     @MockBean
     private CartRestClient cartRestClient;
 
+    @MockBean
+    private SalesRollupService salesRollupService;
+
     private Order order;
     private User user;
 
@@ -138,6 +142,8 @@ class OrderServiceIntegrationTest {
         assertEquals(OrderStatus.Valider, order.getOrderStatus());
         verify(orderRepository, times(2)).save(any(Order.class)); // update + new order
         verify(cartRestClient, times(1)).generateQrCde(anyString(), anyMap());
+        verify(salesRollupService, times(1)).recordOrder(order); // cumuls des ventes
+        verify(cartRestClient, times(1)).evictActiveOrder(anyString(), eq(Map.of("userId", order.getUserId()))); // cache du panier
     }
 
     // 6 : Placement commande avec utilisateur inexistant
@@ -169,6 +175,7 @@ class OrderServiceIntegrationTest {
 
         // Vérification, exception levée si QR code = KO
         assertThrows(UserNotFoundException.class, () -> orderService.placeOrder(dto));
+        verify(salesRollupService, never()).recordOrder(any());
     }
 
     // 8 : Recherche commande par Id existant
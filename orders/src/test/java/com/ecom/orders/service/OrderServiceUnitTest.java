@@ -1,9 +1,12 @@
 package com.ecom.orders.service;
 
+import com.ecom.orders.dto.OrderAmountDto;
 import com.ecom.orders.entity.Order;
 import com.ecom.orders.enums.OrderStatus;
 import com.ecom.orders.repository.OrderRepository;
+import com.ecom.orders.response.UserNotFoundException;
 import com.ecom.orders.services.OrderService;
+import com.ecom.orders.services.SalesRollupService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
@@ -26,6 +29,9 @@ class OrderServiceUnitTest {
     @Mock
     private OrderRepository orderRepository;
 
+    @Mock
+    private SalesRollupService salesRollupService;
+
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
@@ -72,4 +78,25 @@ class OrderServiceUnitTest {
         // Vérifie la sauvegarde
         verify(orderRepository, times(1)).save(existingOrder);
     }
+
+    // 3 : Variation atomique du montant d'une commande ouverte
+    @Test
+    void applyAmountDelta_shouldUpdateOpenOrder() {
+        when(orderRepository.addToAmount(1L, 100L, OrderStatus.EnCours)).thenReturn(1);
+
+        orderService.applyAmountDelta(new OrderAmountDto(1L, 100L));
+
+        // Aucune lecture ni sauvegarde complète de la commande
+        verify(orderRepository, times(1)).addToAmount(1L, 100L, OrderStatus.EnCours);
+        verify(orderRepository, never()).findById(anyLong());
+        verify(orderRepository, never()).save(any(Order.class));
+    }
+
+    // 4 : Variation refusée si la commande est introuvable ou déjà validée
+    @Test
+    void applyAmountDelta_shouldThrowWhenOrderNotOpen() {
+        when(orderRepository.addToAmount(2L, 100L, OrderStatus.EnCours)).thenReturn(0);
+
+        assertThrows(UserNotFoundException.class, () -> orderService.applyAmountDelta(new OrderAmountDto(2L, 100L)));
+    }
 }
@@ -0,0 +1,74 @@
+package com.ecom.orders.service;
+
+import com.ecom.orders.config.RequestStatistics;
+import com.ecom.orders.config.RequestStatsEndpoint;
+import com.ecom.orders.config.RequestStatsFilter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RequestStatsFilterUnitTest {
+
+    private RequestStatsEndpoint requestStatsEndpoint;
+    private MeterRegistry meterRegistry;
+    private RequestStatsFilter requestStatsFilter;
+
+    @BeforeEach
+    void setUp() {
+        requestStatsEndpoint = new RequestStatsEndpoint();
+        meterRegistry = new SimpleMeterRegistry();
+        requestStatsFilter = new RequestStatsFilter(requestStatsEndpoint, meterRegistry, 50, 500, 10, 10);
+    }
+
+    // 1 : la même requête SQL répétée dans une requête HTTP = N+1 signalé
+    @Test
+    void doFilter_shouldDetectRepeatedStatement() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/admin/orders");
+
+        // On simule un contrôleur qui charge une commande par ligne
+        requestStatsFilter.doFilter(request, new MockHttpServletResponse(), (req, res) -> {
+            req.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, "/admin/orders");
+            RequestStatistics.onStatement("select o.id from orders o");
+            for (int i = 0; i < 12; i++) {
+                RequestStatistics.onStatement("select o.id from orders o where o.id=?");
+                RequestStatistics.onEntityLoad();
+            }
+            RequestStatistics.onFeignCall();
+        });
+
+        // Vérification des compteurs Micrometer
+        assertEquals(13.0, meterRegistry.get("request.sql.statements").tag("uri", "/admin/orders").summary().totalAmount());
+        assertEquals(12.0, meterRegistry.get("request.entity.loads").summary().totalAmount());
+        assertEquals(1.0, meterRegistry.get("request.feign.calls").summary().totalAmount());
+        assertEquals(1.0, meterRegistry.get("request.n_plus_one.suspected").counter().count());
+
+        // Vérification du cumul exposé par l'endpoint actuator
+        Map<String, Object> stats = requestStatsEndpoint.requestStats().get("GET /admin/orders");
+        assertEquals(1L, stats.get("requests"));
+        assertEquals(1L, stats.get("suspectedNPlusOne"));
+        // Empreinte de la requête publiée, jamais le SQL
+        assertEquals(12, ((String) stats.get("lastSuspectedStatementId")).length());
+        assertFalse(stats.values().stream().anyMatch(value -> String.valueOf(value).contains("select")));
+    }
+
+    // 2 : hors requête HTTP, rien n'est compté
+    @Test
+    void onStatement_outsideRequest_shouldBeIgnored() throws Exception {
+        RequestStatistics.onStatement("select 1");
+
+        requestStatsFilter.doFilter(new MockHttpServletRequest("GET", "/order"), new MockHttpServletResponse(), (req, res) -> { });
+
+        // Vérification, aucune requête SQL ni N+1 pour cette requête
+        assertEquals(0.0, meterRegistry.get("request.sql.statements").summary().totalAmount());
+        assertNull(meterRegistry.find("request.n_plus_one.suspected").counter());
+        assertEquals(0L, requestStatsEndpoint.requestStats().get("GET UNKNOWN").get("suspectedNPlusOne"));
+    }
+}
@@ -0,0 +1,93 @@
+package com.ecom.orders.service;
+
+import com.ecom.orders.clients.UserRestClient;
+import com.ecom.orders.config.UsersOrderInitializer;
+import com.ecom.orders.entity.SyncState;
+import com.ecom.orders.enums.OrderStatus;
+import com.ecom.orders.repository.OrderRepository;
+import com.ecom.orders.repository.SyncStateRepository;
+import com.ecom.orders.services.TokenTechnicService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.*;
+
+class UsersOrderInitializerUnitTest {
+
+    @InjectMocks
+    private UsersOrderInitializer usersOrderInitializer;
+
+    @Mock
+    private UserRestClient userRestClient;
+
+    @Mock
+    private OrderRepository orderRepository;
+
+    @Mock
+    private SyncStateRepository syncStateRepository;
+
+    @Mock
+    private TokenTechnicService tokenTechnicService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(tokenTechnicService.getTechnicalToken()).thenReturn("token");
+    }
+
+    // 1 : une page d'utilisateurs = une requête de recherche et une insertion groupée
+    @Test
+    void synchronize_shouldInsertMissingOrdersForPage() {
+        when(syncStateRepository.findById("users-orders")).thenReturn(Optional.empty());
+        when(userRestClient.findUserIds("Bearer token", 0L, 1000)).thenReturn(List.of(1L, 2L, 3L));
+        when(orderRepository.findUserIdsWithStatus(List.of(1L, 2L, 3L), OrderStatus.EnCours)).thenReturn(List.of(2L));
+        when(orderRepository.insertOpenOrders(Set.of(1L, 3L))).thenReturn(2);
+
+        int created = usersOrderInitializer.synchronize();
+
+        // Vérification : seuls les utilisateurs sans commande EnCours, point de reprise mémorisé
+        assertEquals(2, created);
+        verify(orderRepository, times(1)).insertOpenOrders(Set.of(1L, 3L));
+        verify(orderRepository, never()).findByUserIdAndOrderStatus(anyLong(), any());
+        verify(syncStateRepository).save(argThat(state -> state.getLastUserId() == 3L));
+    }
+
+    // 2 : reprise après le dernier utilisateur synchronisé, pages successives
+    @Test
+    void synchronize_shouldResumeFromWatermarkAndPage() {
+        List<Long> fullPage = LongStream.rangeClosed(101, 1100).boxed().toList();
+        when(syncStateRepository.findById("users-orders")).thenReturn(Optional.of(new SyncState("users-orders", 100L, null)));
+        when(userRestClient.findUserIds("Bearer token", 100L, 1000)).thenReturn(fullPage);
+        when(userRestClient.findUserIds("Bearer token", 1100L, 1000)).thenReturn(List.of(1101L));
+        when(orderRepository.findUserIdsWithStatus(anyList(), eq(OrderStatus.EnCours))).thenReturn(fullPage);
+        when(orderRepository.findUserIdsWithStatus(List.of(1101L), OrderStatus.EnCours)).thenReturn(List.of());
+        when(orderRepository.insertOpenOrders(Set.of(1101L))).thenReturn(1);
+
+        int created = usersOrderInitializer.synchronize();
+
+        assertEquals(1, created);
+        verify(userRestClient, never()).findUserIds(anyString(), eq(0L), anyInt());
+        verify(userRestClient, times(2)).findUserIds(anyString(), anyLong(), anyInt());
+    }
+
+    // 3 : synchronisation complète, on repart du début
+    @Test
+    void synchronize_full_shouldIgnoreWatermark() {
+        when(syncStateRepository.findById("users-orders")).thenReturn(Optional.of(new SyncState("users-orders", 500L, null)));
+        when(userRestClient.findUserIds("Bearer token", 0L, 1000)).thenReturn(List.of());
+
+        usersOrderInitializer.synchronize(true);
+
+        verify(userRestClient, times(1)).findUserIds("Bearer token", 0L, 1000);
+        verify(orderRepository, never()).insertOpenOrders(any());
+    }
+}
@@ -0,0 +1,55 @@
+package com.ecom.products.config;
+
+import com.ecom.products.repository.ProductRepository;
+import com.ecom.products.services.image.ProductImageService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+@Slf4j
+@Component
+@Profile("!test")
+@RequiredArgsConstructor
+public class ProductImageMigration {
+
+    private final ProductRepository productRepository;
+    private final ProductImageService productImageService;
+
+    //on déplace les images encore stockées dans product.img vers product_image
+    @Order(0)
+    @EventListener(ApplicationReadyEvent.class)
+    public void migrateLegacyImages() {
+        try {
+            //pas de colonne img sur une base récente : rien à migrer
+            if (productRepository.countLegacyImgColumn() == 0) {
+                return;
+            }
+            List<Long> ids = productRepository.findIdsWithLegacyImg();
+            int migrated = 0;
+            for (Long id : ids) {
+                try {
+                    String hash = productImageService.store(productRepository.findLegacyImg(id), "image/jpeg");
+                    productRepository.moveLegacyImg(id, hash);
+                    migrated++;
+                } catch (Exception e) {
+                    //la ligne garde son image d'origine, elle sera reprise au prochain démarrage
+                    log.error("Image du produit {} non migrée", id, e);
+                }
+            }
+            if (!ids.isEmpty()) {
+                log.info("{} image(s) produit migrée(s) vers product_image", migrated);
+            }
+            if (migrated < ids.size()) {
+                log.error("{} image(s) produit non migrée(s) sur {}", ids.size() - migrated, ids.size());
+            }
+        } catch (Exception e) {
+            log.error("Migration des images produit interrompue", e);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.ecom.products.config;
+
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+//cumuls par endpoint exposés sur /actuator/requeststats (SCOPE_ADMIN), les plus coûteux en SQL en premier
+@Endpoint(id = "requeststats")
+public class RequestStatsEndpoint {
+
+    private final Map<String, EndpointStatistics> statistics = new ConcurrentHashMap<>();
+
+    void record(String endpoint, RequestStatistics request, String suspectedStatementId) {
+        statistics.computeIfAbsent(endpoint, key -> new EndpointStatistics()).add(request, suspectedStatementId);
+    }
+
+    @ReadOperation
+    public Map<String, Map<String, Object>> requestStats() {
+        Map<String, Map<String, Object>> result = new LinkedHashMap<>();
+        statistics.entrySet().stream()
+                .sorted(Comparator.comparingLong((Map.Entry<String, EndpointStatistics> entry) -> entry.getValue().statements.sum()).reversed())
+                .forEach(entry -> result.put(entry.getKey(), entry.getValue().toMap()));
+        return result;
+    }
+
+    @DeleteOperation
+    public void reset() {
+        statistics.clear();
+    }
+
+    private static class EndpointStatistics {
+        private final LongAdder requests = new LongAdder();
+        private final LongAdder statements = new LongAdder();
+        private final LongAdder entityLoads = new LongAdder();
+        private final LongAdder feignCalls = new LongAdder();
+        private final LongAdder suspectedNPlusOne = new LongAdder();
+        private final AtomicLong maxStatements = new AtomicLong();
+        private volatile String lastSuspectedStatementId;
+
+        void add(RequestStatistics request, String suspectedStatementId) {
+            requests.increment();
+            statements.add(request.getStatements());
+            entityLoads.add(request.getEntityLoads());
+            feignCalls.add(request.getFeignCalls());
+            maxStatements.accumulateAndGet(request.getStatements(), Math::max);
+            if (suspectedStatementId != null) {
+                suspectedNPlusOne.increment();
+                lastSuspectedStatementId = suspectedStatementId;
+            }
+        }
+
+        Map<String, Object> toMap() {
+            long count = Math.max(1, requests.sum());
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("requests", requests.sum());
+            map.put("statements", statements.sum());
+            map.put("avgStatements", (double) statements.sum() / count);
+            map.put("maxStatements", maxStatements.get());
+            map.put("avgEntityLoads", (double) entityLoads.sum() / count);
+            map.put("avgFeignCalls", (double) feignCalls.sum() / count);
+            map.put("suspectedNPlusOne", suspectedNPlusOne.sum());
+            //empreinte à rechercher dans les logs "N+1 probable"
+            map.put("lastSuspectedStatementId", lastSuspectedStatementId);
+            return map;
+        }
+    }
+}
@@ -2,6 +2,7 @@ package com.ecom.products.config;
 
 import com.ecom.products.entity.Product;
 import com.ecom.products.repository.ProductRepository;
+import com.ecom.products.services.image.ProductImageService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.boot.context.event.ApplicationReadyEvent;
@@ -22,11 +23,14 @@ import java.util.Objects;
 public class SqlCreate {
 
     private final ProductRepository productRepository;
+    private final ProductImageService productImageService;
 
         @EventListener(ApplicationReadyEvent.class)
         public void onApplicationReady() throws URISyntaxException, IOException {
             byte[] Image = Files.readAllBytes(
                     Paths.get(Objects.requireNonNull(getClass().getClassLoader().getResource("images/JO-Paris-2024.jpg")).toURI()));
+            //l'image commune n'est stockée qu'une fois
+            String imageHash = productImageService.store(Image, "image/jpeg");
 
             //on créer 3 offres au démarrage
             try {
@@ -36,7 +40,7 @@ public class SqlCreate {
                             .name("Solo")
                             .description("1 personne")
                             .price(50L)
-                            .img(Image)
+                            .imageHash(imageHash)
                             .quantity(1L)
                             .build();
                     productRepository.save(solo);
@@ -53,7 +57,7 @@ public class SqlCreate {
                             .name("Duo")
                             .description("2 personnes")
                             .price(80L)
-                            .img(Image)
+                            .imageHash(imageHash)
                             .quantity(1L)
                             .build();
                     productRepository.save(duo);
@@ -70,7 +74,7 @@ public class SqlCreate {
                             .name("Famille")
                             .description("4 personnes")
                             .price(120L)
-                            .img(Image)
+                            .imageHash(imageHash)
                             .quantity(1L)
                             .build();
                     productRepository.save(famille);
@@ -2,7 +2,6 @@ package com.ecom.products.controller;
 
 
 import com.ecom.products.dto.ProductDto;
-import com.ecom.products.entity.Product;
 import com.ecom.products.services.customer.ProductService;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -20,7 +19,7 @@ public class MicroServiceController {
     }
 
     @GetMapping("/_internal/productFindById/{id}")
-    public Optional<Product> findById(@PathVariable Long id){
+    public Optional<ProductDto> findById(@PathVariable Long id){
         return this.productService.findById(id);
     }
 
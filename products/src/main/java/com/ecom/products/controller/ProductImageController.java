@@ -0,0 +1,49 @@
+package com.ecom.products.controller;
+
+import com.ecom.products.dto.ProductDto;
+import com.ecom.products.dto.ProductImageInfo;
+import com.ecom.products.services.image.ProductImageService;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.time.Duration;
+import java.util.Optional;
+
+@RestController
+public class ProductImageController {
+
+    private final ProductImageService productImageService;
+
+    public ProductImageController(ProductImageService productImageService) {
+        this.productImageService = productImageService;
+    }
+
+    @GetMapping(ProductDto.IMAGE_PATH + "{hash}")
+    public ResponseEntity<StreamingResponseBody> getImage(@PathVariable String hash, WebRequest request) {
+        String etag = "\"" + hash + "\"";
+        //l'image est adressée par son contenu : si le client l'a déjà, on répond 304
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        Optional<ProductImageInfo> image = productImageService.findInfoByHash(hash);
+        if (image.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .eTag(etag)
+                .lastModified(image.get().createdAt())
+                .cacheControl(CacheControl.maxAge(Duration.ofDays(365)).cachePublic().immutable())
+                .contentType(ProductImageService.servedMediaType(image.get().contentType()))
+                //le navigateur ne doit pas deviner un autre type (HTML, script) à partir du contenu
+                .header("X-Content-Type-Options", "nosniff");
+        if (image.get().dataSize() != null) {
+            response.contentLength(image.get().dataSize());
+        }
+        return response.body(outputStream -> productImageService.copyTo(hash, outputStream));
+    }
+}
@@ -11,11 +11,14 @@ import org.springframework.web.multipart.MultipartFile;
 @NoArgsConstructor
 public class ProductDto {
 
+    public static final String IMAGE_PATH = "/product-image/";
+
     private Long id;
     private String name;
     private Long price;
     private String description;
-    private byte[] byteImg;
+    @JsonIgnore
+    private String imageHash;
     @JsonIgnore
     private MultipartFile img;
     private Long quantity;
@@ -26,4 +29,9 @@ public class ProductDto {
         this.price = price;
     }
 
+    //URL publique de l'image, construite à partir de sa référence
+    public String getImageUrl() {
+        return imageHash == null ? null : IMAGE_PATH + imageHash;
+    }
+
 }
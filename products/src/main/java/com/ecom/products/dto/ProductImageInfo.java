@@ -0,0 +1,7 @@
+package com.ecom.products.dto;
+
+import java.time.Instant;
+
+//métadonnées d'une image, sans son contenu
+public record ProductImageInfo(String hash, String contentType, Instant createdAt, Long dataSize) {
+}
@@ -22,9 +22,9 @@ public class Product {
     private Long price;
     @Lob
     private String description;
-    @Lob
-    @Column(columnDefinition = "longblob")
-    private byte[] img;
+    //référence vers l'image stockée dans la table product_image
+    @Column(name = "image_hash", length = 64)
+    private String imageHash;
     @Transient
     private Long quantity= 1L;
 
@@ -35,7 +35,7 @@ public class Product {
         productDto.setName(name);
         productDto.setPrice(price);
         productDto.setDescription(description);
-        productDto.setByteImg(img);
+        productDto.setImageHash(imageHash);
         productDto.setQuantity(quantity);
         return productDto;
     }
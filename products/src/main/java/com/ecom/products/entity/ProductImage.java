@@ -0,0 +1,30 @@
+package com.ecom.products.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+@Entity
+@Builder
+@Table(name = "product_image")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductImage {
+
+    //empreinte SHA-256 du contenu : une même image n'est stockée qu'une fois
+    @Id
+    @Column(length = 64)
+    private String hash;
+    private String contentType;
+    private Instant createdAt;
+    //taille en octets, connue sans lire le contenu (null pour les images enregistrées avant)
+    private Long dataSize;
+    @Lob
+    @Column(columnDefinition = "longblob")
+    private byte[] data;
+}
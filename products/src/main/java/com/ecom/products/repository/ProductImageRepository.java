@@ -0,0 +1,20 @@
+package com.ecom.products.repository;
+
+import com.ecom.products.dto.ProductImageInfo;
+import com.ecom.products.entity.ProductImage;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Optional;
+
+public interface ProductImageRepository extends JpaRepository<ProductImage, String> {
+
+    @Query("SELECT new com.ecom.products.dto.ProductImageInfo(i.hash, i.contentType, i.createdAt, i.dataSize) " +
+            "FROM ProductImage i WHERE i.hash = :hash")
+    Optional<ProductImageInfo> findInfoByHash(@Param("hash") String hash);
+
+    //lecture d'un morceau du contenu (position à partir de 1) : l'image n'est jamais chargée en entier
+    @Query(value = "SELECT SUBSTRING(data, :start, :length) FROM product_image WHERE hash = :hash", nativeQuery = true)
+    byte[] readChunk(@Param("hash") String hash, @Param("start") long start, @Param("length") int length);
+}
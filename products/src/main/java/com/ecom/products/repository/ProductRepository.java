@@ -2,6 +2,10 @@ package com.ecom.products.repository;
 
 import com.ecom.products.entity.Product;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 
@@ -9,4 +13,20 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
     List<Product> findByNameContaining(String name);
 
     Product findByName(String string);
+
+    //ancienne colonne img (avant la table product_image), absente sur une base récente
+    @Query(value = "SELECT COUNT(*) FROM information_schema.columns WHERE table_schema = DATABASE() " +
+            "AND table_name = 'product' AND column_name = 'img'", nativeQuery = true)
+    long countLegacyImgColumn();
+
+    @Query(value = "SELECT id FROM product WHERE image_hash IS NULL AND img IS NOT NULL", nativeQuery = true)
+    List<Long> findIdsWithLegacyImg();
+
+    @Query(value = "SELECT img FROM product WHERE id = :id", nativeQuery = true)
+    byte[] findLegacyImg(@Param("id") Long id);
+
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE product SET image_hash = :hash, img = NULL WHERE id = :id", nativeQuery = true)
+    void moveLegacyImg(@Param("id") Long id, @Param("hash") String hash);
 }
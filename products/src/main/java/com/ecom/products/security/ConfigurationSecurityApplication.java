@@ -1,6 +1,7 @@
 package com.ecom.products.security;
 
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.core.annotation.Order;
@@ -14,6 +15,7 @@ import org.springframework.security.config.annotation.web.configurers.AbstractHt
 import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.oauth2.jwt.JwtDecoder;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.util.matcher.AndRequestMatcher;
 import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.CorsConfigurationSource;
@@ -50,13 +52,20 @@ public class ConfigurationSecurityApplication {
     @Bean
     @Order(2)
     public SecurityFilterChain securityFilterChain(
-            HttpSecurity http, @Qualifier("userJwtDecoder") JwtDecoder userJwtDecoder) throws Exception {
+            HttpSecurity http, @Qualifier("userJwtDecoder") JwtDecoder userJwtDecoder,
+            @Value("${management.server.port:-1}") int managementPort) throws Exception {
         http
                 .csrf(AbstractHttpConfigurer::disable)
                 .cors(Customizer.withDefaults())
                 .authorizeHttpRequests(auth -> auth
-                        .requestMatchers(new AntPathRequestMatcher("/actuator/**")).permitAll()
+                        //santé publique (healthchecks docker), Prometheus sans jeton mais seulement sur le port de management,
+                        //métriques et statistiques réservées aux admins
+                        .requestMatchers(new AntPathRequestMatcher("/actuator/health/**")).permitAll()
+                        .requestMatchers(new AndRequestMatcher(new AntPathRequestMatcher("/actuator/prometheus"),
+                                request -> request.getLocalPort() == managementPort)).permitAll()
+                        .requestMatchers(new AntPathRequestMatcher("/actuator/**")).hasAuthority("SCOPE_ADMIN")
                         .requestMatchers("/products").permitAll()
+                        .requestMatchers("/product-image/**").permitAll()
                         .anyRequest().authenticated()
                 )
                 .oauth2ResourceServer(oauth2 -> oauth2
@@ -3,7 +3,10 @@ package com.ecom.products.services.admin;
 import com.ecom.products.dto.ProductDto;
 import com.ecom.products.entity.Product;
 import com.ecom.products.repository.ProductRepository;
+import com.ecom.products.services.image.ProductImageService;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Caching;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
@@ -16,17 +19,21 @@ import java.util.stream.Collectors;
 public class AdminProductService {
 
     private final ProductRepository productRepository;
+    private final ProductImageService productImageService;
 
-    public AdminProductService(ProductRepository productRepository) {
+    public AdminProductService(ProductRepository productRepository, ProductImageService productImageService) {
         this.productRepository = productRepository;
+        this.productImageService = productImageService;
     }
 
+    //un nouveau produit ne modifie que la liste du catalogue
+    @CacheEvict(value = "products", key = "'all'")
     public ProductDto addProduct(ProductDto productDto) throws IOException{
         Product product = new Product();
         product.setName(productDto.getName());
         product.setDescription(productDto.getDescription());
         product.setPrice(productDto.getPrice());
-        product.setImg(productDto.getImg().getBytes());
+        product.setImageHash(productImageService.store(productDto.getImg()));
         return productRepository.save(product).getDto();
     }
 
@@ -36,6 +43,10 @@ public class AdminProductService {
     }
 
 
+    @Caching(evict = {
+            @CacheEvict(value = "products", key = "'all'"),
+            @CacheEvict(value = "product", key = "#id")
+    })
     public boolean deleteProductById(Long id) {
         Optional<Product> product = productRepository.findById(id);
         if (product.isPresent()) {
@@ -53,6 +64,10 @@ public class AdminProductService {
         }
     }
 
+    @Caching(evict = {
+            @CacheEvict(value = "products", key = "'all'"),
+            @CacheEvict(value = "product", key = "#productId")
+    })
     public ProductDto updateProduct(Long productId, ProductDto productDto) throws IOException {
         Optional<Product> optionalProduct = productRepository.findById(productId);
 
@@ -62,7 +77,7 @@ public class AdminProductService {
             product.setDescription(productDto.getDescription());
             product.setPrice(productDto.getPrice());
             if (productDto.getImg() != null) {
-                product.setImg(productDto.getImg().getBytes());
+                product.setImageHash(productImageService.store(productDto.getImg()));
             }
             return productRepository.save(product).getDto();
         }else {
@@ -4,6 +4,7 @@ import com.ecom.products.dto.ProductDto;
 import com.ecom.products.entity.Product;
 import com.ecom.products.repository.ProductRepository;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 
@@ -20,19 +21,22 @@ public class ProductService {
         this.productRepository = productRepository;
     }
 
+    @Cacheable(value = "products", key = "'all'")
     public List<ProductDto> getAllProducts() {
         List<Product> products = productRepository.findAll();
         return products.stream().map(Product::getDto).collect(Collectors.toList());
     }
 
-    public Optional<Product> findById(Long id) {
-        return productRepository.findById(id);
+    //on met en cache le DTO : une entité gérée ne doit pas survivre à sa session JPA
+    @Cacheable(value = "product", key = "#id")
+    public Optional<ProductDto> findById(Long id) {
+        return productRepository.findById(id).map(Product::getDto);
     }
 
     public ResponseEntity<List<ProductDto>> findListById(List<Long> ids) {
         List<Product> products = productRepository.findAllById(ids);
         List<ProductDto> result = products.stream()
-                .map(p -> new ProductDto(p.getId(), p.getName(), p.getPrice()))
+                .map(Product::getDto)
                 .toList();
         return ResponseEntity.ok(result);
     }
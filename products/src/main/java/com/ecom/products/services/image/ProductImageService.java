@@ -0,0 +1,90 @@
+package com.ecom.products.services.image;
+
+import com.ecom.products.dto.ProductImageInfo;
+import com.ecom.products.entity.ProductImage;
+import com.ecom.products.repository.ProductImageRepository;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.Set;
+
+@Service
+public class ProductImageService {
+
+    private static final String DEFAULT_CONTENT_TYPE = "image/jpeg";
+    //seuls ces types sont servis tels quels sur l'URL publique
+    private static final Set<String> ALLOWED_CONTENT_TYPES = Set.of("image/jpeg", "image/png", "image/gif", "image/webp");
+    static final int CHUNK_SIZE = 64 * 1024;
+
+    private final ProductImageRepository productImageRepository;
+
+    public ProductImageService(ProductImageRepository productImageRepository) {
+        this.productImageRepository = productImageRepository;
+    }
+
+    public String store(MultipartFile file) throws IOException {
+        String contentType = file.getContentType();
+        if (contentType != null && !ALLOWED_CONTENT_TYPES.contains(contentType)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Type d'image non supporté : " + contentType);
+        }
+        return this.store(file.getBytes(), contentType);
+    }
+
+    public String store(byte[] data, String contentType) {
+        String hash = hash(data);
+        //on n'enregistre l'image que si elle n'existe pas déjà
+        if (!productImageRepository.existsById(hash)) {
+            productImageRepository.save(ProductImage.builder()
+                    .hash(hash)
+                    .contentType(contentType != null ? contentType : DEFAULT_CONTENT_TYPE)
+                    .createdAt(Instant.now().truncatedTo(ChronoUnit.SECONDS))
+                    .dataSize((long) data.length)
+                    .data(data)
+                    .build());
+        }
+        return hash;
+    }
+
+    public Optional<ProductImageInfo> findInfoByHash(String hash) {
+        return productImageRepository.findInfoByHash(hash);
+    }
+
+    //contenu recopié par morceaux : la mémoire et la connexion ne sont prises que le temps d'un morceau
+    public void copyTo(String hash, OutputStream outputStream) throws IOException {
+        long start = 1;
+        byte[] chunk;
+        do {
+            chunk = productImageRepository.readChunk(hash, start, CHUNK_SIZE);
+            if (chunk == null) {
+                return;
+            }
+            outputStream.write(chunk);
+            start += chunk.length;
+        } while (chunk.length == CHUNK_SIZE);
+    }
+
+    //type enregistré avant la liste blanche et non reconnu : servi comme binaire, jamais interprété
+    public static MediaType servedMediaType(String contentType) {
+        return contentType != null && ALLOWED_CONTENT_TYPES.contains(contentType)
+                ? MediaType.parseMediaType(contentType) : MediaType.APPLICATION_OCTET_STREAM;
+    }
+
+    private static String hash(byte[] data) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(data));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -4,6 +4,7 @@ import com.ecom.products.dto.ProductDto;
 import com.ecom.products.entity.Product;
 import com.ecom.products.repository.ProductRepository;
 import com.ecom.products.services.admin.AdminProductService;
+import com.ecom.products.services.image.ProductImageService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
@@ -24,6 +25,9 @@ class AdminProductServiceTest {
     @Mock
     private ProductRepository productRepository;
 
+    @Mock
+    private ProductImageService productImageService;
+
     @InjectMocks
     private AdminProductService service;
 
@@ -38,7 +42,7 @@ class AdminProductServiceTest {
         ProductDto dto = new ProductDto(null, "Solo", 50L);
         MultipartFile mockFile = mock(MultipartFile.class);
         dto.setImg(mockFile);
-        when(mockFile.getBytes()).thenReturn(new byte[]{1, 2, 3});
+        when(productImageService.store(mockFile)).thenReturn("hash");
 
         Product savedProduct = new Product();
         savedProduct.setId(1L);
@@ -52,6 +56,8 @@ class AdminProductServiceTest {
         assertNotNull(result);
         assertEquals(1L, result.getId());
         assertEquals("Solo", result.getName());
+        // L'image est enregistrée à part, le produit ne garde que sa référence
+        verify(productRepository).save(argThat(p -> "hash".equals(p.getImageHash())));
     }
 
     // 2 : Récupération de tous les produits
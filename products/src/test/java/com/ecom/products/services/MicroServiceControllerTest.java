@@ -2,7 +2,6 @@ package com.ecom.products.services;
 
 import com.ecom.products.controller.MicroServiceController;
 import com.ecom.products.dto.ProductDto;
-import com.ecom.products.entity.Product;
 import com.ecom.products.services.customer.ProductService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -34,7 +33,7 @@ class MicroServiceControllerTest {
     @Test
     void FindById() {
         // Création d’un produit
-        Product mockProduct = new Product();
+        ProductDto mockProduct = new ProductDto();
         mockProduct.setId(1L);
         mockProduct.setName("Solo");
 
@@ -42,7 +41,7 @@ class MicroServiceControllerTest {
         when(productService.findById(1L)).thenReturn(Optional.of(mockProduct));
 
         // Appel du contrôleur
-        Optional<Product> result = controller.findById(1L);
+        Optional<ProductDto> result = controller.findById(1L);
 
         // Vérifications
         assertTrue(result.isPresent());
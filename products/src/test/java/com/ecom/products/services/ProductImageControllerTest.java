@@ -0,0 +1,100 @@
+package com.ecom.products.services;
+
+import com.ecom.products.controller.ProductImageController;
+import com.ecom.products.dto.ProductImageInfo;
+import com.ecom.products.services.image.ProductImageService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.time.Instant;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ProductImageControllerTest {
+
+    @Mock
+    private ProductImageService productImageService;
+
+    @InjectMocks
+    private ProductImageController controller;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+    }
+
+    // 1 : image trouvée = 200 avec ETag et Cache-Control, contenu recopié en flux
+    @Test
+    void getImage_returnImageWithCacheHeaders() throws Exception {
+        ProductImageInfo image = new ProductImageInfo("abc", "image/jpeg", Instant.parse("2024-07-26T00:00:00Z"), 3L);
+        when(productImageService.findInfoByHash("abc")).thenReturn(Optional.of(image));
+        // On simule la recopie du contenu depuis la base
+        doAnswer(invocation -> {
+            invocation.<OutputStream>getArgument(1).write(new byte[]{1, 2, 3});
+            return null;
+        }).when(productImageService).copyTo(eq("abc"), any(OutputStream.class));
+
+        ResponseEntity<StreamingResponseBody> response = controller.getImage("abc",
+                new ServletWebRequest(new MockHttpServletRequest(), new MockHttpServletResponse()));
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        response.getBody().writeTo(body);
+
+        assertEquals(200, response.getStatusCode().value());
+        assertEquals("\"abc\"", response.getHeaders().getETag());
+        assertTrue(response.getHeaders().getCacheControl().contains("immutable"));
+        assertEquals(3, response.getHeaders().getContentLength());
+        assertEquals("nosniff", response.getHeaders().getFirst("X-Content-Type-Options"));
+        assertArrayEquals(new byte[]{1, 2, 3}, body.toByteArray());
+    }
+
+    // 1 bis : type enregistré hors liste blanche = servi comme binaire
+    @Test
+    void getImage_serveUnknownTypeAsOctetStream() {
+        ProductImageInfo image = new ProductImageInfo("abc", "text/html", Instant.parse("2024-07-26T00:00:00Z"), null);
+        when(productImageService.findInfoByHash("abc")).thenReturn(Optional.of(image));
+
+        ResponseEntity<StreamingResponseBody> response = controller.getImage("abc",
+                new ServletWebRequest(new MockHttpServletRequest(), new MockHttpServletResponse()));
+
+        assertEquals(MediaType.APPLICATION_OCTET_STREAM, response.getHeaders().getContentType());
+        assertEquals(-1, response.getHeaders().getContentLength());
+    }
+
+    // 2 : le client possède déjà l'image = 304 sans lecture en base
+    @Test
+    void getImage_returnNotModifiedWhenEtagMatches() {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/product-image/abc");
+        request.addHeader("If-None-Match", "\"abc\"");
+        MockHttpServletResponse servletResponse = new MockHttpServletResponse();
+
+        ResponseEntity<StreamingResponseBody> response = controller.getImage("abc", new ServletWebRequest(request, servletResponse));
+
+        assertNull(response);
+        assertEquals(304, servletResponse.getStatus());
+        verify(productImageService, never()).findInfoByHash(anyString());
+    }
+
+    // 3 : image inconnue = 404
+    @Test
+    void getImage_notFound() {
+        when(productImageService.findInfoByHash("unknown")).thenReturn(Optional.empty());
+
+        ResponseEntity<StreamingResponseBody> response = controller.getImage("unknown",
+                new ServletWebRequest(new MockHttpServletRequest(), new MockHttpServletResponse()));
+
+        assertEquals(404, response.getStatusCode().value());
+    }
+}
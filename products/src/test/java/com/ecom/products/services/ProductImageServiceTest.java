@@ -0,0 +1,66 @@
+package com.ecom.products.services;
+
+import com.ecom.products.entity.ProductImage;
+import com.ecom.products.repository.ProductImageRepository;
+import com.ecom.products.services.image.ProductImageService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ProductImageServiceTest {
+
+    @Mock
+    private ProductImageRepository productImageRepository;
+
+    @InjectMocks
+    private ProductImageService productImageService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+    }
+
+    // 1 : image enregistrée avec sa taille
+    @Test
+    void store_saveImageWithSize() throws Exception {
+        productImageService.store(new MockMultipartFile("img", "a.png", "image/png", new byte[]{1, 2, 3}));
+
+        verify(productImageRepository).save(argThat((ProductImage image) ->
+                "image/png".equals(image.getContentType()) && image.getDataSize() == 3L));
+    }
+
+    // 2 : type hors liste blanche = refusé sans enregistrement
+    @Test
+    void store_rejectNonImageContentType() {
+        MockMultipartFile file = new MockMultipartFile("img", "a.html", "text/html", "<script>".getBytes());
+
+        assertThrows(ResponseStatusException.class, () -> productImageService.store(file));
+        verify(productImageRepository, never()).save(any());
+    }
+
+    // 3 : contenu recopié morceau par morceau jusqu'au dernier morceau incomplet
+    @Test
+    void copyTo_readImageByChunks() throws Exception {
+        byte[] full = new byte[64 * 1024];
+        Arrays.fill(full, (byte) 7);
+        // On simule une image d'un morceau complet suivi d'un morceau de 2 octets
+        when(productImageRepository.readChunk("abc", 1L, 64 * 1024)).thenReturn(full);
+        when(productImageRepository.readChunk("abc", 64 * 1024 + 1L, 64 * 1024)).thenReturn(new byte[]{1, 2});
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        productImageService.copyTo("abc", out);
+
+        assertEquals(64 * 1024 + 2, out.size());
+        verify(productImageRepository, times(2)).readChunk(eq("abc"), anyLong(), anyInt());
+    }
+}
@@ -1,11 +1,16 @@
 package com.ecom.products.services;
 
+import com.ecom.products.dto.ProductDto;
 import com.ecom.products.entity.Product;
 import com.ecom.products.repository.ProductRepository;
+import com.ecom.products.services.admin.AdminProductService;
+import com.ecom.products.services.customer.ProductService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.test.context.ActiveProfiles;
 
 import java.util.List;
@@ -19,10 +24,20 @@ class ProductServiceIntegrationTest {
     @Autowired
     private ProductRepository productRepository;
 
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private AdminProductService adminProductService;
+
+    @Autowired
+    private CacheManager cacheManager;
+
     @BeforeEach
     void setUp() {
-        // On vérifie que la BDD est vide avant
+        // On vérifie que la BDD et le cache sont vides avant
         productRepository.deleteAll();
+        cacheManager.getCacheNames().forEach(name -> cacheManager.getCache(name).clear());
 
         // On crée ici 3 produits sauvegardés dans la base H2
         Product solo = Product.builder()
@@ -65,5 +80,26 @@ class ProductServiceIntegrationTest {
         assertThat(products).extracting(Product::getName)
                 .containsExactlyInAnyOrder("Solo", "Duo", "Famille");
     }
-}
 
+    // On vérifie que le catalogue est servi depuis le cache et invalidé par l'admin
+    @Test
+    void testGetAllProducts_cacheEvictedOnAdd() throws Exception {
+        // Premier appel : lecture en base puis mise en cache
+        assertThat(productService.getAllProducts()).hasSize(3);
+
+        // Suppression directe en base : le cache sert toujours l'ancienne liste
+        productRepository.deleteAll();
+        assertThat(productService.getAllProducts()).hasSize(3);
+
+        // Ajout par l'admin : le cache de la liste est invalidé
+        ProductDto dto = new ProductDto();
+        dto.setName("Solo");
+        dto.setDescription("1 personne");
+        dto.setPrice(50L);
+        dto.setImg(new MockMultipartFile("img", new byte[]{1, 2, 3}));
+        adminProductService.addProduct(dto);
+
+        List<ProductDto> products = productService.getAllProducts();
+        assertThat(products).hasSize(1);
+    }
+}
@@ -68,16 +68,19 @@ class ProductServiceTest {
         product.setId(1L);
         product.setName("Product1");
         product.setPrice(100L);
+        product.setImageHash("abc");
 
         // On simule produit avec Optional
         when(productRepository.findById(1L)).thenReturn(Optional.of(product));
 
         // Appel de la méthode du service
-        Optional<Product> result = productService.findById(1L);
+        Optional<ProductDto> result = productService.findById(1L);
 
         // Vérification, produit ok + nom ok
         assertTrue(result.isPresent());
         assertEquals("Product1", result.get().getName());
+        // on renvoie un DTO détaché de l'entité, avec l'URL de l'image
+        assertEquals(ProductDto.IMAGE_PATH + "abc", result.get().getImageUrl());
     }
 
     // Test : recherche d’un produit inexistant par id
@@ -87,7 +90,7 @@ class ProductServiceTest {
         when(productRepository.findById(1L)).thenReturn(Optional.empty());
 
         // Appel de la méthode
-        Optional<Product> result = productService.findById(1L);
+        Optional<ProductDto> result = productService.findById(1L);
 
         // Vérification, produit =null
         assertFalse(result.isPresent());
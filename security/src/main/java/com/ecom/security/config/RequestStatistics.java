@@ -0,0 +1,58 @@
+package com.ecom.security.config;
+
+import lombok.Getter;
+
+import java.util.HashMap;
+import java.util.Map;
+
+//compteurs d'une requête HTTP (requêtes SQL, entités chargées, appels Feign), portés par le thread qui la traite
+@Getter
+public final class RequestStatistics {
+
+    private static final ThreadLocal<RequestStatistics> CURRENT = new ThreadLocal<>();
+
+    private int statements;
+    private int entityLoads;
+    private int feignCalls;
+    private final Map<String, Integer> statementCounts = new HashMap<>();
+
+    static RequestStatistics start() {
+        RequestStatistics statistics = new RequestStatistics();
+        CURRENT.set(statistics);
+        return statistics;
+    }
+
+    static void stop() {
+        CURRENT.remove();
+    }
+
+    //hors requête HTTP (tâches planifiées, démarrage) : rien n'est compté
+    public static void onStatement(String sql) {
+        RequestStatistics statistics = CURRENT.get();
+        if (statistics != null) {
+            statistics.statements++;
+            statistics.statementCounts.merge(sql, 1, Integer::sum);
+        }
+    }
+
+    public static void onEntityLoad() {
+        RequestStatistics statistics = CURRENT.get();
+        if (statistics != null) {
+            statistics.entityLoads++;
+        }
+    }
+
+    public static void onFeignCall() {
+        RequestStatistics statistics = CURRENT.get();
+        if (statistics != null) {
+            statistics.feignCalls++;
+        }
+    }
+
+    //la même requête SQL exécutée en boucle est le signe d'un N+1
+    public Map.Entry<String, Integer> mostRepeatedStatement() {
+        return statementCounts.entrySet().stream()
+                .max(Map.Entry.comparingByValue())
+                .orElse(null);
+    }
+}
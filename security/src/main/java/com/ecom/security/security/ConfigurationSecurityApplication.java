@@ -23,6 +23,7 @@ import org.springframework.security.oauth2.server.authorization.client.Registere
 import org.springframework.security.oauth2.server.authorization.client.RegisteredClientRepository;
 import org.springframework.security.oauth2.server.authorization.config.annotation.web.configuration.OAuth2AuthorizationServerConfiguration;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.util.matcher.AndRequestMatcher;
 import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.CorsConfigurationSource;
@@ -91,12 +92,17 @@ public class ConfigurationSecurityApplication {
     // 4) Resource Server “classique”
     @Bean
     //@Order(3)
-    public SecurityFilterChain securityFilterChain(HttpSecurity httpSecurity, @Qualifier("userJwtDecoder") JwtDecoder userJwtDecoder) throws Exception {
+    public SecurityFilterChain securityFilterChain(HttpSecurity httpSecurity, @Qualifier("userJwtDecoder") JwtDecoder userJwtDecoder, @Value("${management.server.port:-1}") int managementPort) throws Exception {
         return httpSecurity
                 .csrf(AbstractHttpConfigurer::disable)
                 .cors(Customizer.withDefaults())
                 .authorizeHttpRequests(auth -> auth
-                        .requestMatchers(new AntPathRequestMatcher("/actuator/**")).permitAll()
+                        //santé publique (healthchecks docker), Prometheus sans jeton mais seulement sur le port de management,
+                        //métriques et statistiques réservées aux admins
+                        .requestMatchers(new AntPathRequestMatcher("/actuator/health/**")).permitAll()
+                        .requestMatchers(new AndRequestMatcher(new AntPathRequestMatcher("/actuator/prometheus"),
+                                request -> request.getLocalPort() == managementPort)).permitAll()
+                        .requestMatchers(new AntPathRequestMatcher("/actuator/**")).hasAuthority("SCOPE_ADMIN")
                         .requestMatchers(new AntPathRequestMatcher("/signin")).permitAll()
                         .requestMatchers(new AntPathRequestMatcher("/signin-validation")).permitAll()
                         .anyRequest().authenticated())
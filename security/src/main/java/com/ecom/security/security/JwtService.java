@@ -13,6 +13,7 @@ import com.ecom.security.repository.JwtRepository;
 import com.ecom.security.response.UserNotFoundException;
 import com.ecom.security.service.TokenMicroService;
 import com.ecom.security.service.UserDetailsImpl;
+import io.micrometer.core.annotation.Timed;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.scheduling.annotation.Scheduled;
@@ -46,6 +47,7 @@ public class JwtService {
         this.tokenMicroService = tokenMicroService;
     }
 
+    @Timed(value = "security.jwt.generate", histogram = true)
     public ResponseEntity<Map<String, String>> generate(UserDetails userDetails, String deviceId) {
         //je prepare un UUID
         UUID uuidToken = UUID.randomUUID();
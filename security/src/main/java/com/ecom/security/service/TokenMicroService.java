@@ -16,6 +16,9 @@ public class TokenMicroService {
     @Value("${security.service.url}")
     private String securityServiceUrl;
     private final JwtEncoder jwtEncoder;
+    //token signé réutilisé jusqu'à peu avant son expiration
+    private volatile String cachedToken;
+    private volatile Instant refreshAt = Instant.EPOCH;
 
     public TokenMicroService(@Qualifier("techJwtEncoder") JwtEncoder jwtEncoder) {
         this.jwtEncoder = jwtEncoder;
@@ -23,6 +26,20 @@ public class TokenMicroService {
 
     public String tokenService(){
         Instant now = Instant.now();
+        if (cachedToken != null && now.isBefore(refreshAt)) {
+            return cachedToken;
+        }
+        synchronized (this) {
+            Instant issuedAt = Instant.now();
+            if (cachedToken == null || !issuedAt.isBefore(refreshAt)) {
+                cachedToken = this.signToken(issuedAt);
+                refreshAt = issuedAt.plus(Duration.ofMinutes(55));
+            }
+            return cachedToken;
+        }
+    }
+
+    private String signToken(Instant now) {
         // Construction du JWT Claims
         JwtClaimsSet claims = JwtClaimsSet.builder()
                 .issuer(securityServiceUrl)
@@ -0,0 +1,63 @@
+package com.ecom.users.config;
+
+import feign.RequestInterceptor;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.hibernate.Interceptor;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.hibernate.type.Type;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+//instrumentation activée uniquement avec request-stats.enabled=true
+@Configuration
+@ConditionalOnProperty(name = "request-stats.enabled", havingValue = "true")
+public class RequestStatsConfig {
+
+    //chaque requête SQL et chaque entité chargée par Hibernate
+    @Bean
+    public HibernatePropertiesCustomizer requestStatsHibernateCustomizer() {
+        return properties -> {
+            properties.put(AvailableSettings.STATEMENT_INSPECTOR, (StatementInspector) sql -> {
+                RequestStatistics.onStatement(sql);
+                return sql;
+            });
+            properties.put(AvailableSettings.INTERCEPTOR, new Interceptor() {
+                @Override
+                public boolean onLoad(Object entity, Object id, Object[] state, String[] propertyNames, Type[] types) {
+                    RequestStatistics.onEntityLoad();
+                    return false;
+                }
+            });
+        };
+    }
+
+    //appliqué à tous les clients Feign
+    @Bean
+    public RequestInterceptor requestStatsFeignInterceptor() {
+        return template -> RequestStatistics.onFeignCall();
+    }
+
+    @Bean
+    public RequestStatsEndpoint requestStatsEndpoint() {
+        return new RequestStatsEndpoint();
+    }
+
+    //premier filtre de la chaîne : les requêtes faites par la sécurité sont comptées aussi
+    @Bean
+    public FilterRegistrationBean<RequestStatsFilter> requestStatsFilter(RequestStatsEndpoint requestStatsEndpoint, MeterRegistry meterRegistry,
+                                                                         @Value("${request-stats.max-statements:50}") int maxStatements,
+                                                                         @Value("${request-stats.max-entity-loads:500}") int maxEntityLoads,
+                                                                         @Value("${request-stats.max-feign-calls:10}") int maxFeignCalls,
+                                                                         @Value("${request-stats.repeated-statement-threshold:10}") int repeatedStatementThreshold) {
+        FilterRegistrationBean<RequestStatsFilter> registration = new FilterRegistrationBean<>(new RequestStatsFilter(requestStatsEndpoint, meterRegistry,
+                maxStatements, maxEntityLoads, maxFeignCalls, repeatedStatementThreshold));
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        return registration;
+    }
+}
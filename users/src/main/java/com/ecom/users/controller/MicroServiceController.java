@@ -5,6 +5,7 @@ import com.ecom.users.dto.NewPasswordDto;
 import com.ecom.users.dto.UserActivationDto;
 import com.ecom.users.dto.UserDto;
 import com.ecom.users.dto.UserLoginDto;
+import com.ecom.users.dto.UserSummaryDto;
 import com.ecom.users.entity.User;
 import com.ecom.users.service.UserService;
 import org.springframework.http.ResponseEntity;
@@ -37,6 +38,16 @@ public class MicroServiceController {
         return (userService.findById(id));
     }
 
+    @PostMapping("/_internal/users/summaries")
+    public List<UserSummaryDto> findSummaries(@RequestBody List<Long> ids){
+        return this.userService.findSummaries(ids);
+    }
+
+    @GetMapping("/_internal/users/ids")
+    public List<Long> findIds(@RequestParam(defaultValue = "0") Long afterId, @RequestParam(defaultValue = "1000") int size){
+        return this.userService.findIdsAfter(afterId, size);
+    }
+
     @GetMapping(path = "/_internal/allUsers")
     public List<UserDto> getUsers() {
         return userService.findAll();
@@ -0,0 +1,14 @@
+package com.ecom.users.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@AllArgsConstructor
+@NoArgsConstructor
+@Data
+public class UserSummaryDto {
+    private Long id;
+    private String name;
+    private String email;
+}
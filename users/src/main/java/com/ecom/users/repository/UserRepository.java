@@ -1,10 +1,24 @@
 package com.ecom.users.repository;
 
+import com.ecom.users.dto.UserSummaryDto;
 import com.ecom.users.entity.User;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByEmail(String email);
+
+    //projection légère : ni mot de passe ni chargement des rôles
+    @Query("SELECT new com.ecom.users.dto.UserSummaryDto(u.id, u.name, u.email) FROM User u WHERE u.id IN :ids")
+    List<UserSummaryDto> findSummariesByIdIn(@Param("ids") Collection<Long> ids);
+
+    //identifiants par ordre croissant, à partir d'un point de reprise
+    @Query("SELECT u.id FROM User u WHERE u.id > :afterId ORDER BY u.id")
+    List<Long> findIdsAfter(@Param("afterId") Long afterId, Pageable pageable);
 }
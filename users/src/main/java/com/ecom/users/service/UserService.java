@@ -15,6 +15,7 @@ import com.ecom.users.model.Validation;
 import com.ecom.users.repository.RoleRepository;
 import com.ecom.users.repository.UserRepository;
 import com.ecom.users.response.UserNotFoundException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.crypto.password.PasswordEncoder;
@@ -27,6 +28,8 @@ import java.util.stream.Collectors;
 @Service
 public class UserService {
 
+    public static final int SUMMARY_MAX_IDS = 1000;
+
     private final UserRepository userRepository;
     private final RoleRepository roleRepository;
     private final PasswordEncoder passwordEncoder;
@@ -120,6 +123,22 @@ public class UserService {
         return userRepository.findByEmail(email).orElse(null);
     }
 
+    //recherche groupée, limitée à SUMMARY_MAX_IDS identifiants par appel
+    public List<UserSummaryDto> findSummaries(Collection<Long> ids){
+        List<Long> distinctIds = ids.stream().filter(Objects::nonNull).distinct().toList();
+        if (distinctIds.isEmpty()) {
+            return List.of();
+        }
+        if (distinctIds.size() > SUMMARY_MAX_IDS) {
+            throw new UserNotFoundException("Trop d'utilisateurs demandés");
+        }
+        return userRepository.findSummariesByIdIn(distinctIds);
+    }
+
+    public List<Long> findIdsAfter(Long afterId, int size){
+        return userRepository.findIdsAfter(afterId == null ? 0L : afterId, PageRequest.of(0, Math.max(1, Math.min(size, SUMMARY_MAX_IDS))));
+    }
+
     public List<UserDto> findAll(){
         return userRepository.findAll()
                 .stream()
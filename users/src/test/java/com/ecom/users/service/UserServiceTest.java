@@ -14,6 +14,7 @@ import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.crypto.password.PasswordEncoder;
@@ -565,5 +566,36 @@ public class UserServiceTest {
                 .hasMessageContaining("Utilisateur introuvable");
     }
 
-}
+    // 28 : findSummaries, une seule requête pour tous les identifiants (doublons retirés)
+    @Test
+    void findSummaries_shouldQueryDistinctIdsOnce() {
+        UserSummaryDto summary = new UserSummaryDto(1L, "John", "test@example.com");
+        when(userRepository.findSummariesByIdIn(List.of(1L, 2L))).thenReturn(List.of(summary));
 
+        List<UserSummaryDto> result = userService.findSummaries(List.of(1L, 2L, 1L));
+
+        // Vérification, projection retournée sans charger les entités
+        assertEquals(List.of(summary), result);
+        verify(userRepository, times(1)).findSummariesByIdIn(List.of(1L, 2L));
+        verify(userRepository, never()).findAllById(any());
+    }
+
+    // 29 : findSummaries, liste vide = aucune requête
+    @Test
+    void findSummaries_shouldReturnEmptyWithoutQuery() {
+        assertTrue(userService.findSummaries(List.of()).isEmpty());
+        verifyNoInteractions(userRepository);
+    }
+
+    // 30 : findIdsAfter, page plafonnée à la limite des recherches groupées
+    @Test
+    void findIdsAfter_shouldCapPageSize() {
+        when(userRepository.findIdsAfter(10L, PageRequest.of(0, 1000))).thenReturn(List.of(11L, 12L));
+
+        List<Long> result = userService.findIdsAfter(10L, 5000);
+
+        // Vérification, identifiants suivants retournés
+        assertEquals(List.of(11L, 12L), result);
+        verify(userRepository, times(1)).findIdsAfter(10L, PageRequest.of(0, 1000));
+    }
+}
@@ -1,15 +1,16 @@
 package com.ecom.validation.service;
 
-
 import com.ecom.validation.clients.SecurityRestClient;
 import com.ecom.validation.dto.TokenTechnicDto;
 import com.ecom.validation.response.UserNotFoundException;
 import feign.FeignException;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
 import java.nio.charset.StandardCharsets;
+import java.time.Instant;
 import java.util.Base64;
 
 @Slf4j
@@ -17,10 +18,16 @@ import java.util.Base64;
 public class TokenTechnicService {
 
     private final SecurityRestClient securityRestClient;
+    private final Object refreshLock = new Object();
     @Value("${client.id}")
     private  String clientId;
     @Value("${client.secret}")
     private  String clientSecret;
+    //marge (en secondes) avant expiration pour renouveler le token
+    @Value("${client.token.refresh-margin:60}")
+    private long refreshMargin;
+
+    private volatile CachedToken cachedToken;
 
     public TokenTechnicService(SecurityRestClient securityRestClient) {
         this.securityRestClient = securityRestClient;
@@ -28,6 +35,46 @@ public class TokenTechnicService {
 
 
     public String getTechnicalToken() {
+        //on retourne le token en cache tant qu'il n'est pas expiré
+        CachedToken current = this.cachedToken;
+        if (current != null && current.isValid(Instant.now())) {
+            return current.value();
+        }
+        return this.refreshToken();
+    }
+
+    //renouvellement en tâche de fond avant l'expiration du token
+    @Scheduled(fixedDelayString = "${client.token.refresh-check:15000}")
+    public void refreshBeforeExpiry() {
+        CachedToken current = this.cachedToken;
+        if (current != null && current.shouldRefresh(Instant.now())) {
+            this.refreshToken();
+        }
+    }
+
+    private String refreshToken() {
+        //un seul appel au service security à la fois
+        synchronized (this.refreshLock) {
+            CachedToken current = this.cachedToken;
+            Instant now = Instant.now();
+            //un autre thread a déjà renouvelé le token
+            if (current != null && !current.shouldRefresh(now)) {
+                return current.value();
+            }
+
+            TokenTechnicDto resp = this.requestToken();
+            if (resp == null || resp.accessToken() == null) {
+                //fallback du circuit breaker : on garde l'ancien token s'il est encore valide
+                log.warn("Token technique indisponible, utilisation du token en cache");
+                return current != null && current.isValid(now) ? current.value() : null;
+            }
+
+            this.cachedToken = CachedToken.of(resp, now, this.refreshMargin);
+            return resp.accessToken();
+        }
+    }
+
+    private TokenTechnicDto requestToken() {
         // 1) Calcul du header Basic
         String creds = clientId+":"+clientSecret;
         String basicAuth = "Basic " +
@@ -38,19 +85,33 @@ public class TokenTechnicService {
         // 2) Construction manuelle du corps form-url-encoded
         String form = "grant_type=client_credentials&scope=users:read";
 
-        // 3) Appel Feign
-        //TokenTechnicDto resp = securityRestClient.getTokenTechnic(basicAuth, form);
-
-        // 4) Retourne l’access_token (ou null si fallback)
-        //return resp == null ? null : resp.accessToken();
-
+        // 3) Appel Feign (retourne un token vide si fallback)
         try {
-            TokenTechnicDto resp = securityRestClient.getTokenTechnic(basicAuth, form);
-            return resp == null ? null : resp.accessToken();
+            return securityRestClient.getTokenTechnic(basicAuth, form);
         } catch (FeignException e) {
+            CachedToken current = this.cachedToken;
+            if (current != null && current.isValid(Instant.now())) {
+                return null;
+            }
             throw new UserNotFoundException("Service Token indisponible");
         }
     }
 
+    private record CachedToken(String value, Instant refreshAt, Instant expiresAt) {
+
+        static CachedToken of(TokenTechnicDto resp, Instant now, long refreshMargin) {
+            Instant expiresAt = now.plusSeconds(resp.expiresIn());
+            //si la durée de vie est trop courte, on renouvelle à mi-vie
+            long margin = resp.expiresIn() > refreshMargin ? refreshMargin : resp.expiresIn() / 2;
+            return new CachedToken(resp.accessToken(), expiresAt.minusSeconds(margin), expiresAt);
+        }
+
+        boolean isValid(Instant now) {
+            return now.isBefore(expiresAt);
+        }
 
+        boolean shouldRefresh(Instant now) {
+            return !now.isBefore(refreshAt);
+        }
+    }
 }
@@ -4,6 +4,7 @@ import com.ecom.validation.dto.ValidationDto;
 import com.ecom.validation.entity.Validation;
 import com.ecom.validation.repository.ValidationRepository;
 import com.ecom.validation.response.UserNotFoundException;
+import io.micrometer.core.annotation.Timed;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -28,6 +29,7 @@ public class ValidationService {
     private ValidationRepository validationRepository;
     private NotificationService notificationService;
 
+    @Timed(value = "validation.save", histogram = true)
     public ResponseEntity<Validation> save(ValidationDto validationDto){
         //je recherche si le code existe et non activé, je le supprime
         if (validationDto.getDeviceId() != null) {